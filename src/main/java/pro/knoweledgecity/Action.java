@@ -0,0 +1,61 @@
+package pro.knoweledgecity;
+
+/**
+ * Actions understood by the quiz protocol, selected by the {@code action} request parameter.
+ */
+public enum Action {
+    LOGIN("login"),
+    QUESTION("question"),
+    ANSWER("answer"),
+    SCORE("score"),
+    RESET("reset"),
+    BATCH("batch"),
+    RANK("rank"),
+    LEADERBOARD("leaderboard");
+
+    private static final Action[] VALUES = values();
+
+    private final String param;
+
+    Action(String param) {
+        this.param = param;
+    }
+
+    public String param() {
+        return param;
+    }
+
+    /**
+     * Resolves the action for a raw parameter value, or returns {@code null} when the value is unknown.
+     */
+    public static Action fromParam(String value) {
+        for (Action action : VALUES) {
+            if (action.param.equals(value)) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Like {@link #fromParam(String)}, for a value decoded into {@code bytes[offset, offset + length)}.
+     */
+    public static Action fromBytes(byte[] bytes, int offset, int length) {
+        for (Action action : VALUES) {
+            String param = action.param;
+            if (param.length() == length && matches(param, bytes, offset)) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(String param, byte[] bytes, int offset) {
+        for (int i = 0; i < param.length(); i++) {
+            if (bytes[offset + i] != param.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,268 @@
+package pro.knoweledgecity;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-email and global rate limits checked before a request is parsed, so that one client flooding the API is
+ * turned away for the cost of a hash and two CAS operations.
+ *
+ * <p>Every bucket is a token bucket kept as a single {@code long}, its theoretical arrival time (GCRA): a request
+ * is admitted when that time is at most {@code burst - 1} intervals ahead of now, and pushes it one interval
+ * further with a CAS. Emails are hashed, without decoding or allocating, into a fixed table of
+ * {@value #EMAIL_BUCKETS} buckets, so memory does not grow with users and the rare emails that collide share a
+ * limit. The global bucket is split into stripes picked by thread, each with its share of the rate and burst and
+ * on its own cache line, so that admitting concurrent requests does not serialize on one word.
+ */
+public final class AdmissionControl {
+    /**
+     * Admits everything.
+     */
+    public static final AdmissionControl UNLIMITED = new AdmissionControl(0, 0, 0, 0);
+
+    static final int EMAIL_BUCKETS = 1 << 16;
+    private static final int LONGS_PER_LINE = 8;
+
+    private final long emailInterval;
+    private final long emailTolerance;
+    private final AtomicLongArray emailBuckets;
+    private final int stripes;
+    private final long globalInterval;
+    private final long globalTolerance;
+    private final AtomicLongArray globalBuckets;
+    private final long epoch = System.nanoTime();
+    private final LongAdder rejectedByEmail = new LongAdder();
+    private final LongAdder rejectedGlobally = new LongAdder();
+
+    /**
+     * Limits each email to {@code emailRate} requests per second with bursts of {@code emailBurst}, and all requests
+     * together to {@code globalRate} with bursts of {@code globalBurst}. A rate of {@code 0} disables that limit.
+     */
+    public AdmissionControl(double emailRate, int emailBurst, double globalRate, int globalBurst) {
+        this.emailInterval = interval(emailRate);
+        this.emailTolerance = emailInterval * (Math.max(1, emailBurst) - 1L);
+        this.emailBuckets = emailRate > 0 ? new AtomicLongArray(EMAIL_BUCKETS) : null;
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        while (stripes > 1 && globalBurst / stripes < 1) {
+            stripes >>>= 1;
+        }
+        this.stripes = stripes;
+        // Each stripe refills at rate / stripes, i.e. one token every interval * stripes
+        this.globalInterval = interval(globalRate) * stripes;
+        this.globalTolerance = globalInterval * (Math.max(1, globalBurst / stripes) - 1L);
+        this.globalBuckets = globalRate > 0 ? new AtomicLongArray(stripes * LONGS_PER_LINE) : null;
+    }
+
+    /**
+     * Admits a request whose raw, still URL-encoded query string is {@code rawQuery}, charging the email found in
+     * it, if any, and the global limit. Returns {@code 0} when admitted, otherwise the nanoseconds after which a
+     * retry could be.
+     */
+    public long admitQuery(String rawQuery) {
+        if (emailBuckets != null && rawQuery != null) {
+            int start = valueOf(rawQuery, "email");
+            if (start >= 0) {
+                int end = rawQuery.indexOf('&', start);
+                long wait = admitEncodedEmail(rawQuery, start, end < 0 ? rawQuery.length() : end);
+                if (wait > 0) {
+                    return wait;
+                }
+            }
+        }
+        return admitGlobal();
+    }
+
+    /**
+     * Like {@link #admitQuery(String)}, for a raw query string in {@code buffer[from, to)}.
+     */
+    public long admitQuery(ByteBuffer buffer, int from, int to) {
+        if (emailBuckets != null) {
+            int start = valueOf(buffer, from, to, "email");
+            if (start >= 0) {
+                int end = start;
+                while (end < to && buffer.get(end) != '&') {
+                    end++;
+                }
+                long wait = admitEncodedEmail(buffer, start, end);
+                if (wait > 0) {
+                    return wait;
+                }
+            }
+        }
+        return admitGlobal();
+    }
+
+    /**
+     * Charges an already decoded email, e.g. one sent in the request body.
+     */
+    public long admitEmail(String email) {
+        if (emailBuckets == null) {
+            return 0;
+        }
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < email.length(); i++) {
+            hash = (hash ^ email.charAt(i)) * 0x01000193;
+        }
+        return charge(hash);
+    }
+
+    /**
+     * Like {@link #admitEmail(String)}, for a decoded email in {@code bytes[offset, offset + length)}.
+     */
+    public long admitEmail(byte[] bytes, int offset, int length) {
+        if (emailBuckets == null) {
+            return 0;
+        }
+        int hash = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ bytes[i] & 0xFF) * 0x01000193;
+        }
+        return charge(hash);
+    }
+
+    /**
+     * Charges the URL-encoded email in {@code query[from, to)}: {@code %XX} escapes and {@code +} are hashed as the
+     * characters they stand for, so it hashes like the decoded email given to {@link #admitEmail(String)}.
+     */
+    private long admitEncodedEmail(String query, int from, int to) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            int c = query.charAt(i);
+            if (c == '+') {
+                c = ' ';
+            } else if (c == '%' && i + 2 < to && FormParams.hex(query.charAt(i + 1)) >= 0
+                    && FormParams.hex(query.charAt(i + 2)) >= 0) {
+                c = FormParams.hex(query.charAt(i + 1)) << 4 | FormParams.hex(query.charAt(i + 2));
+                i += 2;
+            }
+            hash = (hash ^ c) * 0x01000193;
+        }
+        return charge(hash);
+    }
+
+    private long admitEncodedEmail(ByteBuffer buffer, int from, int to) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            int c = buffer.get(i) & 0xFF;
+            if (c == '+') {
+                c = ' ';
+            } else if (c == '%' && i + 2 < to && FormParams.hex(buffer.get(i + 1)) >= 0
+                    && FormParams.hex(buffer.get(i + 2)) >= 0) {
+                c = FormParams.hex(buffer.get(i + 1)) << 4 | FormParams.hex(buffer.get(i + 2));
+                i += 2;
+            }
+            hash = (hash ^ c) * 0x01000193;
+        }
+        return charge(hash);
+    }
+
+    private long charge(int hash) {
+        long wait = acquire(emailBuckets, (hash ^ hash >>> 16) & EMAIL_BUCKETS - 1, emailInterval, emailTolerance);
+        if (wait > 0) {
+            rejectedByEmail.increment();
+        }
+        return wait;
+    }
+
+    public long admitGlobal() {
+        if (globalBuckets == null) {
+            return 0;
+        }
+        int stripe = (int) mix(Thread.currentThread().getId()) & stripes - 1;
+        long wait = acquire(globalBuckets, stripe * LONGS_PER_LINE, globalInterval, globalTolerance);
+        if (wait > 0) {
+            rejectedGlobally.increment();
+        }
+        return wait;
+    }
+
+    /**
+     * Whole seconds to put in {@code Retry-After} for a wait of {@code nanos}, at least one.
+     */
+    public static long retryAfterSeconds(long nanos) {
+        return Math.max(1, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Appends the rejection counters in the Prometheus text format.
+     */
+    public void writeTo(StringBuilder out) {
+        out.append("# HELP quiz_admission_rejected_total Requests turned away with 429 before parsing.\n")
+                .append("# TYPE quiz_admission_rejected_total counter\n")
+                .append("quiz_admission_rejected_total{limit=\"email\"} ").append(rejectedByEmail.sum()).append('\n')
+                .append("quiz_admission_rejected_total{limit=\"global\"} ").append(rejectedGlobally.sum()).append('\n');
+    }
+
+    private long acquire(AtomicLongArray buckets, int index, long interval, long tolerance) {
+        long now = System.nanoTime() - epoch;
+        while (true) {
+            long arrival = buckets.get(index);
+            long from = Math.max(arrival, now);
+            long ahead = from - now;
+            if (ahead > tolerance) {
+                return ahead - tolerance;
+            }
+            if (buckets.compareAndSet(index, arrival, from + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns where the value of parameter {@code name} starts in the raw query, or {@code -1}.
+     */
+    private static int valueOf(String query, String name) {
+        int at = 0;
+        while (at <= query.length()) {
+            int end = at + name.length();
+            if (query.startsWith(name, at) && end < query.length() && query.charAt(end) == '=') {
+                return at + name.length() + 1;
+            }
+            int next = query.indexOf('&', at);
+            if (next < 0) {
+                return -1;
+            }
+            at = next + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns where the value of parameter {@code name} starts in the raw query {@code buffer[from, to)}, or
+     * {@code -1}; {@code name} is ASCII.
+     */
+    private static int valueOf(ByteBuffer buffer, int from, int to, String name) {
+        int at = from;
+        while (at < to) {
+            int end = at + name.length();
+            if (end < to && buffer.get(end) == '=' && startsWith(buffer, at, name)) {
+                return end + 1;
+            }
+            while (at < to && buffer.get(at) != '&') {
+                at++;
+            }
+            at++;
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int at, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (buffer.get(at + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long interval(double rate) {
+        return rate > 0 ? Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate)) : 0;
+    }
+
+    private static long mix(long value) {
+        value *= 0x9E3779B97F4A7C15L;
+        return value ^ value >>> 32;
+    }
+}
@@ -0,0 +1,296 @@
+package pro.knoweledgecity;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Answer check compiled once per question and evaluated directly on the submitted UTF-8 bytes.
+ *
+ * <p>The expected answer selects the matching mode:
+ * <ul>
+ *     <li>{@code true}/{@code false} accept {@code yes}/{@code no} as synonyms;</li>
+ *     <li>integers compare by value, so {@code 42}, {@code +42} and {@code 042} are the same answer;</li>
+ *     <li>anything else compares ASCII case-insensitively with surrounding whitespace trimmed and inner
+ *     whitespace runs folded to one space.</li>
+ * </ul>
+ * A blank submission never matches. Matching does not allocate.
+ *
+ * <p>A compiled matcher can also be stored as a kind byte followed by its payload (the folded text, or the number
+ * as a long in the buffer's byte order) and evaluated in place with
+ * {@link #matches(ByteBuffer, int, int, byte[], int, int)}; this is how {@link QuestionBank} keeps millions of
+ * answers without one object per question.
+ */
+public abstract class AnswerMatcher {
+    private static final int MAX_NUMERIC_DIGITS = 18;
+    private static final byte[] TRUE = ascii("true");
+    private static final byte[] YES = ascii("yes");
+    private static final byte[] FALSE = ascii("false");
+    private static final byte[] NO = ascii("no");
+
+    static final byte KIND_TEXT = 0;
+    static final byte KIND_TRUE = 1;
+    static final byte KIND_FALSE = 2;
+    static final byte KIND_NUMERIC = 3;
+
+    private AnswerMatcher() {
+    }
+
+    public static AnswerMatcher compile(String expected) {
+        byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+        int start = skipLeading(bytes, 0, bytes.length);
+        int end = skipTrailing(bytes, start, bytes.length);
+        if (equalsFolded(bytes, start, end, TRUE)) {
+            return new Synonyms(TRUE, YES);
+        }
+        if (equalsFolded(bytes, start, end, FALSE)) {
+            return new Synonyms(FALSE, NO);
+        }
+        if (isInteger(bytes, start, end)) {
+            return new Numeric(parseInteger(bytes, start, end));
+        }
+        return new Text(fold(bytes, start, end));
+    }
+
+    public final boolean matches(byte[] buf, int off, int len) {
+        int start = skipLeading(buf, off, off + len);
+        int end = skipTrailing(buf, start, off + len);
+        return start < end && matchesTrimmed(buf, start, end);
+    }
+
+    public final boolean matches(byte[] answer) {
+        return matches(answer, 0, answer.length);
+    }
+
+    /**
+     * Evaluates the encoded matcher stored in {@code encoded[from, to)} against the submitted bytes.
+     */
+    static boolean matches(ByteBuffer encoded, int from, int to, byte[] buf, int off, int len) {
+        int start = skipLeading(buf, off, off + len);
+        int end = skipTrailing(buf, start, off + len);
+        if (start == end) {
+            return false;
+        }
+        switch (encoded.get(from)) {
+            case KIND_TRUE:
+                return equalsFolded(buf, start, end, TRUE) || equalsFolded(buf, start, end, YES);
+            case KIND_FALSE:
+                return equalsFolded(buf, start, end, FALSE) || equalsFolded(buf, start, end, NO);
+            case KIND_NUMERIC:
+                return isInteger(buf, start, end) && parseInteger(buf, start, end) == encoded.getLong(from + 1);
+            default:
+                return matchesFolded(encoded, from + 1, to, buf, start, end);
+        }
+    }
+
+    abstract boolean matchesTrimmed(byte[] buf, int start, int end);
+
+    /**
+     * Number of bytes {@link #encodeTo(ByteBuffer)} writes.
+     */
+    abstract int encodedLength();
+
+    abstract void encodeTo(ByteBuffer out);
+
+    private static final class Synonyms extends AnswerMatcher {
+        private final byte[] canonical;
+        private final byte[] synonym;
+
+        Synonyms(byte[] canonical, byte[] synonym) {
+            this.canonical = canonical;
+            this.synonym = synonym;
+        }
+
+        @Override
+        boolean matchesTrimmed(byte[] buf, int start, int end) {
+            return equalsFolded(buf, start, end, canonical) || equalsFolded(buf, start, end, synonym);
+        }
+
+        @Override
+        int encodedLength() {
+            return 1;
+        }
+
+        @Override
+        void encodeTo(ByteBuffer out) {
+            out.put(canonical == TRUE ? KIND_TRUE : KIND_FALSE);
+        }
+    }
+
+    private static final class Numeric extends AnswerMatcher {
+        private final long value;
+
+        Numeric(long value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean matchesTrimmed(byte[] buf, int start, int end) {
+            return isInteger(buf, start, end) && parseInteger(buf, start, end) == value;
+        }
+
+        @Override
+        int encodedLength() {
+            return 1 + Long.BYTES;
+        }
+
+        @Override
+        void encodeTo(ByteBuffer out) {
+            out.put(KIND_NUMERIC).putLong(value);
+        }
+    }
+
+    private static final class Text extends AnswerMatcher {
+        private final byte[] folded;
+
+        Text(byte[] folded) {
+            this.folded = folded;
+        }
+
+        @Override
+        boolean matchesTrimmed(byte[] buf, int start, int end) {
+            byte[] expected = folded;
+            int j = 0;
+            int i = start;
+            while (i < end) {
+                if (j == expected.length) {
+                    return false;
+                }
+                byte b = buf[i];
+                if (isWhitespace(b)) {
+                    if (expected[j] != ' ') {
+                        return false;
+                    }
+                    do {
+                        i++;
+                    } while (isWhitespace(buf[i]));
+                } else {
+                    if (expected[j] != toLower(b)) {
+                        return false;
+                    }
+                    i++;
+                }
+                j++;
+            }
+            return j == expected.length;
+        }
+
+        @Override
+        int encodedLength() {
+            return 1 + folded.length;
+        }
+
+        @Override
+        void encodeTo(ByteBuffer out) {
+            out.put(KIND_TEXT).put(folded);
+        }
+    }
+
+    /**
+     * {@link Text#matchesTrimmed} against folded text stored in {@code expected[from, to)}, kept separate so the
+     * compiled matcher stays a plain array loop.
+     */
+    private static boolean matchesFolded(ByteBuffer expected, int from, int to, byte[] buf, int start, int end) {
+        int j = from;
+        int i = start;
+        while (i < end) {
+            if (j == to) {
+                return false;
+            }
+            byte b = buf[i];
+            if (isWhitespace(b)) {
+                if (expected.get(j) != ' ') {
+                    return false;
+                }
+                do {
+                    i++;
+                } while (isWhitespace(buf[i]));
+            } else {
+                if (expected.get(j) != toLower(b)) {
+                    return false;
+                }
+                i++;
+            }
+            j++;
+        }
+        return j == to;
+    }
+
+    private static boolean isInteger(byte[] buf, int start, int end) {
+        int i = start < end && (buf[start] == '+' || buf[start] == '-') ? start + 1 : start;
+        int digits = end - i;
+        if (digits == 0 || digits > MAX_NUMERIC_DIGITS) {
+            return false;
+        }
+        for (; i < end; i++) {
+            if (buf[i] < '0' || buf[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseInteger(byte[] buf, int start, int end) {
+        boolean negative = buf[start] == '-';
+        int i = buf[start] == '+' || negative ? start + 1 : start;
+        long value = 0;
+        for (; i < end; i++) {
+            value = value * 10 + (buf[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean equalsFolded(byte[] buf, int start, int end, byte[] lowerAscii) {
+        if (end - start != lowerAscii.length) {
+            return false;
+        }
+        for (int i = 0; i < lowerAscii.length; i++) {
+            if (toLower(buf[start + i]) != lowerAscii[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] fold(byte[] buf, int start, int end) {
+        byte[] out = new byte[end - start];
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buf[i];
+            if (isWhitespace(b)) {
+                if (out[n - 1] != ' ') {
+                    out[n++] = ' ';
+                }
+            } else {
+                out[n++] = toLower(b);
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int skipLeading(byte[] buf, int start, int end) {
+        while (start < end && isWhitespace(buf[start])) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int skipTrailing(byte[] buf, int start, int end) {
+        while (end > start && isWhitespace(buf[end - 1])) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+
+    private static byte toLower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,322 @@
+package pro.knoweledgecity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link MappedJournal} that is periodically replaced by a {@link SessionSnapshot}, so that startup loads one
+ * snapshot and replays only the events since, instead of the whole history.
+ *
+ * <p>Journals come in generations next to the base path: generation 0 is the base path itself, as written by a
+ * plain {@link MappedJournal}, and generation {@code n} is {@code base.n}. The snapshot is {@code base.snapshot}.
+ * A checkpoint opens the next generation and switches appends to it, writes the snapshot in the background
+ * naming that generation, and then deletes the older ones. Appends never wait for it: those still landing in
+ * the old generation record changes made before the switch, which the snapshot therefore holds, and the old
+ * generation is closed only once every such append has finished. A crash before the snapshot is renamed into
+ * place leaves the previous snapshot and every generation after it; recovery replays all of them in order.
+ */
+public final class CheckpointedJournal implements SessionJournal, AutoCloseable {
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final long DRAIN_PARK_NANOS = 100_000;
+    private static final System.Logger LOG = System.getLogger(CheckpointedJournal.class.getName());
+
+    private final Path base;
+    private final SessionStore store;
+    private final FsyncPolicy policy;
+    private final long fsyncMillis;
+    private final ScheduledExecutorService checkpointer;
+    private final Object checkpointLock = new Object();
+    private volatile Generation current;
+    // Guarded by checkpointLock
+    private long generation;
+    private final long recoveredEvents;
+    private final AtomicLong checkpoints = new AtomicLong();
+    private final AtomicLong failedCheckpoints = new AtomicLong();
+    private volatile long lastCheckpointNanos;
+    // The generation this thread last appended to and has not waited for
+    private final ThreadLocal<Generation> appended = new ThreadLocal<>();
+
+    private CheckpointedJournal(Path base, SessionStore store, FsyncPolicy policy, long fsyncMillis,
+                                long snapshotMillis) {
+        this.base = base;
+        this.store = store;
+        this.policy = policy;
+        this.fsyncMillis = fsyncMillis;
+        Path snapshot = snapshotPath();
+        long first = Files.exists(snapshot) ? SessionSnapshot.load(snapshot, store) : 0;
+        List<Long> generations = generations();
+        long events = 0;
+        MappedJournal last = null;
+        for (long found : generations) {
+            if (found < first) {
+                delete(found);
+                continue;
+            }
+            if (last != null) {
+                last.close();
+            }
+            last = MappedJournal.open(path(found), policy, fsyncMillis);
+            events += last.replayEvents(store);
+            generation = found;
+        }
+        store.rankAll();
+        this.recoveredEvents = events;
+        if (last == null) {
+            generation = first;
+            last = MappedJournal.open(path(first), policy, fsyncMillis);
+        }
+        this.current = new Generation(last);
+        if (snapshotMillis > 0) {
+            checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-checkpointer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkpointer.scheduleWithFixedDelay(this::checkpointQuietly, snapshotMillis, snapshotMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            checkpointer = null;
+        }
+    }
+
+    /**
+     * Recovers the sessions under {@code base} into the empty {@code store}, from the newest snapshot and the
+     * journals after it, and opens the journal for appends. {@code snapshotMillis} is the delay between
+     * checkpoints, {@code 0} for none but those requested with {@link #checkpoint()}.
+     */
+    public static CheckpointedJournal open(Path base, SessionStore store, FsyncPolicy policy, long fsyncMillis,
+                                           long snapshotMillis) {
+        return new CheckpointedJournal(base, store, policy, fsyncMillis, snapshotMillis);
+    }
+
+    /**
+     * Number of journal events replayed on top of the snapshot at startup.
+     */
+    public long recoveredEvents() {
+        return recoveredEvents;
+    }
+
+    /**
+     * Switches appends to a new journal generation, snapshots the store and deletes the journals the snapshot
+     * replaces. Returns the number of users written. Requests keep being served meanwhile.
+     */
+    public long checkpoint() {
+        synchronized (checkpointLock) {
+            long started = System.nanoTime();
+            try {
+                long users = switchAndSnapshot();
+                lastCheckpointNanos = System.nanoTime() - started;
+                checkpoints.incrementAndGet();
+                return users;
+            } catch (RuntimeException e) {
+                failedCheckpoints.incrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Appends the checkpoint counters in the Prometheus text format.
+     */
+    @Override
+    public void writeTo(StringBuilder out) {
+        out.append("# HELP quiz_journal_checkpoints_total Journal checkpoints by result.\n")
+                .append("# TYPE quiz_journal_checkpoints_total counter\n")
+                .append("quiz_journal_checkpoints_total{result=\"ok\"} ").append(checkpoints.get()).append('\n')
+                .append("quiz_journal_checkpoints_total{result=\"failed\"} ").append(failedCheckpoints.get())
+                .append('\n')
+                .append("# HELP quiz_journal_checkpoint_last_seconds Duration of the last successful checkpoint.\n")
+                .append("# TYPE quiz_journal_checkpoint_last_seconds gauge\n")
+                .append("quiz_journal_checkpoint_last_seconds ").append(lastCheckpointNanos / 1e9).append('\n');
+    }
+
+    // Runs under checkpointLock
+    private long switchAndSnapshot() {
+        long next = generation + 1;
+        Generation previous = current;
+        current = new Generation(MappedJournal.open(path(next), policy, fsyncMillis));
+        generation = next;
+        long users;
+        try {
+            users = SessionSnapshot.write(store, next, snapshotPath());
+        } finally {
+            previous.drainAndClose();
+        }
+        for (long found : generations()) {
+            if (found < next) {
+                delete(found);
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public void login(int userId, String email) {
+        Generation target = enter();
+        try {
+            target.journal.login(userId, email);
+        } finally {
+            target.appending.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void question(int userId, int questionId) {
+        Generation target = enter();
+        try {
+            target.journal.question(userId, questionId);
+        } finally {
+            target.appending.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void answer(int userId, int questionId) {
+        Generation target = enter();
+        try {
+            target.journal.answer(userId, questionId);
+        } finally {
+            target.appending.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void reset(int userId) {
+        Generation target = enter();
+        try {
+            target.journal.reset(userId);
+        } finally {
+            target.appending.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void awaitDurable() {
+        Generation target = appended.get();
+        if (target != null) {
+            appended.remove();
+            target.journal.awaitDurable();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (checkpointer != null) {
+            checkpointer.shutdownNow();
+        }
+        synchronized (checkpointLock) {
+            current.drainAndClose();
+        }
+    }
+
+    /**
+     * Counts an append into the current generation, which the caller must leave by decrementing its count.
+     */
+    private Generation enter() {
+        while (true) {
+            Generation target = current;
+            target.appending.incrementAndGet();
+            // Seen after the increment, a generation still current has not been drained yet and will wait for it
+            if (target == current) {
+                Generation previous = appended.get();
+                appended.set(target);
+                if (previous != null && previous != target) {
+                    // Only across a checkpoint: the older generation is not closed, and forced, until much later
+                    try {
+                        previous.journal.awaitDurable();
+                    } catch (RuntimeException e) {
+                        target.appending.decrementAndGet();
+                        throw e;
+                    }
+                }
+                return target;
+            }
+            target.appending.decrementAndGet();
+        }
+    }
+
+    private void checkpointQuietly() {
+        try {
+            long users = checkpoint();
+            LOG.log(System.Logger.Level.INFO, "Snapshot of {0} users written in {1} ms",
+                    users, lastCheckpointNanos / 1_000_000);
+        } catch (RuntimeException e) {
+            // The journal generations the failed snapshot would have replaced are kept; the next one retries
+            LOG.log(System.Logger.Level.WARNING, "Snapshot of " + base + " failed; retrying at the next checkpoint", e);
+        }
+    }
+
+    /**
+     * One journal generation and the number of appends still writing to it.
+     */
+    private static final class Generation {
+        final MappedJournal journal;
+        final AtomicInteger appending = new AtomicInteger();
+
+        Generation(MappedJournal journal) {
+            this.journal = journal;
+        }
+
+        /**
+         * Waits for the appends that entered before the generation was replaced, then closes its journal.
+         */
+        void drainAndClose() {
+            while (appending.get() > 0) {
+                LockSupport.parkNanos(DRAIN_PARK_NANOS);
+            }
+            journal.close();
+        }
+    }
+
+    private Path path(long generation) {
+        return generation == 0 ? base : base.resolveSibling(base.getFileName() + "." + generation);
+    }
+
+    private Path snapshotPath() {
+        return base.resolveSibling(base.getFileName() + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Journal generations on disk, oldest first.
+     */
+    private List<Long> generations() {
+        String prefix = base.getFileName() + ".";
+        List<Long> generations = new ArrayList<>();
+        Path directory = base.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.equals(base.getFileName().toString())) {
+                    generations.add(0L);
+                } else if (name.length() > prefix.length() && name.startsWith(prefix)
+                        && name.chars().skip(prefix.length()).allMatch(c -> c >= '0' && c <= '9')) {
+                    generations.add(Long.parseLong(name.substring(prefix.length())));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journals in " + directory, e);
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    private void delete(long generation) {
+        try {
+            Files.deleteIfExists(path(generation));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete journal " + path(generation), e);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package pro.knoweledgecity;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Concurrent dictionary from email to the dense user id assigned at login, with no object per entry.
+ *
+ * <p>Emails are copied once, as UTF-8, into an append-only arena of byte pages; each id's arena position and
+ * length are packed into a {@code long}. The table is open-addressed with linear probing and holds
+ * {@code hash << 32 | id + 1} per slot ({@code 0} is empty), so a lookup hashes the raw bytes, walks a few adjacent
+ * longs and compares bytes in the arena only on a full hash match. Strings are hashed char by char without being
+ * encoded as long as they are ASCII, which every valid email is.
+ *
+ * <p>Lookups never lock. {@link #put} must be called by one thread at a time; it fills the arena and the id's
+ * position before publishing the slot with a release store, so a reader that finds the slot sees the bytes. A
+ * growing table is rebuilt aside and swapped in; readers still probing the old one miss only the emails added
+ * after they started.
+ */
+final class EmailDictionary {
+    static final int MAX_BYTES = 0xFFFF;
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int ARENA_PAGE_BITS = 16;
+    private static final int ARENA_PAGE = 1 << ARENA_PAGE_BITS;
+    private static final int ID_PAGE_BITS = 12;
+    private static final int ID_PAGE_MASK = (1 << ID_PAGE_BITS) - 1;
+
+    private volatile long[] table = new long[1024];
+    private volatile byte[][] arena = new byte[16][];
+    // Per id: arena position << 16 | length, 0 when the id was never assigned
+    private volatile long[][] positions = new long[16][];
+    private volatile int size;
+    private long arenaEnd;
+
+    /**
+     * Returns the id of {@code email}, or {@code -1} when it was never added.
+     */
+    int find(String email) {
+        int length = email.length();
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            char c = email.charAt(i);
+            if (c >= 0x80) {
+                byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+                return find(bytes, 0, bytes.length);
+            }
+            hash = (hash ^ c) * 0x01000193;
+        }
+        long[] table = this.table;
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = i + 1 & mask) {
+            long slot = (long) SLOT.getAcquire(table, i);
+            if (slot == 0) {
+                return -1;
+            }
+            if ((int) (slot >>> 32) == hash && matches((int) slot - 1, email)) {
+                return (int) slot - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the UTF-8 email in {@code bytes[offset, offset + length)}, or {@code -1}.
+     */
+    int find(byte[] bytes, int offset, int length) {
+        int hash = hash(bytes, offset, length);
+        long[] table = this.table;
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = i + 1 & mask) {
+            long slot = (long) SLOT.getAcquire(table, i);
+            if (slot == 0) {
+                return -1;
+            }
+            if ((int) (slot >>> 32) == hash && matches((int) slot - 1, bytes, offset, length)) {
+                return (int) slot - 1;
+            }
+        }
+    }
+
+    /**
+     * Maps {@code email} to {@code id}, replacing any id it had. Callers serialize calls and never reuse an id.
+     */
+    void put(String email, int id) {
+        byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+        put(bytes, 0, bytes.length, id);
+    }
+
+    /**
+     * Like {@link #put(String, int)}, for the UTF-8 email in {@code bytes[offset, offset + length)}.
+     */
+    void put(byte[] bytes, int offset, int length, int id) {
+        if (length > MAX_BYTES) {
+            throw new IllegalArgumentException("Email longer than " + MAX_BYTES + " bytes");
+        }
+        int hash = hash(bytes, offset, length);
+        int existing = find(bytes, offset, length);
+        long position = existing >= 0 ? position(existing) >>> 16 : append(bytes, offset, length);
+        long[][] positions = this.positions;
+        int page = id >>> ID_PAGE_BITS;
+        if (page >= positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(positions.length * 2, page + 1));
+        }
+        if (positions[page] == null) {
+            positions[page] = new long[ID_PAGE_MASK + 1];
+        }
+        positions[page][id & ID_PAGE_MASK] = position << 16 | length;
+        this.positions = positions;
+        if (existing < 0 && ++size * 2 > table.length) {
+            table = rehash(table.length * 2);
+        }
+        long[] table = this.table;
+        int mask = table.length - 1;
+        int i = spread(hash) & mask;
+        while (true) {
+            long slot = (long) SLOT.getAcquire(table, i);
+            if (slot == 0 || (int) slot - 1 == existing && (int) (slot >>> 32) == hash) {
+                break;
+            }
+            i = i + 1 & mask;
+        }
+        SLOT.setRelease(table, i, (long) hash << 32 | id + 1L);
+    }
+
+    /**
+     * Grows the table once to hold {@code entries} emails, so that adding that many known in advance never rehashes.
+     * Same caller rules as {@link #put}.
+     */
+    void reserve(int entries) {
+        int capacity = Integer.highestOneBit(Math.max(1, entries) * 2 - 1) << 1;
+        if (capacity > table.length) {
+            table = rehash(capacity);
+        }
+    }
+
+    /**
+     * Whether {@code id} was assigned to an email.
+     */
+    boolean contains(int id) {
+        return id >= 0 && position(id) != 0;
+    }
+
+    /**
+     * Length in bytes of the email of an assigned id.
+     */
+    int emailLength(int id) {
+        return (int) position(id) & 0xFFFF;
+    }
+
+    /**
+     * Copies the UTF-8 bytes of the email of an assigned id into {@code target}.
+     */
+    void copyEmail(int id, ByteBuffer target) {
+        long position = position(id);
+        long start = position >>> 16;
+        target.put(arena[(int) (start >>> ARENA_PAGE_BITS)], (int) start & ARENA_PAGE - 1, (int) position & 0xFFFF);
+    }
+
+    /**
+     * Decodes the email of an assigned id.
+     */
+    String email(int id) {
+        long position = position(id);
+        int length = (int) position & 0xFFFF;
+        long start = position >>> 16;
+        return new String(arena[(int) (start >>> ARENA_PAGE_BITS)], (int) start & ARENA_PAGE - 1, length,
+                StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private long position(int id) {
+        long[][] positions = this.positions;
+        int page = id >>> ID_PAGE_BITS;
+        return page < positions.length && positions[page] != null ? positions[page][id & ID_PAGE_MASK] : 0;
+    }
+
+    /**
+     * Copies the bytes to the arena and returns where they start; an email never straddles two pages. Positions
+     * start at 1 so that a packed position of 0 means unassigned.
+     */
+    private long append(byte[] bytes, int offset, int length) {
+        long start = arenaEnd == 0 ? 1 : arenaEnd;
+        if ((start & ARENA_PAGE - 1) + length > ARENA_PAGE) {
+            start = ((start >>> ARENA_PAGE_BITS) + 1) << ARENA_PAGE_BITS;
+        }
+        byte[][] arena = this.arena;
+        int page = (int) (start >>> ARENA_PAGE_BITS);
+        if (page >= arena.length) {
+            arena = Arrays.copyOf(arena, arena.length * 2);
+        }
+        if (arena[page] == null) {
+            arena[page] = new byte[ARENA_PAGE];
+        }
+        System.arraycopy(bytes, offset, arena[page], (int) start & ARENA_PAGE - 1, length);
+        this.arena = arena;
+        arenaEnd = start + length;
+        return start;
+    }
+
+    private long[] rehash(int capacity) {
+        long[] old = table;
+        long[] bigger = new long[capacity];
+        int mask = capacity - 1;
+        for (long slot : old) {
+            if (slot != 0) {
+                int i = spread((int) (slot >>> 32)) & mask;
+                while (bigger[i] != 0) {
+                    i = i + 1 & mask;
+                }
+                bigger[i] = slot;
+            }
+        }
+        return bigger;
+    }
+
+    private boolean matches(int id, String email) {
+        long position = position(id);
+        int length = (int) position & 0xFFFF;
+        if (length != email.length()) {
+            return false;
+        }
+        long start = position >>> 16;
+        byte[] page = arena[(int) (start >>> ARENA_PAGE_BITS)];
+        int from = (int) start & ARENA_PAGE - 1;
+        for (int i = 0; i < length; i++) {
+            if (page[from + i] != email.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(int id, byte[] bytes, int offset, int length) {
+        long position = position(id);
+        if (((int) position & 0xFFFF) != length) {
+            return false;
+        }
+        long start = position >>> 16;
+        int from = (int) start & ARENA_PAGE - 1;
+        return Arrays.equals(arena[(int) (start >>> ARENA_PAGE_BITS)], from, from + length,
+                bytes, offset, offset + length);
+    }
+
+    /**
+     * FNV-1a over the bytes; for ASCII it equals the char loop in {@link #find(String)}.
+     */
+    static int hash(byte[] bytes, int offset, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ bytes[i] & 0xFF) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ hash >>> 16;
+    }
+}
@@ -0,0 +1,92 @@
+package pro.knoweledgecity;
+
+/**
+ * Accepts plain {@code local@domain.tld} addresses within the RFC 5321 length limits.
+ *
+ * <p>The accepted language is that of
+ * {@code [A-Za-z0-9._%+-]{1,64}@[A-Za-z0-9-]+(\.[A-Za-z0-9-]+)*\.[A-Za-z]{2,}} up to {@value #MAX_LENGTH}
+ * characters: one to 64 local characters, an {@code @}, then at least two non-empty dot-separated labels of which
+ * the last is two or more letters. It is checked in one pass by a small state machine packed into an {@code int},
+ * without a regex and without allocating, over a {@link String} or directly over the parameter's bytes.
+ */
+public final class EmailValidator {
+    static final int MAX_LOCAL_LENGTH = 64;
+    static final int MAX_LENGTH = 254;
+
+    // Character classes, for ASCII only; everything else is rejected
+    private static final byte LOCAL = 1;
+    private static final byte LABEL = 2;
+    private static final byte LETTER = 4;
+    private static final byte[] CLASSES = new byte[128];
+
+    // State: local length in bits 0-6, then flags; the label length saturates at 2 since only "at least 2" matters
+    private static final int REJECT = -1;
+    private static final int IN_DOMAIN = 1 << 7;
+    private static final int LABEL_LENGTH_SHIFT = 8;
+    private static final int LABEL_LENGTH = 3 << LABEL_LENGTH_SHIFT;
+    private static final int LABEL_LETTERS = 1 << 10;
+    private static final int DOTTED = 1 << 11;
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            boolean letter = c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z';
+            boolean label = letter || c >= '0' && c <= '9' || c == '-';
+            boolean local = label || c == '.' || c == '_' || c == '%' || c == '+';
+            CLASSES[c] = (byte) ((local ? LOCAL : 0) | (label ? LABEL : 0) | (letter ? LETTER : 0));
+        }
+    }
+
+    private EmailValidator() {
+    }
+
+    public static boolean isValid(String email) {
+        if (email == null || email.length() > MAX_LENGTH) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0, length = email.length(); i < length && state != REJECT; i++) {
+            state = step(state, email.charAt(i));
+        }
+        return accepts(state);
+    }
+
+    /**
+     * Validates the address in {@code bytes[offset, offset + length)}; non-ASCII bytes are rejected like any other
+     * character outside the grammar.
+     */
+    public static boolean isValid(byte[] bytes, int offset, int length) {
+        if (length > MAX_LENGTH) {
+            return false;
+        }
+        int state = 0;
+        for (int i = offset, end = offset + length; i < end && state != REJECT; i++) {
+            state = step(state, bytes[i] & 0xFF);
+        }
+        return accepts(state);
+    }
+
+    private static int step(int state, int c) {
+        int classes = c < 128 ? CLASSES[c] : 0;
+        if ((state & IN_DOMAIN) == 0) {
+            if (c == '@') {
+                return state == 0 ? REJECT : IN_DOMAIN | LABEL_LETTERS;
+            }
+            return (classes & LOCAL) != 0 && state < MAX_LOCAL_LENGTH ? state + 1 : REJECT;
+        }
+        if (c == '.') {
+            return (state & LABEL_LENGTH) == 0 ? REJECT : (state & ~LABEL_LENGTH) | LABEL_LETTERS | DOTTED;
+        }
+        if ((classes & LABEL) == 0) {
+            return REJECT;
+        }
+        if ((state & LABEL_LENGTH) != LABEL_LENGTH) {
+            state += 1 << LABEL_LENGTH_SHIFT;
+        }
+        return (classes & LETTER) != 0 ? state : state & ~LABEL_LETTERS;
+    }
+
+    private static boolean accepts(int state) {
+        return state != REJECT && (state & IN_DOMAIN) != 0 && (state & DOTTED) != 0
+                && (state & LABEL_LETTERS) != 0 && (state & LABEL_LENGTH) >>> LABEL_LENGTH_SHIFT >= 2;
+    }
+}
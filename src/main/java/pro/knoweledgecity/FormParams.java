@@ -0,0 +1,57 @@
+package pro.knoweledgecity;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes {@code application/x-www-form-urlencoded} parameters from the query string and the request body.
+ */
+public final class FormParams {
+
+    private FormParams() {
+    }
+
+    /**
+     * Merges query and body parameters; the first occurrence of a name wins.
+     */
+    public static Map<String, String> parse(String rawQuery, String body) {
+        Map<String, String> params = new HashMap<>();
+        parseInto(rawQuery, params);
+        parseInto(body, params);
+        return params;
+    }
+
+    /**
+     * Value of a hexadecimal digit, or {@code -1}.
+     */
+    static int hex(int c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return c >= 'A' && c <= 'F' ? c - 'A' + 10 : -1;
+    }
+
+    private static void parseInto(String encoded, Map<String, String> params) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = decode(eq < 0 ? pair : pair.substring(0, eq));
+            String value = eq < 0 ? "" : decode(pair.substring(eq + 1));
+            params.putIfAbsent(name, value);
+        }
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
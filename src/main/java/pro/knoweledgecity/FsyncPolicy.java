@@ -0,0 +1,20 @@
+package pro.knoweledgecity;
+
+/**
+ * When appended journal records are forced to the storage device.
+ */
+public enum FsyncPolicy {
+    /**
+     * Every append forces its own records before {@link SessionJournal#awaitDurable()} returns.
+     */
+    PER_WRITE,
+    /**
+     * Appends wait for a force in {@link SessionJournal#awaitDurable()}, and concurrent appenders share one force
+     * (group commit).
+     */
+    GROUPED,
+    /**
+     * Appends return immediately and a background thread forces the journal at a fixed interval.
+     */
+    PERIODIC
+}
@@ -0,0 +1,211 @@
+package pro.knoweledgecity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Ranking of logged-in users by score, updated as scores change and queried without a global lock.
+ *
+ * <p>Scores are bounded by the number of questions, so users are kept in one bucket per score. The number of users
+ * per score lives in Fenwick trees of atomic counters, one per stripe so that concurrent updates from different
+ * threads rarely touch the same counters; moving a user between buckets and counting the users above a score are
+ * both O(stripes * log(questions)). Each bucket also holds its members' ids in login order, in a skip list, so
+ * {@link #top(int)} reads only as many users as it returns and decodes only their emails.
+ *
+ * <p>A user's bucket is changed under one of {@value #LOCKS} monitors picked by id, which keeps one user from
+ * landing in two buckets when answers for the same email race. Ranks use standard competition ranking: one plus
+ * the number of users with a strictly higher score.
+ */
+public final class Leaderboard {
+    private static final int MAX_COUNTERS = 1 << 22;
+    private static final int LONGS_PER_LINE = 8;
+    private static final int LOCKS = 1024;
+
+    private final int maxScore;
+    private final int positions;
+    private final int stripes;
+    private final int stride;
+    private final AtomicLongArray counts;
+    private final AtomicReferenceArray<ConcurrentSkipListMap<Integer, Boolean>> buckets;
+    private final AtomicInteger highest = new AtomicInteger();
+    private final Object[] locks = new Object[LOCKS];
+    private final IntFunction<String> emails;
+
+    /**
+     * One position in the ranking returned by {@link #top(int)}.
+     */
+    public record Entry(int rank, String email, int score) {
+    }
+
+    Leaderboard(int maxScore, IntFunction<String> emails) {
+        this.maxScore = maxScore;
+        this.emails = emails;
+        for (int i = 0; i < LOCKS; i++) {
+            locks[i] = new Object();
+        }
+        this.positions = maxScore + 1;
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        // Pad every stripe to whole cache lines so that stripes do not share them
+        this.stride = (positions + 1 + LONGS_PER_LINE - 1) / LONGS_PER_LINE * LONGS_PER_LINE;
+        while (stripes > 1 && (long) stripes * stride > MAX_COUNTERS) {
+            stripes >>>= 1;
+        }
+        this.stripes = stripes;
+        this.counts = new AtomicLongArray(stripes * stride);
+        this.buckets = new AtomicReferenceArray<>(positions);
+    }
+
+    /**
+     * Moves the user to the bucket of their current score, adding them on first use. Call after every change of
+     * the score; calls that find the score unchanged cost one monitor enter.
+     */
+    public void update(UserState user) {
+        synchronized (locks[user.id() & LOCKS - 1]) {
+            int score = Math.min(user.score(), maxScore);
+            int ranked = user.rankedScore();
+            if (score == ranked) {
+                return;
+            }
+            int stripe = stripe();
+            if (ranked >= 0) {
+                bucket(ranked).remove(user.id());
+                add(stripe, ranked + 1, -1);
+            }
+            bucket(score).put(user.id(), Boolean.TRUE);
+            add(stripe, score + 1, 1);
+            user.rankedScore(score);
+            highest.accumulateAndGet(score, Math::max);
+        }
+    }
+
+    /**
+     * Files every user of {@code store} into this empty leaderboard, as {@link #update} would one at a time. The
+     * ids are sorted into their buckets with a counting sort, each bucket is filled in ascending id order by a
+     * single thread, and the counters are updated once per bucket rather than once per user. Only used while
+     * recovering, before serving requests.
+     */
+    void addAll(SessionStore store) {
+        int limit = store.idLimit();
+        int[] scores = new int[limit];
+        int[] starts = new int[positions + 1];
+        for (int id = 0; id < limit; id++) {
+            UserState user = store.user(id);
+            int score = user == null ? -1 : Math.min(user.score(), maxScore);
+            scores[id] = score;
+            if (user != null) {
+                user.rankedScore(score);
+                starts[score + 1]++;
+            }
+        }
+        for (int score = 0; score < positions; score++) {
+            starts[score + 1] += starts[score];
+        }
+        int[] sorted = new int[starts[positions]];
+        int[] next = Arrays.copyOf(starts, positions);
+        for (int id = 0; id < limit; id++) {
+            if (scores[id] >= 0) {
+                sorted[next[scores[id]]++] = id;
+            }
+        }
+        for (int score = 0; score < positions; score++) {
+            int count = starts[score + 1] - starts[score];
+            if (count > 0) {
+                ConcurrentSkipListMap<Integer, Boolean> bucket = new ConcurrentSkipListMap<>();
+                for (int i = starts[score]; i < starts[score + 1]; i++) {
+                    bucket.put(sorted[i], Boolean.TRUE);
+                }
+                buckets.set(score, bucket);
+                add(0, score + 1, count);
+                highest.accumulateAndGet(score, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Returns the user's rank, or {@code 0} when the user was never added.
+     */
+    public int rank(UserState user) {
+        int ranked = user.rankedScore();
+        return ranked < 0 ? 0 : 1 + (int) countAbove(ranked);
+    }
+
+    /**
+     * Number of users on the board.
+     */
+    public long size() {
+        long total = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            total += prefix(stripe, positions);
+        }
+        return total;
+    }
+
+    /**
+     * Returns up to {@code limit} users from the highest score down. Ties are listed in login order.
+     */
+    public List<Entry> top(int limit) {
+        List<Entry> entries = new ArrayList<>(Math.min(limit, 64));
+        for (int score = Math.min(highest.get(), maxScore); score >= 0 && entries.size() < limit; score--) {
+            ConcurrentSkipListMap<Integer, Boolean> bucket = buckets.get(score);
+            if (bucket == null || bucket.isEmpty()) {
+                continue;
+            }
+            int rank = 1 + (int) countAbove(score);
+            for (int id : bucket.keySet()) {
+                if (entries.size() == limit) {
+                    break;
+                }
+                entries.add(new Entry(rank, emails.apply(id), score));
+            }
+        }
+        return entries;
+    }
+
+    private long countAbove(int score) {
+        long above = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            above += prefix(stripe, positions) - prefix(stripe, score + 1);
+        }
+        return above;
+    }
+
+    private ConcurrentSkipListMap<Integer, Boolean> bucket(int score) {
+        ConcurrentSkipListMap<Integer, Boolean> bucket = buckets.get(score);
+        if (bucket == null) {
+            buckets.compareAndSet(score, null, new ConcurrentSkipListMap<>());
+            bucket = buckets.get(score);
+        }
+        return bucket;
+    }
+
+    private void add(int stripe, int position, long delta) {
+        int base = stripe * stride;
+        for (int i = position; i <= positions; i += i & -i) {
+            counts.getAndAdd(base + i, delta);
+        }
+    }
+
+    private long prefix(int stripe, int position) {
+        int base = stripe * stride;
+        long sum = 0;
+        for (int i = position; i > 0; i -= i & -i) {
+            sum += counts.get(base + i);
+        }
+        return sum;
+    }
+
+    private int stripe() {
+        return (int) mix(Thread.currentThread().getId()) & (stripes - 1);
+    }
+
+    private static long mix(long value) {
+        value *= 0x9E3779B97F4A7C15L;
+        return value ^ value >>> 32;
+    }
+}
@@ -0,0 +1,145 @@
+package pro.knoweledgecity;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quiz server nodes running as child JVMs on this machine, one {@link Main} each with the current classpath, for a
+ * {@link ShardRouter} to spread users over.
+ *
+ * <p>{@link #add(int, List)} returns once the node prints that it is listening; its later output is copied to
+ * this process's standard output, prefixed with its URL. Nodes are killed by {@link #remove(String)},
+ * {@link #close()}, or when this JVM exits before it was closed.
+ */
+public final class LocalShards implements AutoCloseable {
+    private static final String LISTENING = "Quiz server listening on ";
+
+    private final Map<String, Process> nodes = new LinkedHashMap<>();
+    private final Thread shutdownHook = new Thread(this::close, "local-shards-shutdown");
+    // Guarded by this
+    private boolean hooked;
+
+    public LocalShards() {
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        hooked = true;
+    }
+
+    /**
+     * Starts {@code count} nodes on free ports with no extra JVM options and returns them.
+     */
+    public static LocalShards start(int count) {
+        LocalShards shards = new LocalShards();
+        for (int i = 0; i < count; i++) {
+            shards.add(0, List.of());
+        }
+        return shards;
+    }
+
+    /**
+     * Starts a node on {@code port} ({@code 0} for a free one), passing it {@code jvmOptions} such as
+     * {@code -Dquiz.frontend=nio}, and returns its base URL once it accepts requests.
+     */
+    public synchronized String add(int port, List<String> jvmOptions) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.add(Integer.toString(port));
+        Process process;
+        try {
+            process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start quiz server node on port " + port, e);
+        }
+        BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        StringBuilder startup = new StringBuilder();
+        try {
+            for (String line; (line = output.readLine()) != null; ) {
+                if (line.startsWith(LISTENING)) {
+                    String baseUrl = line.substring(LISTENING.length()).trim();
+                    nodes.put(baseUrl, process);
+                    copy(output, baseUrl);
+                    return baseUrl;
+                }
+                startup.append(line).append('\n');
+            }
+        } catch (IOException e) {
+            process.destroyForcibly();
+            throw new UncheckedIOException("Cannot read output of quiz server node on port " + port, e);
+        }
+        process.destroyForcibly();
+        throw new IllegalStateException("Quiz server node on port " + port + " exited before listening:\n" + startup);
+    }
+
+    /**
+     * Base URLs of the running nodes, in the order they were started.
+     */
+    public synchronized List<String> baseUrls() {
+        return List.copyOf(nodes.keySet());
+    }
+
+    /**
+     * Kills the node at {@code baseUrl} and waits for it to exit.
+     */
+    public synchronized void remove(String baseUrl) {
+        Process process = nodes.remove(baseUrl);
+        if (process == null) {
+            throw new IllegalArgumentException("Not a local shard: " + baseUrl);
+        }
+        stop(process);
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Process process : nodes.values()) {
+            stop(process);
+        }
+        nodes.clear();
+        if (hooked) {
+            hooked = false;
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException shuttingDown) {
+                // Closed by the hook itself, or while other hooks run; it finds nothing left to stop
+            }
+        }
+    }
+
+    private static void stop(Process process) {
+        process.destroy();
+        try {
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void copy(BufferedReader output, String baseUrl) {
+        Thread thread = new Thread(() -> {
+            try {
+                for (String line; (line = output.readLine()) != null; ) {
+                    System.out.println("[" + baseUrl + "] " + line);
+                }
+            } catch (IOException ignored) {
+                // The node is gone
+            }
+        }, "shard-output");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -1,7 +1,110 @@
 package pro.knoweledgecity;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 public class Main {
+    private static final int DEFAULT_PORT = 8080;
+
     public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("quiz.port", DEFAULT_PORT);
+        // -Dquiz.shards=<url>,<url>,... or -Dquiz.localShards=<n> runs a router instead of a quiz server
+        if (System.getProperty("quiz.shards") != null || Integer.getInteger("quiz.localShards", 0) > 0) {
+            route(port);
+            return;
+        }
+        String questionsPath = System.getProperty("quiz.questions");
+        QuestionBank questions = questionsPath != null
+                ? QuestionBank.open(Path.of(questionsPath)) : QuestionBank.defaultBank();
+        SessionStore sessions = new SessionStore(questions.size());
+        SessionJournal journal = SessionJournal.NONE;
+        CheckpointedJournal checkpointedJournal = null;
+        String journalPath = System.getProperty("quiz.journal");
+        // -Dquiz.frontend=nio serves from -Dquiz.nio.loops selector threads instead of a thread per request
+        boolean nio = "nio".equals(System.getProperty("quiz.frontend"));
+        if (journalPath != null) {
+            // The selector loops run the service inline, so they can only journal without waiting for a force
+            FsyncPolicy policy = FsyncPolicy.valueOf(System.getProperty("quiz.fsync",
+                    (nio ? FsyncPolicy.PERIODIC : FsyncPolicy.GROUPED).name()));
+            if (nio && policy != FsyncPolicy.PERIODIC) {
+                throw new IllegalArgumentException("-Dquiz.frontend=nio would block its event loops on -Dquiz.fsync="
+                        + policy + "; use PERIODIC or the default front end");
+            }
+            long started = System.nanoTime();
+            // -Dquiz.snapshotMillis=0 keeps appending to one journal and replays all of it on every start
+            checkpointedJournal = CheckpointedJournal.open(Path.of(journalPath), sessions, policy,
+                    Long.getLong("quiz.fsyncMillis", 100), Long.getLong("quiz.snapshotMillis", 300_000));
+            System.out.printf("Recovered %d users and %d journal events in %d ms%n",
+                    sessions.size(), checkpointedJournal.recoveredEvents(), (System.nanoTime() - started) / 1_000_000);
+            journal = checkpointedJournal;
+        }
+        AdmissionControl admission = new AdmissionControl(
+                Double.parseDouble(System.getProperty("quiz.admission.emailRate", "50")),
+                Integer.getInteger("quiz.admission.emailBurst", 100),
+                Double.parseDouble(System.getProperty("quiz.admission.globalRate", "0")),
+                Integer.getInteger("quiz.admission.globalBurst", 0));
+        QuizService service = new QuizService(questions, sessions, journal);
+        AutoCloseable server;
+        String baseUrl;
+        if (nio) {
+            NioQuizServer loops = NioQuizServer.start(port, service, admission,
+                    Integer.getInteger("quiz.nio.loops", Runtime.getRuntime().availableProcessors()));
+            server = loops;
+            baseUrl = loops.baseUrl();
+        } else {
+            QuizServer threads = QuizServer.start(port, service, admission);
+            server = threads;
+            baseUrl = threads.baseUrl();
+        }
+        CheckpointedJournal toClose = checkpointedJournal;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            if (toClose != null) {
+                toClose.close();
+            }
+        }));
+        System.out.println("Quiz server listening on " + baseUrl);
+    }
 
+    /**
+     * Routes users over the nodes listed in {@code -Dquiz.shards}, plus {@code -Dquiz.localShards} nodes started as
+     * child JVMs on the ports after the router's. Children get this JVM's other {@code quiz.*} properties, and a
+     * journal of their own next to {@code -Dquiz.journal} when it is set.
+     */
+    private static void route(int port) {
+        List<String> nodes = new ArrayList<>();
+        String listed = System.getProperty("quiz.shards");
+        if (listed != null && !listed.isBlank()) {
+            Arrays.stream(listed.split(",")).map(String::trim).filter(url -> !url.isEmpty()).forEach(nodes::add);
+        }
+        int localCount = Integer.getInteger("quiz.localShards", 0);
+        LocalShards local = new LocalShards();
+        for (int i = 0; i < localCount; i++) {
+            List<String> options = new ArrayList<>();
+            for (String name : System.getProperties().stringPropertyNames()) {
+                if (name.startsWith("quiz.") && !name.equals("quiz.shards") && !name.equals("quiz.localShards")
+                        && !name.equals("quiz.port") && !name.equals("quiz.journal")) {
+                    options.add("-D" + name + "=" + System.getProperty(name));
+                }
+            }
+            String journalPath = System.getProperty("quiz.journal");
+            if (journalPath != null) {
+                options.add("-Dquiz.journal=" + journalPath + ".node" + i);
+            }
+            nodes.add(local.add(port == 0 ? 0 : port + 1 + i, options));
+        }
+        ShardRing ring = new ShardRing(nodes, Integer.getInteger("quiz.virtualNodes", ShardRing.DEFAULT_VIRTUAL_NODES));
+        ShardRouter router = ShardRouter.start(port, ring);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            router.close();
+            local.close();
+        }));
+        System.out.println("Shard router listening on " + router.baseUrl() + " for " + String.join(", ", nodes));
     }
-}
\ No newline at end of file
+}
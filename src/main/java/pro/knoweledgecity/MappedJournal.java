@@ -0,0 +1,408 @@
+package pro.knoweledgecity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only, memory-mapped journal of session events made of fixed 16-byte slots.
+ *
+ * <p>Slot layout (little-endian): {@code int type|aux<<8, int userId, int questionId, int unused}. The first slot
+ * is a header {@code int HEADER, int magic, int version, int unused}, written and forced when the journal is
+ * created; files without it, or of another version, are rejected. A login stores the email length in {@code aux}
+ * and is followed by {@code ceil(length / 15)} continuation slots holding the email bytes after their type byte. A
+ * question record stores the served id plus one, so that replay sets the cursor rather than advancing it.
+ * Appenders reserve slots with one atomic add, fill them, and publish the record by writing its first int last
+ * with release semantics, so recovery treats empty or orphaned slots left by a crash as gaps and skips them.
+ * Appends return once published; {@link #awaitDurable()} then waits for the force its {@link FsyncPolicy} asks
+ * for, so that callers can append in order under a lock and wait for the disk outside it.
+ *
+ * <p>The file grows in {@value #REGION_BYTES}-byte mapped regions; recovery reads those regions sequentially.
+ */
+public final class MappedJournal implements SessionJournal, AutoCloseable {
+    static final int SLOT_BYTES = 16;
+    static final int REGION_BYTES = 64 << 20;
+    private static final int REGION_SLOTS = REGION_BYTES / SLOT_BYTES;
+    private static final int EMAIL_BYTES_PER_SLOT = SLOT_BYTES - 1;
+
+    static final int LOGIN = 1;
+    static final int QUESTION = 2;
+    static final int ANSWER = 3;
+    static final int RESET = 4;
+    static final int EMAIL = 5;
+    static final int HEADER = 6;
+    static final int MAGIC = 0x524A5A51; // "QZJR" read as a little-endian int
+    // Version 1 had no header slot and stored served questions without the offset of one
+    static final int VERSION = 2;
+
+    private static final VarHandle FIRST_INT =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final FsyncPolicy policy;
+    private final AtomicLong nextSlot;
+    private final Object growLock = new Object();
+    private final Object forceLock = new Object();
+    private final ScheduledExecutorService flusher;
+    private volatile MappedByteBuffer[] regions;
+    private volatile long forcesStarted;
+    private long forcesCompleted;
+    // Guarded by forceLock: the lowest slot that was still unpublished when the last force started
+    private long unforcedFrom;
+    private volatile boolean closed;
+    // Slots [from, to) this thread appended since its last awaitDurable, from = -1 for none
+    private final ThreadLocal<long[]> pending = ThreadLocal.withInitial(() -> new long[] {-1, 0});
+
+    private MappedJournal(Path path, FileChannel channel, FsyncPolicy policy, long periodMillis) throws IOException {
+        this.channel = channel;
+        this.policy = policy;
+        int regionCount = (int) ((channel.size() + REGION_BYTES - 1) / REGION_BYTES);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[regionCount];
+        for (int i = 0; i < regionCount; i++) {
+            mapped[i] = map(i);
+        }
+        this.regions = mapped;
+        this.nextSlot = new AtomicLong(findEnd());
+        if (nextSlot.get() == 0) {
+            long slot = reserve(1);
+            publish(slot, HEADER, MAGIC, VERSION);
+            // Records are forced on their own by PER_WRITE, so the header must not wait for a later force
+            region(slot).force(0, SLOT_BYTES);
+        } else {
+            checkHeader(path);
+        }
+        this.unforcedFrom = nextSlot.get();
+        if (policy == FsyncPolicy.PERIODIC) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::forceAll, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Opens or creates the journal at {@code path}. {@code periodMillis} is only used by {@link FsyncPolicy#PERIODIC}.
+     */
+    public static MappedJournal open(Path path, FsyncPolicy policy, long periodMillis) {
+        try {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new MappedJournal(path, channel, policy, periodMillis);
+            } catch (RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal " + path, e);
+        }
+    }
+
+    /**
+     * Number of slots in use, including the header and gaps left by a crash.
+     */
+    public long slots() {
+        return nextSlot.get();
+    }
+
+    /**
+     * Rebuilds the sessions recorded in the journal into an empty {@code store} and returns the number of events
+     * applied. Must run before the store serves requests.
+     */
+    public long replay(SessionStore store) {
+        long applied = replayEvents(store);
+        store.rankAll();
+        return applied;
+    }
+
+    /**
+     * Applies the recorded events to {@code store}, which may already hold some of them, without ranking the
+     * users; {@link CheckpointedJournal} replays several journals onto a snapshot and ranks once at the end.
+     */
+    long replayEvents(SessionStore store) {
+        long end = nextSlot.get();
+        int questionCount = store.questionCount();
+        byte[] email = new byte[255 + EMAIL_BYTES_PER_SLOT];
+        long applied = 0;
+        for (long slot = 1; slot < end; slot++) {
+            MappedByteBuffer region = regions[(int) (slot / REGION_SLOTS)];
+            int offset = (int) (slot % REGION_SLOTS) * SLOT_BYTES;
+            int header = region.getInt(offset);
+            int type = header & 0xFF;
+            if (type == 0 || type == EMAIL) {
+                continue;
+            }
+            int userId = region.getInt(offset + 4);
+            if (type == LOGIN) {
+                int length = header >>> 8 & 0xFF;
+                int continuation = (length + EMAIL_BYTES_PER_SLOT - 1) / EMAIL_BYTES_PER_SLOT;
+                for (int i = 0; i < continuation; i++) {
+                    long emailSlot = slot + 1 + i;
+                    MappedByteBuffer emailRegion = regions[(int) (emailSlot / REGION_SLOTS)];
+                    emailRegion.get((int) (emailSlot % REGION_SLOTS) * SLOT_BYTES + 1,
+                            email, i * EMAIL_BYTES_PER_SLOT, EMAIL_BYTES_PER_SLOT);
+                }
+                slot += continuation;
+                store.restore(userId, new String(email, 0, length, StandardCharsets.UTF_8));
+                applied++;
+                continue;
+            }
+            UserState user = store.user(userId);
+            if (user == null) {
+                continue;
+            }
+            switch (type) {
+                case QUESTION -> user.advanceCursor(Math.min(region.getInt(offset + 8), questionCount));
+                case ANSWER -> {
+                    int questionId = region.getInt(offset + 8);
+                    if (questionId >= 0 && questionId < questionCount) {
+                        user.recordCorrect(questionId);
+                    }
+                }
+                case RESET -> user.reset();
+                default -> {
+                    continue;
+                }
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    @Override
+    public void login(int userId, String email) {
+        byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 255) {
+            throw new IllegalArgumentException("Email longer than 255 bytes cannot be journaled");
+        }
+        int continuation = (bytes.length + EMAIL_BYTES_PER_SLOT - 1) / EMAIL_BYTES_PER_SLOT;
+        long slot = reserve(1 + continuation);
+        for (int i = 0; i < continuation; i++) {
+            long emailSlot = slot + 1 + i;
+            MappedByteBuffer region = region(emailSlot);
+            int offset = (int) (emailSlot % REGION_SLOTS) * SLOT_BYTES;
+            int from = i * EMAIL_BYTES_PER_SLOT;
+            region.put(offset + 1, bytes, from, Math.min(EMAIL_BYTES_PER_SLOT, bytes.length - from));
+            region.put(offset, (byte) EMAIL);
+        }
+        publish(slot, LOGIN | bytes.length << 8, userId, 0);
+        track(slot, 1 + continuation);
+    }
+
+    @Override
+    public void question(int userId, int questionId) {
+        append(QUESTION, userId, questionId + 1);
+    }
+
+    @Override
+    public void answer(int userId, int questionId) {
+        append(ANSWER, userId, questionId);
+    }
+
+    @Override
+    public void reset(int userId) {
+        append(RESET, userId, 0);
+    }
+
+    /**
+     * Waits until the records this thread appended since its last call are forced as the policy requires. The
+     * journal forces everything when it is closed, so nothing is left to wait for afterwards.
+     */
+    @Override
+    public void awaitDurable() {
+        if (policy == FsyncPolicy.PERIODIC) {
+            return;
+        }
+        long[] range = pending.get();
+        long from = range[0];
+        if (from < 0) {
+            return;
+        }
+        range[0] = -1;
+        if (closed) {
+            return;
+        }
+        if (policy == FsyncPolicy.PER_WRITE) {
+            long to = range[1];
+            for (long s = from; s < to; ) {
+                long regionEnd = Math.min(to, (s / REGION_SLOTS + 1) * REGION_SLOTS);
+                region(s).force((int) (s % REGION_SLOTS) * SLOT_BYTES, (int) (regionEnd - s) * SLOT_BYTES);
+                s = regionEnd;
+            }
+        } else {
+            groupCommit(from);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        forceAll();
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close journal", e);
+        }
+    }
+
+    private void append(int type, int userId, int questionId) {
+        long slot = reserve(1);
+        publish(slot, type, userId, questionId);
+        track(slot, 1);
+    }
+
+    private long reserve(int slots) {
+        long slot = nextSlot.getAndAdd(slots);
+        long last = slot + slots - 1;
+        if (last / REGION_SLOTS >= regions.length) {
+            grow((int) (last / REGION_SLOTS) + 1);
+        }
+        return slot;
+    }
+
+    private void publish(long slot, int header, int userId, int questionId) {
+        MappedByteBuffer region = region(slot);
+        int offset = (int) (slot % REGION_SLOTS) * SLOT_BYTES;
+        region.putInt(offset + 4, userId);
+        region.putInt(offset + 8, questionId);
+        FIRST_INT.setRelease(region, offset, header);
+    }
+
+    /**
+     * Widens the range of slots this thread has appended and not yet waited for.
+     */
+    private void track(long slot, int slots) {
+        if (policy == FsyncPolicy.PERIODIC) {
+            return;
+        }
+        long[] range = pending.get();
+        if (range[0] < 0) {
+            range[0] = slot;
+            range[1] = slot + slots;
+        } else {
+            range[0] = Math.min(range[0], slot);
+            range[1] = Math.max(range[1], slot + slots);
+        }
+    }
+
+    /**
+     * Waits until a force that started after the caller published {@code slot} has completed, performing one
+     * from that slot if nobody else is.
+     */
+    private void groupCommit(long slot) {
+        long seen = forcesStarted;
+        synchronized (forceLock) {
+            if (forcesCompleted > seen) {
+                return;
+            }
+            forcesStarted++;
+            forceRegions(slot);
+            forcesCompleted = forcesStarted;
+        }
+    }
+
+    private void forceAll() {
+        synchronized (forceLock) {
+            forcesStarted++;
+            forceRegions(Long.MAX_VALUE);
+            forcesCompleted = forcesStarted;
+        }
+    }
+
+    /**
+     * Forces the regions from the lowest slot a previous force may have missed, or {@code from} if lower, up to
+     * the last reserved slot. Slots reserved but not yet published are skipped by the force that sees them, so the
+     * first of them becomes where the next force starts, however long its appender stalls.
+     */
+    // Runs under forceLock
+    private void forceRegions(long from) {
+        long end = nextSlot.get();
+        MappedByteBuffer[] mapped = regions;
+        long low = unforcedFrom;
+        while (low < end && low / REGION_SLOTS < mapped.length
+                && (int) FIRST_INT.getAcquire(mapped[(int) (low / REGION_SLOTS)],
+                (int) (low % REGION_SLOTS) * SLOT_BYTES) != 0) {
+            low++;
+        }
+        long start = Math.min(from, unforcedFrom);
+        int last = (int) Math.min(mapped.length - 1, Math.max(0, end - 1) / REGION_SLOTS);
+        for (int i = (int) (start / REGION_SLOTS); i <= last; i++) {
+            mapped[i].force();
+        }
+        unforcedFrom = low;
+    }
+
+    private MappedByteBuffer region(long slot) {
+        return regions[(int) (slot / REGION_SLOTS)];
+    }
+
+    private void grow(int regionCount) {
+        synchronized (growLock) {
+            MappedByteBuffer[] current = regions;
+            if (current.length >= regionCount) {
+                return;
+            }
+            MappedByteBuffer[] grown = Arrays.copyOf(current, regionCount);
+            for (int i = current.length; i < regionCount; i++) {
+                grown[i] = map(i);
+            }
+            regions = grown;
+        }
+    }
+
+    private MappedByteBuffer map(int region) {
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, (long) region * REGION_BYTES,
+                    REGION_BYTES);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map journal region " + region, e);
+        }
+    }
+
+    private void checkHeader(Path path) {
+        MappedByteBuffer first = regions[0];
+        if (first.getInt(0) != HEADER || first.getInt(4) != MAGIC) {
+            throw new IllegalArgumentException("Not a session journal of version " + VERSION + ": " + path);
+        }
+        int version = first.getInt(8);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported session journal version " + version + ": " + path);
+        }
+    }
+
+    /**
+     * Finds the slot after the last non-empty one by scanning back over the zero-filled tail.
+     */
+    private long findEnd() {
+        MappedByteBuffer[] mapped = regions;
+        for (int r = mapped.length - 1; r >= 0; r--) {
+            for (int offset = REGION_BYTES - SLOT_BYTES; offset >= 0; offset -= SLOT_BYTES) {
+                if ((mapped[r].getInt(offset) & 0xFF) != 0) {
+                    return (long) r * REGION_SLOTS + offset / SLOT_BYTES + 1;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,601 @@
+package pro.knoweledgecity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking HTTP/1.1 front end for {@link QuizService}: the same {@code POST /} and {@code GET /metrics} as
+ * {@link QuizServer}, served by a small fixed set of selector event loops instead of a thread per request.
+ *
+ * <p>A connection stays on the loop that accepted it, and the loop runs the service inline, so the service must not
+ * block: without a journal it never does, and {@link FsyncPolicy#PERIODIC} only appends to memory and leaves the
+ * forcing to its own thread. A policy that forces before answering would stall every connection of the loop, so
+ * {@link Main} refuses to combine one with this front end. Requests are parsed straight out of direct buffers from
+ * the loop's pool into the loop's {@link QuizRequest}, and responses are copied into another buffer.
+ * A connection holds an input buffer only while it has unparsed bytes and an output buffer only while a response is
+ * unsent, so an idle keep-alive connection costs a channel, a selection key and a small object: no thread, no buffer.
+ *
+ * <p>Connections are kept alive unless the client sends {@code Connection: close} or speaks HTTP/1.0 without
+ * {@code keep-alive}. Pipelined requests are answered in order, and all responses to one read go out in one write.
+ * A client that stops reading its responses is no longer read from either; its further requests wait in its buffer.
+ * Bodies must come with {@code Content-Length}, and a request is limited to {@value #BUFFER_SIZE} bytes.
+ */
+public final class NioQuizServer implements AutoCloseable {
+    static final int BUFFER_SIZE = 16 * 1024;
+    // Idle buffers a loop keeps for reuse; any beyond that are left to the GC
+    private static final int POOLED_BUFFERS = 256;
+    private static final byte[] STATUS_200 = header("HTTP/1.1 200 OK\r\n");
+    private static final byte[] STATUS_400 = header("HTTP/1.1 400 Bad Request\r\n");
+    private static final byte[] STATUS_405 = header("HTTP/1.1 405 Method Not Allowed\r\n");
+    private static final byte[] STATUS_413 = header("HTTP/1.1 413 Content Too Large\r\n");
+    private static final byte[] STATUS_429 = header("HTTP/1.1 429 Too Many Requests\r\n");
+    private static final byte[] STATUS_501 = header("HTTP/1.1 501 Not Implemented\r\n");
+    private static final byte[] PLAIN_TEXT = header("Content-Type: text/plain; charset=UTF-8\r\nContent-Length: ");
+    private static final byte[] PROMETHEUS_TEXT =
+            header("Content-Type: " + PrometheusMetrics.CONTENT_TYPE + "\r\nContent-Length: ");
+    private static final byte[] CONNECTION_CLOSE = header("\r\nConnection: close");
+    private static final byte[] RETRY_AFTER = header("\r\nRetry-After: ");
+    private static final byte[] END_OF_HEAD = header("\r\n\r\n");
+    private static final QuizResponse REQUEST_TOO_LARGE =
+            new QuizResponse(413, ByteBuffer.wrap("Error: Request too large".getBytes(StandardCharsets.UTF_8)));
+    private static final QuizResponse NOT_IMPLEMENTED = new QuizResponse(501,
+            ByteBuffer.wrap("Error: Only Content-Length bodies are supported".getBytes(StandardCharsets.UTF_8)));
+
+    private final ServerSocketChannel channel;
+    private final EventLoop[] loops;
+    private final QuizService service;
+    private final AdmissionControl admission;
+    // Only touched by the first loop, which accepts every connection
+    private int nextLoop;
+
+    private NioQuizServer(ServerSocketChannel channel, int loops, QuizService service, AdmissionControl admission)
+            throws IOException {
+        this.channel = channel;
+        this.service = service;
+        this.admission = admission;
+        this.loops = new EventLoop[loops];
+        for (int i = 0; i < loops; i++) {
+            this.loops[i] = new EventLoop(i);
+        }
+        channel.register(this.loops[0].selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public static NioQuizServer start(int port, QuizService service) {
+        return start(port, service, AdmissionControl.UNLIMITED, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Binds {@code port} and starts {@code loops} event-loop threads.
+     */
+    public static NioQuizServer start(int port, QuizService service, AdmissionControl admission, int loops) {
+        NioQuizServer server;
+        try {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.bind(new InetSocketAddress(port), 4096);
+            channel.configureBlocking(false);
+            server = new NioQuizServer(channel, loops, service, admission);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot bind quiz server to port " + port, e);
+        }
+        for (EventLoop loop : server.loops) {
+            loop.thread.start();
+        }
+        return server;
+    }
+
+    public int port() {
+        return channel.socket().getLocalPort();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port();
+    }
+
+    public QuizService service() {
+        return service;
+    }
+
+    @Override
+    public void close() {
+        for (EventLoop loop : loops) {
+            loop.closed = true;
+            loop.selector.wakeup();
+        }
+        for (EventLoop loop : loops) {
+            try {
+                loop.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to serve
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client;
+        while ((client = channel.accept()) != null) {
+            client.configureBlocking(false);
+            client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            EventLoop loop = loops[nextLoop];
+            nextLoop = (nextLoop + 1) % loops.length;
+            loop.pending.add(client);
+            loop.selector.wakeup();
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+        // Every request on this loop is decoded into the same flyweight
+        final QuizRequest request = new QuizRequest();
+        volatile boolean closed;
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "quiz-nio-" + index);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    SocketChannel client;
+                    while ((client = pending.poll()) != null) {
+                        Connection connection = new Connection(this, client);
+                        connection.key = client.register(selector, SelectionKey.OP_READ, connection);
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        if (key.attachment() == null) {
+                            try {
+                                accept();
+                            } catch (IOException e) {
+                                // E.g. out of file descriptors; the backlog is retried on the next select
+                            }
+                            continue;
+                        }
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isWritable()) {
+                                connection.onWritable();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.onReadable();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            connection.close();
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Event loop " + thread.getName() + " failed", e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection connection) {
+                        connection.close();
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // Closing anyway
+                }
+            }
+        }
+
+        ByteBuffer take() {
+            ByteBuffer buffer = buffers.poll();
+            return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        void release(ByteBuffer buffer) {
+            // Buffers grown for one oversized response are not pooled
+            if (buffer.isDirect() && buffer.capacity() == BUFFER_SIZE && buffers.size() < POOLED_BUFFERS) {
+                buffers.push(buffer.clear());
+            }
+        }
+    }
+
+    /**
+     * One client connection, only ever touched by its loop's thread. {@code in} holds received bytes in
+     * {@code [start, position)}; {@code out} holds unsent bytes in {@code [0, position)}.
+     */
+    private final class Connection {
+        final EventLoop loop;
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer in;
+        int start;
+        ByteBuffer out;
+        // No request is read after the current ones; the connection closes once its responses are sent
+        boolean closing;
+
+        Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+
+        void onReadable() throws IOException {
+            if (in == null) {
+                in = loop.take();
+            }
+            int read = channel.read(in);
+            process();
+            if (read < 0 && !closing) {
+                // The client sent all it will; any partial request is dropped
+                closing = true;
+                finish();
+            }
+        }
+
+        void onWritable() throws IOException {
+            if (flush()) {
+                process();
+            }
+        }
+
+        /**
+         * Answers every complete request received so far, unless the client is not reading its responses.
+         */
+        void process() throws IOException {
+            while (in != null && !closing) {
+                if (out != null && out.position() >= BUFFER_SIZE / 2 && !flush()) {
+                    break;
+                }
+                int consumed = next();
+                if (consumed == 0) {
+                    break;
+                }
+                start += consumed;
+            }
+            if (in != null) {
+                if (start == in.position()) {
+                    loop.release(in);
+                    in = null;
+                    start = 0;
+                } else if (start > 0) {
+                    in.limit(in.position()).position(start);
+                    in.compact();
+                    start = 0;
+                }
+            }
+            finish();
+        }
+
+        void finish() throws IOException {
+            if (!flush()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (closing) {
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Parses and answers the request at {@code start}. Returns its length, or {@code 0} when it has not fully
+         * arrived yet.
+         */
+        int next() {
+            ByteBuffer in = this.in;
+            int from = start;
+            int end = in.position();
+            int headEnd = indexOf(in, from, end, END_OF_HEAD);
+            if (headEnd < 0) {
+                if (end - from >= BUFFER_SIZE) {
+                    reject(REQUEST_TOO_LARGE);
+                }
+                return 0;
+            }
+            int lineEnd = indexOf(in, from, headEnd + 2, END_OF_HEAD, 2);
+            int methodEnd = indexOf(in, from, lineEnd, ' ');
+            int targetEnd = methodEnd < 0 ? -1 : indexOf(in, methodEnd + 1, lineEnd, ' ');
+            if (targetEnd < 0) {
+                return reject(QuizServer.MALFORMED_REQUEST);
+            }
+            boolean keepAlive = equalsAscii(in, targetEnd + 1, lineEnd, "HTTP/1.1");
+            int contentLength = 0;
+            for (int line = lineEnd + 2; line < headEnd; ) {
+                int eol = indexOf(in, line, headEnd + 2, END_OF_HEAD, 2);
+                int colon = indexOf(in, line, eol, ':');
+                if (colon < 0) {
+                    return reject(QuizServer.MALFORMED_REQUEST);
+                }
+                int value = colon + 1;
+                while (value < eol && (in.get(value) == ' ' || in.get(value) == '\t')) {
+                    value++;
+                }
+                if (equalsIgnoreCase(in, line, colon, "content-length")) {
+                    contentLength = parseLength(in, value, eol);
+                    if (contentLength < 0) {
+                        return reject(QuizServer.MALFORMED_REQUEST);
+                    }
+                } else if (equalsIgnoreCase(in, line, colon, "transfer-encoding")) {
+                    return reject(NOT_IMPLEMENTED);
+                } else if (equalsIgnoreCase(in, line, colon, "connection")) {
+                    if (containsIgnoreCase(in, value, eol, "close")) {
+                        keepAlive = false;
+                    } else if (containsIgnoreCase(in, value, eol, "keep-alive")) {
+                        keepAlive = true;
+                    }
+                }
+                line = eol + 2;
+            }
+            int bodyFrom = headEnd + END_OF_HEAD.length;
+            int bodyTo = bodyFrom + contentLength;
+            if (bodyTo - from > BUFFER_SIZE) {
+                return reject(REQUEST_TOO_LARGE);
+            }
+            if (bodyTo > end) {
+                return 0;
+            }
+            closing = !keepAlive;
+            int query = indexOf(in, methodEnd + 1, targetEnd, '?');
+            int pathEnd = query < 0 ? targetEnd : query;
+            int queryFrom = query < 0 ? targetEnd : query + 1;
+            boolean post = equalsAscii(in, from, methodEnd, "POST");
+            if (startsWith(in, methodEnd + 1, pathEnd, "/metrics")) {
+                if (equalsAscii(in, from, methodEnd, "GET")) {
+                    byte[] text = QuizServer.metricsText(service, admission);
+                    respond(PROMETHEUS_TEXT, 200, ByteBuffer.wrap(text), 0);
+                } else {
+                    refuse(QuizServer.METHOD_NOT_ALLOWED, 0);
+                }
+            } else if (!post) {
+                refuse(QuizServer.METHOD_NOT_ALLOWED, 0);
+            } else {
+                dispatch(queryFrom, targetEnd, bodyFrom, bodyTo);
+            }
+            return bodyTo - from;
+        }
+
+        private void dispatch(int queryFrom, int queryTo, int bodyFrom, int bodyTo) {
+            long wait = admission.admitQuery(in, queryFrom, queryTo);
+            if (wait > 0) {
+                refuse(QuizServer.TOO_MANY_REQUESTS, wait);
+                return;
+            }
+            QuizRequest request;
+            try {
+                request = loop.request.decode(in, queryFrom, queryTo, bodyFrom, bodyTo);
+            } catch (IllegalArgumentException e) {
+                reject(QuizServer.MALFORMED_REQUEST);
+                return;
+            }
+            // An email sent only in the body is charged once decoded
+            if (request.hasEmail() && !request.emailInQuery()) {
+                wait = admission.admitEmail(request.bytes(), request.emailOffset(), request.emailLength());
+                if (wait > 0) {
+                    refuse(QuizServer.TOO_MANY_REQUESTS, wait);
+                    return;
+                }
+            }
+            respond(PLAIN_TEXT, service.handle(request), 0);
+        }
+
+        /**
+         * Answers with {@code response} and closes the connection once it is sent; returns a length that consumes
+         * whatever is buffered.
+         */
+        private int reject(QuizResponse response) {
+            closing = true;
+            refuse(response, 0);
+            return in.position() - start;
+        }
+
+        /**
+         * Answers with {@code response} on behalf of the service, counting it as rejected.
+         */
+        private void refuse(QuizResponse response, long wait) {
+            service.metrics().recordRejected(response.status());
+            respond(PLAIN_TEXT, response, wait);
+        }
+
+        private void respond(byte[] contentType, QuizResponse response, long wait) {
+            respond(contentType, response.status(), response.body(), wait);
+        }
+
+        /**
+         * Appends the status line, headers and body to {@code out}, growing it past the pooled size only for a
+         * response that does not fit in an empty buffer.
+         */
+        private void respond(byte[] contentType, int status, ByteBuffer body, long wait) {
+            byte[] statusLine = statusLine(status);
+            int length = body.remaining();
+            int size = statusLine.length + contentType.length + 10 + CONNECTION_CLOSE.length + RETRY_AFTER.length + 20
+                    + END_OF_HEAD.length + length;
+            if (out == null) {
+                out = loop.take();
+            }
+            if (out.remaining() < size) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(out.capacity() * 2, out.position() + size));
+                bigger.put(out.flip());
+                loop.release(out);
+                out = bigger;
+            }
+            out.put(statusLine).put(contentType);
+            putDecimal(out, length);
+            if (closing) {
+                out.put(CONNECTION_CLOSE);
+            }
+            if (wait > 0) {
+                out.put(RETRY_AFTER);
+                putDecimal(out, AdmissionControl.retryAfterSeconds(wait));
+            }
+            out.put(END_OF_HEAD);
+            out.put(out.position(), body, body.position(), length);
+            out.position(out.position() + length);
+        }
+
+        /**
+         * Writes what the socket takes now; returns whether everything was sent, after which {@code out} is
+         * back in the pool.
+         */
+        boolean flush() throws IOException {
+            if (out == null) {
+                return true;
+            }
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (out.position() > 0) {
+                return false;
+            }
+            loop.release(out);
+            out = null;
+            return true;
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already gone
+            }
+            if (in != null) {
+                loop.release(in);
+                in = null;
+            }
+            if (out != null) {
+                loop.release(out);
+                out = null;
+            }
+        }
+    }
+
+    private static byte[] statusLine(int status) {
+        return switch (status) {
+            case 200 -> STATUS_200;
+            case 400 -> STATUS_400;
+            case 405 -> STATUS_405;
+            case 413 -> STATUS_413;
+            case 429 -> STATUS_429;
+            case 501 -> STATUS_501;
+            default -> header("HTTP/1.1 " + status + " Status\r\n");
+        };
+    }
+
+    private static byte[] header(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void putDecimal(ByteBuffer out, long value) {
+        long divisor = 1;
+        while (divisor * 10 <= value) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Parses a decimal length of at most nine digits, or returns {@code -1}.
+     */
+    private static int parseLength(ByteBuffer buffer, int from, int to) {
+        while (to > from && (buffer.get(to - 1) == ' ' || buffer.get(to - 1) == '\t')) {
+            to--;
+        }
+        if (to == from || to - from > 9) {
+            return -1;
+        }
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            length = length * 10 + digit;
+        }
+        return length;
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to, byte[] pattern) {
+        return indexOf(buffer, from, to, pattern, pattern.length);
+    }
+
+    /**
+     * Index of the first {@code pattern[0, length)} in {@code buffer[from, to)}, or {@code -1}.
+     */
+    private static int indexOf(ByteBuffer buffer, int from, int to, byte[] pattern, int length) {
+        for (int i = from, last = to - length; i <= last; i++) {
+            int matched = 0;
+            while (matched < length && buffer.get(i + matched) == pattern[matched]) {
+                matched++;
+            }
+            if (matched == length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equalsAscii(ByteBuffer buffer, int from, int to, String ascii) {
+        return to - from == ascii.length() && startsWith(buffer, from, to, ascii);
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int from, int to, String ascii) {
+        if (to - from < ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (buffer.get(from + i) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares with a lower-case ASCII name.
+     */
+    private static boolean equalsIgnoreCase(ByteBuffer buffer, int from, int to, String lowerCase) {
+        if (to - from != lowerCase.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if ((buffer.get(from + i) | 0x20) != lowerCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsIgnoreCase(ByteBuffer buffer, int from, int to, String lowerCase) {
+        for (int i = from; i + lowerCase.length() <= to; i++) {
+            if (equalsIgnoreCase(buffer, i, i + lowerCase.length(), lowerCase)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,170 @@
+package pro.knoweledgecity;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-action request counts and latency histograms plus error counts by message, exposed as Prometheus text.
+ *
+ * <p>Every counter is a {@link LongAdder}, so concurrent requests add to per-thread cells instead of contending on
+ * one word. Request and error counts are exact. Latency is measured on a random one in {@code sampleEvery}
+ * requests: two clock reads cost about as much as the rest of a score request's dispatch, so timing all of them
+ * would not be cheap. The sampled timings form their own histogram, {@code quiz_request_duration_sampled_seconds},
+ * whose buckets, {@code _sum} and {@code _count} count only the timed requests, unscaled, so they stay consistent
+ * with each other; {@code quiz_requests_total} is the exact count, and {@code quiz_request_duration_sample_ratio}
+ * the share of requests timed. Requests whose action is missing or unknown
+ * are counted under {@code action="unknown"}, and requests the front end answered itself under
+ * {@code quiz_rejected_total} by status.
+ */
+public final class PrometheusMetrics implements RequestMetrics {
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final long[] BOUNDS_NANOS = {
+            micros(50), micros(100), micros(250), micros(500), millis(1), millis(2), millis(5), millis(10),
+            millis(25), millis(50), millis(100), millis(250), millis(500), millis(1000)
+    };
+    private static final int BUCKET_COUNT = BOUNDS_NANOS.length;
+    private static final Action[] ACTIONS = Action.values();
+    private static final QuizError[] ERRORS = QuizError.values();
+    private static final int UNKNOWN = ACTIONS.length;
+    private static final String[] ERROR_LABELS = new String[ERRORS.length];
+    private static final int[] REJECTED_STATUSES = {400, 405, 413, 429, 501};
+
+    static {
+        for (QuizError error : ERRORS) {
+            ERROR_LABELS[error.ordinal()] = escape(error.message());
+        }
+    }
+
+    private final LongAdder[] requests = adders(ACTIONS.length + 1);
+    private final LongAdder[] nanos = adders(ACTIONS.length + 1);
+    // Non-cumulative per-bucket counts, BUCKET_COUNT + 1 per action; the last one is +Inf
+    private final LongAdder[] buckets = adders((ACTIONS.length + 1) * (BUCKET_COUNT + 1));
+    private final LongAdder[] errors = adders(ERRORS.length);
+    // One per REJECTED_STATUSES entry, then one for any other status
+    private final LongAdder[] rejected = adders(REJECTED_STATUSES.length + 1);
+    private final int sampleEvery;
+
+    /**
+     * Times one in eight requests.
+     */
+    public PrometheusMetrics() {
+        this(8);
+    }
+
+    public PrometheusMetrics(int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1");
+        }
+        this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public boolean sample() {
+        return sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+    }
+
+    @Override
+    public void record(Action action, QuizError error, long nanos) {
+        int slot = action == null ? UNKNOWN : action.ordinal();
+        requests[slot].increment();
+        if (error != null) {
+            errors[error.ordinal()].increment();
+        }
+        if (nanos < 0) {
+            return;
+        }
+        this.nanos[slot].add(nanos);
+        int bucket = 0;
+        while (bucket < BUCKET_COUNT && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[slot * (BUCKET_COUNT + 1) + bucket].increment();
+    }
+
+    @Override
+    public void recordRejected(int status) {
+        int slot = 0;
+        while (slot < REJECTED_STATUSES.length && REJECTED_STATUSES[slot] != status) {
+            slot++;
+        }
+        rejected[slot].increment();
+    }
+
+    @Override
+    public void writeTo(StringBuilder out) {
+        out.append("# HELP quiz_requests_total Requests handled, by action.\n");
+        out.append("# TYPE quiz_requests_total counter\n");
+        for (int slot = 0; slot <= UNKNOWN; slot++) {
+            out.append("quiz_requests_total{action=\"").append(label(slot)).append("\"} ")
+                    .append(requests[slot].sum()).append('\n');
+        }
+        out.append("# HELP quiz_errors_total Requests rejected, by error message.\n");
+        out.append("# TYPE quiz_errors_total counter\n");
+        for (QuizError error : ERRORS) {
+            out.append("quiz_errors_total{message=\"").append(ERROR_LABELS[error.ordinal()]).append("\"} ")
+                    .append(errors[error.ordinal()].sum()).append('\n');
+        }
+        out.append("# HELP quiz_rejected_total Requests answered by the front end without reaching the service, "
+                + "by status.\n");
+        out.append("# TYPE quiz_rejected_total counter\n");
+        for (int slot = 0; slot <= REJECTED_STATUSES.length; slot++) {
+            out.append("quiz_rejected_total{status=\"")
+                    .append(slot < REJECTED_STATUSES.length ? Integer.toString(REJECTED_STATUSES[slot]) : "other")
+                    .append("\"} ").append(rejected[slot].sum()).append('\n');
+        }
+        out.append("# HELP quiz_request_duration_sample_ratio Share of requests timed in "
+                + "quiz_request_duration_sampled_seconds.\n");
+        out.append("# TYPE quiz_request_duration_sample_ratio gauge\n");
+        out.append("quiz_request_duration_sample_ratio ").append(1.0 / sampleEvery).append('\n');
+        out.append("# HELP quiz_request_duration_sampled_seconds Time spent handling the timed sample of requests, "
+                + "by action.\n");
+        out.append("# TYPE quiz_request_duration_sampled_seconds histogram\n");
+        for (int slot = 0; slot <= UNKNOWN; slot++) {
+            String action = label(slot);
+            long cumulative = 0;
+            for (int bucket = 0; bucket <= BUCKET_COUNT; bucket++) {
+                cumulative += buckets[slot * (BUCKET_COUNT + 1) + bucket].sum();
+                out.append("quiz_request_duration_sampled_seconds_bucket{action=\"").append(action).append("\",le=\"")
+                        .append(bucket < BUCKET_COUNT ? seconds(BOUNDS_NANOS[bucket]) : "+Inf").append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            out.append("quiz_request_duration_sampled_seconds_sum{action=\"").append(action).append("\"} ")
+                    .append(seconds(nanos[slot].sum())).append('\n');
+            out.append("quiz_request_duration_sampled_seconds_count{action=\"").append(action).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+    }
+
+    private static String label(int slot) {
+        return slot == UNKNOWN ? "unknown" : ACTIONS[slot].param();
+    }
+
+    /**
+     * Escapes a label value as the text format requires: backslash, double quote and line feed.
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static long micros(long value) {
+        return TimeUnit.MICROSECONDS.toNanos(value);
+    }
+
+    private static long millis(long value) {
+        return TimeUnit.MILLISECONDS.toNanos(value);
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
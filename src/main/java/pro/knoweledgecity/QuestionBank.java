@@ -0,0 +1,206 @@
+package pro.knoweledgecity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Ordered question catalog served by the quiz. Question ids are the positions in the catalog.
+ *
+ * <p>The catalog is one little-endian image, identical in memory and on disk, so {@link #open(Path)} only has to map
+ * the file and check its header:
+ * <pre>
+ * header   int magic "QBNK", int version, int count, int reserved
+ * index    count x (int response, int question end, int answer, int matcher) offsets, then int end of data
+ * data     per question: the complete UTF-8 {@code action=question} response body, then the encoded
+ *          {@link AnswerMatcher}
+ * </pre>
+ * The response body ({@code "Question: <text>\nId: <id>\nAnswer: <answer>"}) is rendered when the bank is built, so
+ * the question and answer text are slices of it and serving a question is handing out that slice. Lookups are one
+ * index read and an unknown id is a bounds check. A bank holds at most {@link UserState#MAX_QUESTIONS} questions,
+ * the most a session can track, and its image at most 2 GiB.
+ */
+public final class QuestionBank {
+    private static final String[] DEFAULT_QUESTIONS = {
+            "Why did the QA engineer go to the bar?",
+            "How many QA engineers does it take to change a light bulb?",
+            "Did the QA engineer enjoy their last bug hunt?",
+            "Why did the QA engineer drown in the pool?",
+            "Is it possible for a QA engineer to have too much coffee?"
+    };
+
+    private static final String[] DEFAULT_ANSWERS = {
+            "To test the bartender's skills",
+            "42",
+            "true",
+            "Because they didn't receive the 'float' property!",
+            "false"
+    };
+
+    static final int MAGIC = 0x4B4E4251; // "QBNK" read as a little-endian int
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 4 * Integer.BYTES;
+    private static final byte[] QUESTION_PREFIX = QuizService.QUESTION_PREFIX.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ID_PREFIX = ("\n" + QuizService.ID_PREFIX).getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ANSWER_PREFIX = ("\n" + QuizService.ANSWER_PREFIX).getBytes(StandardCharsets.UTF_8);
+
+    private final ByteBuffer image;
+    // Handed out by questionResponse, so that callers cannot write into the shared image
+    private final ByteBuffer readOnlyImage;
+    private final int size;
+
+    public QuestionBank(String[] questions, String[] answers) {
+        this(encode(questions, answers));
+    }
+
+    private QuestionBank(ByteBuffer image) {
+        this.image = image.order(ByteOrder.LITTLE_ENDIAN);
+        if (image.capacity() < HEADER_BYTES || image.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a question bank");
+        }
+        if (image.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported question bank version " + image.getInt(4));
+        }
+        int count = image.getInt(8);
+        checkCount(count);
+        if (count < 0 || HEADER_BYTES + (long) count * ENTRY_BYTES + Integer.BYTES > image.capacity()
+                || image.getInt(HEADER_BYTES + count * ENTRY_BYTES) != image.capacity()) {
+            throw new IllegalArgumentException("Truncated question bank");
+        }
+        this.size = count;
+        this.readOnlyImage = image.asReadOnlyBuffer();
+    }
+
+    public static QuestionBank defaultBank() {
+        return new QuestionBank(DEFAULT_QUESTIONS, DEFAULT_ANSWERS);
+    }
+
+    /**
+     * Maps a bank written by {@link #save(Path)} read-only. Loading does not depend on the number of questions.
+     */
+    public static QuestionBank open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Question bank larger than 2 GiB: " + path);
+            }
+            return new QuestionBank(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open question bank " + path, e);
+        }
+    }
+
+    /**
+     * Writes the bank image so that {@link #open(Path)} can map it.
+     */
+    public void save(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer source = image.duplicate().clear();
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write question bank " + path, e);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < size;
+    }
+
+    public String question(int id) {
+        int entry = entry(id);
+        return utf8(image.getInt(entry) + QUESTION_PREFIX.length, image.getInt(entry + Integer.BYTES));
+    }
+
+    public String answer(int id) {
+        int entry = entry(id);
+        return utf8(image.getInt(entry + 2 * Integer.BYTES), image.getInt(entry + 3 * Integer.BYTES));
+    }
+
+    /**
+     * The pre-rendered {@code action=question} response body of question {@code id}, as a read-only view of the
+     * bank image.
+     */
+    public ByteBuffer questionResponse(int id) {
+        int entry = entry(id);
+        int from = image.getInt(entry);
+        return readOnlyImage.slice(from, image.getInt(entry + 3 * Integer.BYTES) - from);
+    }
+
+    /**
+     * Checks the UTF-8 bytes of a submitted answer against the precompiled matcher of question {@code id}.
+     */
+    public boolean isCorrect(int id, byte[] submitted, int off, int len) {
+        int entry = entry(id);
+        return AnswerMatcher.matches(image, image.getInt(entry + 3 * Integer.BYTES), image.getInt(entry + ENTRY_BYTES),
+                submitted, off, len);
+    }
+
+    private int entry(int id) {
+        if (!contains(id)) {
+            throw new IndexOutOfBoundsException("Unknown question id " + id);
+        }
+        return HEADER_BYTES + id * ENTRY_BYTES;
+    }
+
+    private String utf8(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        image.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void checkCount(int count) {
+        if (count > UserState.MAX_QUESTIONS) {
+            throw new IllegalArgumentException("Banks over " + UserState.MAX_QUESTIONS
+                    + " questions are not supported: " + count);
+        }
+    }
+
+    private static ByteBuffer encode(String[] questions, String[] answers) {
+        if (questions.length != answers.length) {
+            throw new IllegalArgumentException("Every question needs exactly one answer");
+        }
+        int count = questions.length;
+        checkCount(count);
+        byte[][] questionBytes = new byte[count][];
+        byte[][] answerBytes = new byte[count][];
+        AnswerMatcher[] matchers = new AnswerMatcher[count];
+        long length = HEADER_BYTES + (long) count * ENTRY_BYTES + Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            questionBytes[i] = questions[i].getBytes(StandardCharsets.UTF_8);
+            answerBytes[i] = answers[i].getBytes(StandardCharsets.UTF_8);
+            matchers[i] = AnswerMatcher.compile(answers[i]);
+            length += QUESTION_PREFIX.length + questionBytes[i].length + ID_PREFIX.length + Integer.toString(i).length()
+                    + ANSWER_PREFIX.length + answerBytes[i].length + matchers[i].encodedLength();
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Question bank larger than 2 GiB");
+        }
+        ByteBuffer image = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        image.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0);
+        int data = HEADER_BYTES + count * ENTRY_BYTES + Integer.BYTES;
+        image.position(data);
+        for (int i = 0; i < count; i++) {
+            int entry = HEADER_BYTES + i * ENTRY_BYTES;
+            image.putInt(entry, image.position()).put(QUESTION_PREFIX).put(questionBytes[i]);
+            image.putInt(entry + Integer.BYTES, image.position())
+                    .put(ID_PREFIX).put(Integer.toString(i).getBytes(StandardCharsets.US_ASCII)).put(ANSWER_PREFIX);
+            image.putInt(entry + 2 * Integer.BYTES, image.position()).put(answerBytes[i]);
+            image.putInt(entry + 3 * Integer.BYTES, image.position());
+            matchers[i].encodeTo(image);
+        }
+        image.putInt(HEADER_BYTES + count * ENTRY_BYTES, image.position());
+        return image;
+    }
+}
@@ -0,0 +1,52 @@
+package pro.knoweledgecity;
+
+/**
+ * Error bodies returned with status 400.
+ */
+public enum QuizError {
+    EMAIL_MISSING("Error: Email parameter is missing"),
+    ACTION_MISSING("Error: Action parameter is missing"),
+    QUESTION_ID_MISSING("Error: Question ID parameter is missing"),
+    INVALID_EMAIL("Error: Invalid email address"),
+    INVALID_ACTION("Error: Invalid action"),
+    INVALID_QUESTION_ID("Error: Invalid question ID"),
+    INVALID_LIMIT("Error: Invalid limit"),
+    ALREADY_LOGGED_IN("Error: User is already logged in"),
+    NOT_LOGGED_IN("Error: User is not logged in");
+
+    private static final QuizError[] VALUES = values();
+
+    private final String message;
+    private final QuizResponse response;
+
+    QuizError(String message) {
+        this.message = message;
+        this.response = QuizResponse.badRequest(message);
+    }
+
+    /**
+     * Returns the error whose shared {@link #response()} this is, or {@code null} for any other response.
+     */
+    public static QuizError of(QuizResponse response) {
+        if (response.status() == 200) {
+            return null;
+        }
+        for (QuizError error : VALUES) {
+            if (error.response == response) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    public String message() {
+        return message;
+    }
+
+    /**
+     * The 400 response carrying this message, rendered once and shared.
+     */
+    public QuizResponse response() {
+        return response;
+    }
+}
@@ -0,0 +1,526 @@
+package pro.knoweledgecity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The parameters of one quiz request, decoded from {@code application/x-www-form-urlencoded} query and body into a
+ * reusable flyweight: no map, and no string per parameter.
+ *
+ * <p>{@code decode} copies the still-encoded query and body into one byte array owned by the flyweight and
+ * percent-decodes it in place in a single pass, since decoding never makes a parameter longer. Names are matched
+ * as they are decoded; {@code action} becomes an {@link Action}, {@code question_id} and {@code limit} become
+ * {@code int}s, and the values that must stay bytes ({@code email} and the answers) are kept as slices of
+ * {@link #bytes()}. Every other parameter is skipped. As in {@link FormParams}, the first occurrence of a name
+ * wins, and the missing parameters are known when the pass ends; see {@link #missing()}.
+ *
+ * <p>A flyweight is reused by calling {@code decode} again, which invalidates everything read from it before. It is
+ * not thread-safe.
+ */
+public final class QuizRequest {
+    /**
+     * Value of {@link #questionId()}, {@link #limit()} and {@link #batchQuestionId(int)} when the parameter is not a
+     * number, or is negative or too large for an {@code int}.
+     */
+    public static final int NOT_A_NUMBER = -1;
+
+    private static final byte[] EMAIL = ascii("email");
+    private static final byte[] ACTION = ascii("action");
+    private static final byte[] QUESTION_ID = ascii(QuizService.BATCH_QUESTION_ID);
+    private static final byte[] ANSWER = ascii(QuizService.BATCH_ANSWER);
+    private static final byte[] LIMIT = ascii(QuizService.LIMIT);
+
+    // Parameter kinds; the batch ones carry their index above KIND_BITS
+    private static final int OTHER = 0;
+    private static final int EMAIL_PARAM = 1;
+    private static final int ACTION_PARAM = 2;
+    private static final int QUESTION_ID_PARAM = 3;
+    private static final int ANSWER_PARAM = 4;
+    private static final int LIMIT_PARAM = 5;
+    private static final int BATCH_QUESTION_ID_PARAM = 6;
+    private static final int BATCH_ANSWER_PARAM = 7;
+    private static final int KIND_BITS = 3;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    // One bit per single-valued parameter seen
+    private static final int HAS_EMAIL = 1;
+    private static final int HAS_ACTION = 1 << 1;
+    private static final int HAS_QUESTION_ID = 1 << 2;
+    private static final int HAS_ANSWER = 1 << 3;
+    private static final int HAS_LIMIT = 1 << 4;
+
+    private byte[] bytes = new byte[256];
+    private int present;
+    private boolean emailInQuery;
+    private Action action;
+    private int questionId;
+    private int limit;
+    private int emailOffset;
+    private int emailLength;
+    private int answerOffset;
+    private int answerLength;
+    private QuizError missing;
+    // Allocated by the first batch request; a bit per index seen, then the id and the answer slice per index
+    private long[] batchIdsSeen;
+    private long[] batchAnswersSeen;
+    private int[] batchIds;
+    private long[] batchAnswers;
+
+    /**
+     * Decodes a raw query string (may be {@code null}) and the request body, read to its end.
+     *
+     * @throws IllegalArgumentException on a malformed {@code %} escape, like {@link java.net.URLDecoder}
+     */
+    public QuizRequest decode(String rawQuery, InputStream body) throws IOException {
+        int queryLength = rawQuery == null ? 0 : copy(rawQuery);
+        int length = queryLength;
+        while (true) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            int read = body.read(bytes, length, bytes.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return decode(queryLength, length);
+    }
+
+    /**
+     * Decodes the raw query in {@code buffer[queryFrom, queryTo)} and the body in {@code buffer[bodyFrom, bodyTo)},
+     * without changing the buffer's position or limit.
+     *
+     * @throws IllegalArgumentException on a malformed {@code %} escape
+     */
+    public QuizRequest decode(ByteBuffer buffer, int queryFrom, int queryTo, int bodyFrom, int bodyTo) {
+        int queryLength = queryTo - queryFrom;
+        int length = queryLength + bodyTo - bodyFrom;
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        }
+        buffer.get(queryFrom, bytes, 0, queryLength);
+        buffer.get(bodyFrom, bytes, queryLength, bodyTo - bodyFrom);
+        return decode(queryLength, length);
+    }
+
+    /**
+     * Builds a request from already decoded parameters, e.g. in tests.
+     */
+    public static QuizRequest of(Map<String, String> params) {
+        QuizRequest request = new QuizRequest();
+        request.reset();
+        int at = 0;
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            byte[] name = param.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = param.getValue().getBytes(StandardCharsets.UTF_8);
+            request.ensure(at + name.length + value.length);
+            System.arraycopy(name, 0, request.bytes, at, name.length);
+            int kind = kind(request.bytes, at, at + name.length);
+            System.arraycopy(value, 0, request.bytes, at, value.length);
+            at = request.accept(kind, at, at + value.length, true);
+        }
+        request.missing = request.findMissing();
+        return request;
+    }
+
+    /**
+     * The array the kept values are slices of.
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * The first of {@link QuizError#EMAIL_MISSING}, {@link QuizError#ACTION_MISSING} and, for the actions that need
+     * one, {@link QuizError#QUESTION_ID_MISSING} that applies, or {@code null} when nothing required is missing.
+     */
+    public QuizError missing() {
+        return missing;
+    }
+
+    public boolean hasEmail() {
+        return (present & HAS_EMAIL) != 0;
+    }
+
+    /**
+     * Whether the email came in the query string rather than the body.
+     */
+    public boolean emailInQuery() {
+        return emailInQuery;
+    }
+
+    public int emailOffset() {
+        return emailOffset;
+    }
+
+    public int emailLength() {
+        return emailLength;
+    }
+
+    /**
+     * Decodes the email; meant for the rare paths that keep it, such as login.
+     */
+    public String email() {
+        return hasEmail() ? new String(bytes, emailOffset, emailLength, StandardCharsets.UTF_8) : null;
+    }
+
+    public boolean hasAction() {
+        return (present & HAS_ACTION) != 0;
+    }
+
+    /**
+     * The action, or {@code null} when the parameter is missing or names no action.
+     */
+    public Action action() {
+        return action;
+    }
+
+    public boolean hasQuestionId() {
+        return (present & HAS_QUESTION_ID) != 0;
+    }
+
+    public int questionId() {
+        return questionId;
+    }
+
+    public int answerOffset() {
+        return answerOffset;
+    }
+
+    /**
+     * Length of the answer, {@code 0} when there is none.
+     */
+    public int answerLength() {
+        return answerLength;
+    }
+
+    public boolean hasLimit() {
+        return (present & HAS_LIMIT) != 0;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * Number of consecutive {@code question_id[i]} parameters from {@code i = 0}, at most
+     * {@value QuizService#MAX_BATCH}.
+     */
+    public int batchSize() {
+        if (batchIdsSeen == null) {
+            return 0;
+        }
+        int size = 0;
+        for (long seen : batchIdsSeen) {
+            int run = Long.numberOfTrailingZeros(~seen);
+            size += run;
+            if (run < Long.SIZE) {
+                break;
+            }
+        }
+        return size;
+    }
+
+    public int batchQuestionId(int index) {
+        return batchIds[index];
+    }
+
+    public int batchAnswerOffset(int index) {
+        return (batchAnswersSeen[index >>> 6] & 1L << index) != 0 ? (int) (batchAnswers[index] >>> 32) : 0;
+    }
+
+    /**
+     * Length of {@code answer[index]}, {@code 0} when there is none.
+     */
+    public int batchAnswerLength(int index) {
+        return (batchAnswersSeen[index >>> 6] & 1L << index) != 0 ? (int) batchAnswers[index] : 0;
+    }
+
+    private void reset() {
+        present = 0;
+        emailInQuery = false;
+        action = null;
+        questionId = NOT_A_NUMBER;
+        limit = NOT_A_NUMBER;
+        emailOffset = emailLength = answerOffset = answerLength = 0;
+        if (batchIdsSeen != null) {
+            Arrays.fill(batchIdsSeen, 0);
+            Arrays.fill(batchAnswersSeen, 0);
+        }
+    }
+
+    /**
+     * Copies the query's chars as bytes, encoding any that are not ASCII as UTF-8, and returns the byte length.
+     */
+    private int copy(String query) {
+        int length = query.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            char c = query.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = query.getBytes(StandardCharsets.UTF_8);
+                ensure(encoded.length);
+                System.arraycopy(encoded, 0, bytes, 0, encoded.length);
+                return encoded.length;
+            }
+            bytes[i] = (byte) c;
+        }
+        return length;
+    }
+
+    private void ensure(int length) {
+        if (bytes.length < length) {
+            bytes = Arrays.copyOf(bytes, Math.max(length, bytes.length * 2));
+        }
+    }
+
+    /**
+     * The single pass over {@code bytes[0, length)}, of which the first {@code queryLength} are the query. Values
+     * kept are decoded to the front of the array, behind the read position.
+     */
+    private QuizRequest decode(int queryLength, int length) {
+        reset();
+        byte[] bytes = this.bytes;
+        int write = 0;
+        int read = 0;
+        while (read < length) {
+            // The query and the body are separate runs of pairs
+            boolean inQuery = read < queryLength;
+            int end = inQuery ? queryLength : length;
+            int name = write;
+            int nameEnd = name;
+            int b;
+            while (read < end && (b = bytes[read]) != '&' && b != '=') {
+                bytes[nameEnd++] = (byte) unescape(bytes, read, end);
+                read += b == '%' ? 3 : 1;
+            }
+            boolean hasValue = read < end && bytes[read] == '=';
+            if (hasValue) {
+                read++;
+            }
+            int kind = nameEnd > name ? kind(bytes, name, nameEnd) : OTHER;
+            int valueEnd = write;
+            while (read < end && (b = bytes[read]) != '&') {
+                if (kind != OTHER) {
+                    bytes[valueEnd++] = (byte) unescape(bytes, read, end);
+                } else {
+                    unescape(bytes, read, end);
+                }
+                read += b == '%' ? 3 : 1;
+            }
+            if (read < end) {
+                read++;
+            }
+            if (nameEnd > name || hasValue) {
+                write = accept(kind, write, valueEnd, inQuery);
+            }
+        }
+        missing = findMissing();
+        return this;
+    }
+
+    /**
+     * Stores the value in {@code bytes[from, to)} of a parameter of the given kind unless an earlier occurrence
+     * won; returns where the next value may be written.
+     */
+    private int accept(int kind, int from, int to, boolean inQuery) {
+        switch (kind & KIND_MASK) {
+            case EMAIL_PARAM -> {
+                if (mark(HAS_EMAIL)) {
+                    emailOffset = from;
+                    emailLength = to - from;
+                    emailInQuery = inQuery;
+                    return to;
+                }
+            }
+            case ACTION_PARAM -> {
+                if (mark(HAS_ACTION)) {
+                    action = Action.fromBytes(bytes, from, to - from);
+                }
+            }
+            case QUESTION_ID_PARAM -> {
+                if (mark(HAS_QUESTION_ID)) {
+                    questionId = parseInt(bytes, from, to);
+                }
+            }
+            case ANSWER_PARAM -> {
+                if (mark(HAS_ANSWER)) {
+                    answerOffset = from;
+                    answerLength = to - from;
+                    return to;
+                }
+            }
+            case LIMIT_PARAM -> {
+                if (mark(HAS_LIMIT)) {
+                    limit = parseInt(bytes, from, to);
+                }
+            }
+            case BATCH_QUESTION_ID_PARAM -> {
+                int index = kind >>> KIND_BITS;
+                allocateBatch();
+                if ((batchIdsSeen[index >>> 6] & 1L << index) == 0) {
+                    batchIdsSeen[index >>> 6] |= 1L << index;
+                    batchIds[index] = parseInt(bytes, from, to);
+                }
+            }
+            case BATCH_ANSWER_PARAM -> {
+                int index = kind >>> KIND_BITS;
+                allocateBatch();
+                if ((batchAnswersSeen[index >>> 6] & 1L << index) == 0) {
+                    batchAnswersSeen[index >>> 6] |= 1L << index;
+                    batchAnswers[index] = (long) from << 32 | to - from;
+                    return to;
+                }
+            }
+            default -> {
+                // Not a quiz parameter
+            }
+        }
+        return from;
+    }
+
+    private boolean mark(int flag) {
+        boolean first = (present & flag) == 0;
+        present |= flag;
+        return first;
+    }
+
+    private void allocateBatch() {
+        if (batchIdsSeen == null) {
+            batchIdsSeen = new long[QuizService.MAX_BATCH / Long.SIZE];
+            batchAnswersSeen = new long[QuizService.MAX_BATCH / Long.SIZE];
+            batchIds = new int[QuizService.MAX_BATCH];
+            batchAnswers = new long[QuizService.MAX_BATCH];
+        }
+    }
+
+    private QuizError findMissing() {
+        if (!hasEmail()) {
+            return QuizError.EMAIL_MISSING;
+        }
+        if (!hasAction()) {
+            return QuizError.ACTION_MISSING;
+        }
+        if (action == Action.ANSWER && !hasQuestionId() || action == Action.BATCH && batchSize() == 0) {
+            return QuizError.QUESTION_ID_MISSING;
+        }
+        return null;
+    }
+
+    /**
+     * Identifies a decoded parameter name.
+     */
+    private static int kind(byte[] bytes, int from, int to) {
+        int length = to - from;
+        if (matches(bytes, from, length, EMAIL)) {
+            return EMAIL_PARAM;
+        }
+        if (matches(bytes, from, length, ACTION)) {
+            return ACTION_PARAM;
+        }
+        if (matches(bytes, from, length, QUESTION_ID)) {
+            return QUESTION_ID_PARAM;
+        }
+        if (matches(bytes, from, length, ANSWER)) {
+            return ANSWER_PARAM;
+        }
+        if (matches(bytes, from, length, LIMIT)) {
+            return LIMIT_PARAM;
+        }
+        if (length > 2 && bytes[to - 1] == ']') {
+            if (startsWith(bytes, from, length, QUESTION_ID) && bytes[from + QUESTION_ID.length] == '[') {
+                return batch(BATCH_QUESTION_ID_PARAM, bytes, from + QUESTION_ID.length + 1, to - 1);
+            }
+            if (startsWith(bytes, from, length, ANSWER) && bytes[from + ANSWER.length] == '[') {
+                return batch(BATCH_ANSWER_PARAM, bytes, from + ANSWER.length + 1, to - 1);
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * Accepts the index of a batch parameter only in the canonical form {@code "[" + i + "]"}, below the batch limit.
+     */
+    private static int batch(int kind, byte[] bytes, int from, int to) {
+        if (to == from || to - from > 3 || to - from > 1 && bytes[from] == '0') {
+            return OTHER;
+        }
+        int index = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return OTHER;
+            }
+            index = index * 10 + digit;
+        }
+        return index < QuizService.MAX_BATCH ? index << KIND_BITS | kind : OTHER;
+    }
+
+    /**
+     * Parses like {@code Integer.parseInt(value.trim())}, returning {@link #NOT_A_NUMBER} for anything that is not a
+     * non-negative {@code int}.
+     */
+    static int parseInt(byte[] bytes, int from, int to) {
+        while (from < to && (bytes[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        while (to > from && (bytes[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        boolean negative = from < to && bytes[from] == '-';
+        if (from < to && (bytes[from] == '-' || bytes[from] == '+')) {
+            from++;
+        }
+        if (from == to) {
+            return NOT_A_NUMBER;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_A_NUMBER;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) {
+                return NOT_A_NUMBER;
+            }
+        }
+        return negative && value != 0 ? NOT_A_NUMBER : (int) value;
+    }
+
+    /**
+     * Decodes the character at {@code bytes[at]}: {@code +} is a space and {@code %XX} a byte.
+     */
+    private static int unescape(byte[] bytes, int at, int end) {
+        int b = bytes[at];
+        if (b == '+') {
+            return ' ';
+        }
+        if (b != '%') {
+            return b;
+        }
+        int high = at + 2 < end ? FormParams.hex(bytes[at + 1]) : -1;
+        int low = at + 2 < end ? FormParams.hex(bytes[at + 2]) : -1;
+        if (high < 0 || low < 0) {
+            throw new IllegalArgumentException("Malformed escape in request parameters");
+        }
+        return high << 4 | low;
+    }
+
+    private static boolean matches(byte[] bytes, int from, int length, byte[] name) {
+        return length == name.length && Arrays.equals(bytes, from, from + length, name, 0, length);
+    }
+
+    private static boolean startsWith(byte[] bytes, int from, int length, byte[] prefix) {
+        return length > prefix.length && Arrays.equals(bytes, from, from + prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static byte[] ascii(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,59 @@
+package pro.knoweledgecity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Status code and UTF-8 plain-text body produced for a single quiz request.
+ *
+ * <p>The body spans {@code position()} to {@code limit()} of the buffer. Pre-rendered bodies are shared between
+ * requests and threads, so the buffer must never be modified; read it with absolute gets or through a duplicate.
+ */
+public record QuizResponse(int status, ByteBuffer body) {
+
+    public static QuizResponse ok(String body) {
+        return new QuizResponse(200, utf8(body));
+    }
+
+    public static QuizResponse ok(ByteBuffer body) {
+        return new QuizResponse(200, body);
+    }
+
+    public static QuizResponse badRequest(String body) {
+        return new QuizResponse(400, utf8(body));
+    }
+
+    public int length() {
+        return body.remaining();
+    }
+
+    /**
+     * Decodes the body; meant for tests and logging, not for the request path.
+     */
+    public String text() {
+        byte[] bytes = new byte[body.remaining()];
+        body.get(body.position(), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the body without changing the buffer. Bodies with an accessible array are written straight from it;
+     * others (the read-only views of a {@link QuestionBank}) go through one copy because {@link OutputStream} only
+     * accepts arrays.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (body.hasArray()) {
+            out.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+        } else {
+            byte[] bytes = new byte[body.remaining()];
+            body.get(body.position(), bytes);
+            out.write(bytes);
+        }
+    }
+
+    private static ByteBuffer utf8(String body) {
+        return ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,182 @@
+package pro.knoweledgecity;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * HTTP front end for {@link QuizService}: form-urlencoded {@code POST /}, one thread per request, and the request
+ * metrics on {@code GET /metrics}.
+ *
+ * <p>Requests run on the executor from {@link Threads#newPerTaskExecutor()}: virtual threads on JDK 21+. Each
+ * {@code POST} first goes through {@link AdmissionControl} on its raw query string; requests over a limit get 429
+ * with {@code Retry-After} before their body is read or anything is decoded. A body that is not valid form
+ * encoding gets 400 {@code Error: Malformed request}.
+ */
+public final class QuizServer implements AutoCloseable {
+    private static final int BACKLOG = 4096;
+    static final QuizResponse METHOD_NOT_ALLOWED =
+            new QuizResponse(405, ByteBuffer.wrap("Error: Method not allowed".getBytes(StandardCharsets.UTF_8)));
+    static final QuizResponse TOO_MANY_REQUESTS =
+            new QuizResponse(429, ByteBuffer.wrap("Error: Too many requests".getBytes(StandardCharsets.UTF_8)));
+    static final QuizResponse MALFORMED_REQUEST = QuizResponse.badRequest("Error: Malformed request");
+    // Pool threads decode every request they run into the same flyweight; virtual threads get one each
+    private static final ThreadLocal<QuizRequest> REQUESTS = ThreadLocal.withInitial(QuizRequest::new);
+
+    static {
+        // Headers and body go out in separate writes; with Nagle on, each response waits for a delayed ACK (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final QuizService service;
+    private final AdmissionControl admission;
+
+    private QuizServer(HttpServer http, ExecutorService executor, QuizService service, AdmissionControl admission) {
+        this.http = http;
+        this.executor = executor;
+        this.service = service;
+        this.admission = admission;
+    }
+
+    public static QuizServer start(int port) {
+        return start(port, QuestionBank.defaultBank());
+    }
+
+    public static QuizServer start(int port, QuestionBank questions) {
+        return start(port, new QuizService(questions, new SessionStore(questions.size())));
+    }
+
+    public static QuizServer start(int port, QuizService service) {
+        return start(port, service, AdmissionControl.UNLIMITED);
+    }
+
+    public static QuizServer start(int port, QuizService service, AdmissionControl admission) {
+        HttpServer http;
+        try {
+            http = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot bind quiz server to port " + port, e);
+        }
+        ExecutorService executor = Threads.newPerTaskExecutor();
+        QuizServer server = new QuizServer(http, executor, service, admission);
+        http.createContext("/", server::handle);
+        http.createContext("/metrics", server::metrics);
+        http.setExecutor(executor);
+        http.start();
+        return server;
+    }
+
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port();
+    }
+
+    public QuizService service() {
+        return service;
+    }
+
+    @Override
+    public void close() {
+        http.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * {@code GET /metrics}: the service's {@link RequestMetrics} in the Prometheus text format.
+     */
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                service.metrics().recordRejected(405);
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] bytes = metricsText(service, admission);
+            exchange.getResponseHeaders().set("Content-Type", PrometheusMetrics.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * The service's request metrics, the admission counters and the journal's metrics, as served on
+     * {@code GET /metrics}.
+     */
+    static byte[] metricsText(QuizService service, AdmissionControl admission) {
+        StringBuilder text = new StringBuilder(8192);
+        service.metrics().writeTo(text);
+        admission.writeTo(text);
+        service.journal().writeTo(text);
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            QuizResponse response = TOO_MANY_REQUESTS;
+            boolean handled = false;
+            long wait = 0;
+            if ("POST".equals(exchange.getRequestMethod())) {
+                String rawQuery = exchange.getRequestURI().getRawQuery();
+                wait = admission.admitQuery(rawQuery);
+                if (wait == 0) {
+                    QuizRequest request = decode(rawQuery, exchange.getRequestBody());
+                    if (request == null) {
+                        response = MALFORMED_REQUEST;
+                    } else {
+                        // An email sent only in the body is charged once decoded
+                        if (request.hasEmail() && !request.emailInQuery()) {
+                            wait = admission.admitEmail(request.bytes(), request.emailOffset(), request.emailLength());
+                        }
+                        if (wait == 0) {
+                            response = service.handle(request);
+                            handled = true;
+                        }
+                    }
+                }
+            } else {
+                response = METHOD_NOT_ALLOWED;
+            }
+            if (!handled) {
+                service.metrics().recordRejected(response.status());
+            }
+            if (wait > 0) {
+                exchange.getResponseHeaders().set("Retry-After",
+                        Long.toString(AdmissionControl.retryAfterSeconds(wait)));
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(response.status(), response.length());
+            try (OutputStream out = exchange.getResponseBody()) {
+                response.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Decodes into this thread's {@link QuizRequest}, or returns {@code null} when the parameters are not valid
+     * form encoding.
+     */
+    static QuizRequest decode(String rawQuery, InputStream body) throws IOException {
+        try {
+            return REQUESTS.get().decode(rawQuery, body);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package pro.knoweledgecity;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Implements the {@code action=} quiz protocol independently of the transport, over requests decoded into a
+ * {@link QuizRequest}.
+ *
+ * <p>With a journal, the actions that change a session run under one of {@value #LOCKS} monitors picked by a hash
+ * of the email, and report their event before releasing it, so the events of one user reach the journal in the
+ * order their changes were applied; a reset racing with an answer is never replayed in the other order. The wait
+ * for those events to become durable happens after the monitor is released. Reads and servers without a journal
+ * take no lock.
+ */
+public final class QuizService {
+    static final String LOGGED_IN = "You have successfully logged in";
+    static final String NO_MORE_QUESTIONS = "No more questions available";
+    static final String CORRECT = "Correct answer";
+    static final String INCORRECT = "Incorrect answer";
+    static final String RESET_DONE = "Your progress has been reset";
+    static final String SCORE_PREFIX = "Current score: ";
+    static final String QUESTION_PREFIX = "Question: ";
+    static final String ID_PREFIX = "Id: ";
+    static final String ANSWER_PREFIX = "Answer: ";
+
+    static final String BATCH_ITEM_PREFIX = "Question ";
+    static final String BATCH_QUESTION_ID = "question_id";
+    static final String BATCH_ANSWER = "answer";
+    static final int MAX_BATCH = 256;
+
+    static final String RANK_PREFIX = "Current rank: ";
+    static final String LEADERBOARD_HEADER = "Leaderboard:";
+    static final String LIMIT = "limit";
+    static final int DEFAULT_LIMIT = 10;
+    static final int MAX_LIMIT = 100;
+
+    private static final QuizResponse LOGGED_IN_RESPONSE = QuizResponse.ok(LOGGED_IN);
+    private static final QuizResponse NO_MORE_QUESTIONS_RESPONSE = QuizResponse.ok(NO_MORE_QUESTIONS);
+    private static final QuizResponse CORRECT_RESPONSE = QuizResponse.ok(CORRECT);
+    private static final QuizResponse INCORRECT_RESPONSE = QuizResponse.ok(INCORRECT);
+    private static final QuizResponse RESET_DONE_RESPONSE = QuizResponse.ok(RESET_DONE);
+    private static final int LOCKS = 1024;
+
+    private final QuestionBank questions;
+    private final SessionStore sessions;
+    private final SessionJournal journal;
+    private final RequestMetrics metrics;
+    // Per-email monitors that order journal events like the changes they record; null without a journal
+    private final Object[] locks;
+
+    public QuizService(QuestionBank questions, SessionStore sessions) {
+        this(questions, sessions, SessionJournal.NONE);
+    }
+
+    public QuizService(QuestionBank questions, SessionStore sessions, SessionJournal journal) {
+        this(questions, sessions, journal, new PrometheusMetrics());
+    }
+
+    public QuizService(QuestionBank questions, SessionStore sessions, SessionJournal journal, RequestMetrics metrics) {
+        this.questions = questions;
+        this.sessions = sessions;
+        this.journal = journal;
+        this.metrics = metrics;
+        if (journal == SessionJournal.NONE) {
+            this.locks = null;
+        } else {
+            this.locks = new Object[LOCKS];
+            Arrays.setAll(locks, i -> new Object());
+        }
+    }
+
+    public RequestMetrics metrics() {
+        return metrics;
+    }
+
+    public SessionJournal journal() {
+        return journal;
+    }
+
+    /**
+     * Handles already decoded parameters, e.g. from tests; servers decode into a reused {@link QuizRequest} instead.
+     */
+    public QuizResponse handle(Map<String, String> params) {
+        return handle(QuizRequest.of(params));
+    }
+
+    public QuizResponse handle(QuizRequest request) {
+        if (metrics == RequestMetrics.NONE) {
+            return dispatch(request);
+        }
+        if (!metrics.sample()) {
+            QuizResponse response = dispatch(request);
+            metrics.record(request.action(), QuizError.of(response), -1);
+            return response;
+        }
+        long started = System.nanoTime();
+        QuizResponse response = dispatch(request);
+        metrics.record(request.action(), QuizError.of(response), System.nanoTime() - started);
+        return response;
+    }
+
+    /**
+     * Handles a request; the email errors still take precedence over action errors, and a missing question id is
+     * only reported to a logged-in user.
+     */
+    private QuizResponse dispatch(QuizRequest request) {
+        QuizError missing = request.missing();
+        if (missing == QuizError.EMAIL_MISSING || missing == QuizError.ACTION_MISSING) {
+            return missing.response();
+        }
+        byte[] bytes = request.bytes();
+        if (!EmailValidator.isValid(bytes, request.emailOffset(), request.emailLength())) {
+            return QuizError.INVALID_EMAIL.response();
+        }
+        Action action = request.action();
+        if (action == null) {
+            return QuizError.INVALID_ACTION.response();
+        }
+        if (locks == null || !changesSession(action)) {
+            return perform(request, action, missing);
+        }
+        int hash = EmailDictionary.hash(bytes, request.emailOffset(), request.emailLength());
+        QuizResponse response;
+        synchronized (locks[(hash ^ hash >>> 16) & LOCKS - 1]) {
+            response = perform(request, action, missing);
+        }
+        journal.awaitDurable();
+        return response;
+    }
+
+    private static boolean changesSession(Action action) {
+        return switch (action) {
+            case LOGIN, QUESTION, ANSWER, BATCH, RESET -> true;
+            default -> false;
+        };
+    }
+
+    private QuizResponse perform(QuizRequest request, Action action, QuizError missing) {
+        byte[] bytes = request.bytes();
+        if (action == Action.LOGIN) {
+            String email = request.email();
+            UserState created = sessions.login(email);
+            if (created == null) {
+                return QuizError.ALREADY_LOGGED_IN.response();
+            }
+            journal.login(created.id(), email);
+            return LOGGED_IN_RESPONSE;
+        }
+        UserState state = sessions.get(bytes, request.emailOffset(), request.emailLength());
+        if (state == null) {
+            return QuizError.NOT_LOGGED_IN.response();
+        }
+        if (missing != null) {
+            return missing.response();
+        }
+        return switch (action) {
+            case QUESTION -> question(state);
+            case ANSWER -> answer(state, request);
+            case BATCH -> batch(state, request);
+            case SCORE -> QuizResponse.ok(SCORE_PREFIX + state.score());
+            case RESET -> {
+                state.reset();
+                sessions.leaderboard().update(state);
+                journal.reset(state.id());
+                yield RESET_DONE_RESPONSE;
+            }
+            case RANK -> QuizResponse.ok(RANK_PREFIX + sessions.leaderboard().rank(state)
+                    + " of " + sessions.leaderboard().size());
+            case LEADERBOARD -> leaderboard(request);
+            default -> throw new IllegalStateException("Unhandled action " + action);
+        };
+    }
+
+    private QuizResponse question(UserState state) {
+        int id = state.nextQuestion(questions.size());
+        if (id < 0) {
+            return NO_MORE_QUESTIONS_RESPONSE;
+        }
+        journal.question(state.id(), id);
+        return QuizResponse.ok(questions.questionResponse(id));
+    }
+
+    private QuizResponse answer(UserState state, QuizRequest request) {
+        int id = request.questionId();
+        if (!questions.contains(id)) {
+            return QuizError.INVALID_QUESTION_ID.response();
+        }
+        if (!questions.isCorrect(id, request.bytes(), request.answerOffset(), request.answerLength())) {
+            return INCORRECT_RESPONSE;
+        }
+        if (state.recordCorrect(id)) {
+            sessions.leaderboard().update(state);
+            journal.answer(state.id(), id);
+        }
+        return CORRECT_RESPONSE;
+    }
+
+    /**
+     * Checks {@code question_id[i]}/{@code answer[i]} pairs for i = 0, 1, ... and credits all correct ones with a
+     * single update of the score. Any missing or unknown question id rejects the whole batch.
+     */
+    private QuizResponse batch(UserState state, QuizRequest request) {
+        int count = request.batchSize();
+        int[] ids = new int[count];
+        boolean[] correct = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = request.batchQuestionId(i);
+            if (!questions.contains(ids[i])) {
+                return QuizError.INVALID_QUESTION_ID.response();
+            }
+            correct[i] = questions.isCorrect(ids[i], request.bytes(), request.batchAnswerOffset(i),
+                    request.batchAnswerLength(i));
+        }
+        int score = state.recordCorrect(ids, correct, count);
+        sessions.leaderboard().update(state);
+        StringBuilder body = new StringBuilder(count * 32);
+        for (int i = 0; i < count; i++) {
+            if (correct[i]) {
+                journal.answer(state.id(), ids[i]);
+            }
+            body.append(BATCH_ITEM_PREFIX).append(ids[i]).append(": ").append(correct[i] ? CORRECT : INCORRECT)
+                    .append('\n');
+        }
+        return QuizResponse.ok(body.append(SCORE_PREFIX).append(score).toString());
+    }
+
+    /**
+     * Lists the top {@code limit} users (default {@value #DEFAULT_LIMIT}, at most {@value #MAX_LIMIT}) as
+     * {@code "<rank>. <email>: <score>"} lines under a header.
+     */
+    private QuizResponse leaderboard(QuizRequest request) {
+        int limit = request.hasLimit() ? request.limit() : DEFAULT_LIMIT;
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return QuizError.INVALID_LIMIT.response();
+        }
+        StringBuilder body = new StringBuilder(LEADERBOARD_HEADER);
+        for (Leaderboard.Entry entry : sessions.leaderboard().top(limit)) {
+            body.append('\n').append(entry.rank()).append(". ").append(entry.email()).append(": ")
+                    .append(entry.score());
+        }
+        return QuizResponse.ok(body.toString());
+    }
+}
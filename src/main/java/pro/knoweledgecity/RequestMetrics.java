@@ -0,0 +1,52 @@
+package pro.knoweledgecity;
+
+/**
+ * Receives the outcome and duration of every request handled by {@link QuizService}.
+ */
+public interface RequestMetrics {
+
+    /**
+     * Metrics that record nothing; the service then skips timing requests as well.
+     */
+    RequestMetrics NONE = new RequestMetrics() {
+        @Override
+        public boolean sample() {
+            return false;
+        }
+
+        @Override
+        public void record(Action action, QuizError error, long nanos) {
+        }
+
+        @Override
+        public void recordRejected(int status) {
+        }
+
+        @Override
+        public void writeTo(StringBuilder out) {
+        }
+    };
+
+    /**
+     * Whether the next request should be timed. Reading the clock twice costs more than the counters, so
+     * implementations may time only a sample of requests; every request is still {@link #record recorded}.
+     */
+    boolean sample();
+
+    /**
+     * Records one request. {@code action} is {@code null} when the parameter was missing or unknown, {@code error} is
+     * {@code null} for successful requests and {@code nanos} is {@code -1} when the request was not sampled.
+     */
+    void record(Action action, QuizError error, long nanos);
+
+    /**
+     * Records one request that a front end answered with {@code status} without passing it to the service, such as
+     * a malformed request or one turned away by admission control.
+     */
+    void recordRejected(int status);
+
+    /**
+     * Appends the current values in the Prometheus text exposition format.
+     */
+    void writeTo(StringBuilder out);
+}
@@ -0,0 +1,278 @@
+package pro.knoweledgecity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary recording of quiz calls: when each was sent, its parameters, how long it took and what it
+ * returned, so that a run can be replayed later and compared with the original.
+ *
+ * <p>Layout (little-endian): a {@value #HEADER_BYTES}-byte header {@code int magic, int version,
+ * long recordedAtMillis}, then entries that each start with a tag byte. {@code NAME} and {@code USER} entries hold a
+ * varint length and UTF-8 bytes and define the next parameter name or email, numbered from 0 in order of first
+ * use. A {@code CALL} entry holds varints for the start (nanoseconds since the trace was created), the latency and
+ * the status, a byte each for the {@link ResponseReader.Outcome} and the {@link QuizError} (its ordinal plus one, or
+ * zero), and a varint count of parameters. Each parameter is a varint {@code name << 2 | inBody << 1 | isEmail}
+ * followed by a varint email number when {@code isEmail} is set, or by a varint length and the UTF-8 value. A
+ * call to a known action with a handful of parameters takes about 20 bytes besides its values.
+ *
+ * <p>Calls are appended as they complete, so they are ordered by completion and not by start; readers sort them.
+ */
+public final class RequestTrace {
+    static final int MAGIC = 0x52545A51; // "QZTR" read as a little-endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    private static final byte NAME = 1;
+    private static final byte USER = 2;
+    private static final byte CALL = 3;
+    private static final String EMAIL = "email";
+    private static final ResponseReader.Outcome[] OUTCOMES = ResponseReader.Outcome.values();
+    private static final QuizError[] ERRORS = QuizError.values();
+
+    private RequestTrace() {
+    }
+
+    /**
+     * One request parameter as the client set it, before URL encoding.
+     */
+    public record Param(String name, String value, boolean inBody) {
+    }
+
+    /**
+     * One recorded call. {@code startNanos} counts from the creation of the trace; {@code error} is {@code null}
+     * unless the body was one of the {@link QuizError} messages.
+     */
+    public record Call(long startNanos, long latencyNanos, List<Param> params, int status,
+                       ResponseReader.Outcome outcome, QuizError error) {
+
+        /**
+         * The first {@code email} parameter, or {@code null} when the call had none.
+         */
+        public String email() {
+            for (Param param : params) {
+                if (param.name().equals(EMAIL)) {
+                    return param.value();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * The action of the first {@code action} parameter, or {@code null} when it is missing or unknown.
+         */
+        public Action action() {
+            for (Param param : params) {
+                if (param.name().equals("action")) {
+                    return Action.fromParam(param.value());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Appends calls to a new trace file; safe to share between threads.
+     */
+    public static final class Writer implements AutoCloseable {
+        private static final int BUFFER_BYTES = 64 << 10;
+
+        private final Path path;
+        private final FileChannel channel;
+        private final long createdNanos = System.nanoTime();
+        private final Map<String, Integer> names = new HashMap<>();
+        private final Map<String, Integer> users = new HashMap<>();
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        private Writer(Path path) {
+            this.path = path;
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create trace " + path, e);
+            }
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis());
+        }
+
+        /**
+         * Start time of a call sent now, in the trace's clock.
+         */
+        public long now() {
+            return System.nanoTime() - createdNanos;
+        }
+
+        public synchronized void append(Call call) {
+            for (Param param : call.params()) {
+                if (!names.containsKey(param.name())) {
+                    define(NAME, param.name(), names);
+                }
+                if (param.name().equals(EMAIL) && !users.containsKey(param.value())) {
+                    define(USER, param.value(), users);
+                }
+            }
+            ensure(1 + 3 * 10 + 2 + 5);
+            buffer.put(CALL);
+            putVarLong(call.startNanos());
+            putVarLong(call.latencyNanos());
+            putVarLong(call.status());
+            buffer.put((byte) call.outcome().ordinal());
+            buffer.put((byte) (call.error() == null ? 0 : call.error().ordinal() + 1));
+            putVarLong(call.params().size());
+            for (Param param : call.params()) {
+                boolean email = param.name().equals(EMAIL);
+                ensure(10);
+                putVarLong((long) names.get(param.name()) << 2 | (param.inBody() ? 2 : 0) | (email ? 1 : 0));
+                if (email) {
+                    ensure(5);
+                    putVarLong(users.get(param.value()));
+                } else {
+                    putString(param.value());
+                }
+            }
+        }
+
+        /**
+         * Writes the buffered calls to the file.
+         */
+        public synchronized void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write trace " + path, e);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            flush();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot close trace " + path, e);
+            }
+        }
+
+        private void define(byte tag, String value, Map<String, Integer> numbers) {
+            numbers.put(value, numbers.size());
+            ensure(1);
+            buffer.put(tag);
+            putString(value);
+        }
+
+        private void putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(5 + bytes.length);
+            putVarLong(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void putVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                flush();
+                if (buffer.capacity() < bytes) {
+                    buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates (or truncates) the trace at {@code path}; its clock starts now.
+     */
+    public static Writer create(Path path) {
+        return new Writer(path);
+    }
+
+    /**
+     * Reads every call of the trace at {@code path}, in the order they were appended. The file is mapped, so it
+     * must be under 2 GiB.
+     */
+    public static List<Call> read(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer trace = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            trace.order(ByteOrder.LITTLE_ENDIAN);
+            if (trace.remaining() < HEADER_BYTES || trace.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a request trace: " + path);
+            }
+            int version = trace.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported request trace version " + version);
+            }
+            trace.getLong();
+            List<String> names = new ArrayList<>();
+            List<String> users = new ArrayList<>();
+            List<Call> calls = new ArrayList<>();
+            while (trace.hasRemaining()) {
+                byte tag = trace.get();
+                switch (tag) {
+                    case NAME -> names.add(getString(trace));
+                    case USER -> users.add(getString(trace));
+                    case CALL -> {
+                        long start = getVarLong(trace);
+                        long latency = getVarLong(trace);
+                        int status = (int) getVarLong(trace);
+                        ResponseReader.Outcome outcome = OUTCOMES[trace.get()];
+                        int error = trace.get();
+                        int count = (int) getVarLong(trace);
+                        List<Param> params = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            long header = getVarLong(trace);
+                            String value = (header & 1) != 0 ? users.get((int) getVarLong(trace)) : getString(trace);
+                            params.add(new Param(names.get((int) (header >>> 2)), value, (header & 2) != 0));
+                        }
+                        calls.add(new Call(start, latency, List.copyOf(params), status, outcome,
+                                error == 0 ? null : ERRORS[error - 1]));
+                    }
+                    default -> throw new IllegalArgumentException(
+                            "Corrupt request trace " + path + ": tag " + tag + " at " + (trace.position() - 1));
+                }
+            }
+            return calls;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read trace " + path, e);
+        }
+    }
+
+    private static String getString(ByteBuffer trace) {
+        byte[] bytes = new byte[(int) getVarLong(trace)];
+        trace.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long getVarLong(ByteBuffer trace) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = trace.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
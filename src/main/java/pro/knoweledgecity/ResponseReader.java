@@ -0,0 +1,322 @@
+package pro.knoweledgecity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable single-pass reader of quiz response bodies.
+ *
+ * <p>{@link #read(byte[], int, int)} scans the body once, line by line, and exposes the {@code Id:} and
+ * {@code Current score:} values as ints, the kind of response as an {@link Outcome} and error bodies as a
+ * {@link QuizError}; batch responses also expose their per-question results, rank responses the rank and
+ * leaderboard responses the rank and score of each entry. Reading does not allocate (apart from growing the item
+ * arrays to the largest batch or leaderboard seen), so one instance per thread can parse any number of responses.
+ */
+public final class ResponseReader {
+
+    public enum Outcome {
+        UNKNOWN,
+        LOGGED_IN,
+        QUESTION,
+        NO_MORE_QUESTIONS,
+        CORRECT,
+        INCORRECT,
+        SCORE,
+        RESET,
+        BATCH,
+        RANK,
+        LEADERBOARD,
+        ERROR
+    }
+
+    private static final byte[] ID = ascii("Id:");
+    private static final byte[] SCORE = ascii(QuizService.SCORE_PREFIX.trim());
+    private static final byte[] QUESTION = ascii(QuizService.QUESTION_PREFIX.trim());
+    private static final byte[] BATCH_ITEM = ascii(QuizService.BATCH_ITEM_PREFIX);
+    private static final byte[] RANK = ascii(QuizService.RANK_PREFIX.trim());
+    private static final byte[] LEADERBOARD = ascii(QuizService.LEADERBOARD_HEADER);
+    private static final byte[] ERROR = ascii("Error:");
+    private static final byte[] CORRECT = ascii(QuizService.CORRECT);
+    private static final byte[] INCORRECT = ascii(QuizService.INCORRECT);
+    private static final byte[] NO_MORE_QUESTIONS = ascii(QuizService.NO_MORE_QUESTIONS);
+    private static final byte[] LOGGED_IN = ascii(QuizService.LOGGED_IN);
+    private static final byte[] RESET_DONE = ascii(QuizService.RESET_DONE);
+    private static final QuizError[] ERRORS = QuizError.values();
+    private static final byte[][] ERROR_MESSAGES = new byte[ERRORS.length][];
+
+    static {
+        for (int i = 0; i < ERRORS.length; i++) {
+            ERROR_MESSAGES[i] = ascii(ERRORS[i].message());
+        }
+    }
+
+    private Outcome outcome;
+    private QuizError error;
+    private boolean hasQuestionId;
+    private int questionId;
+    private boolean hasScore;
+    private int score;
+    private int items;
+    private int[] itemIds = new int[16];
+    private boolean[] itemCorrect = new boolean[16];
+    private boolean hasRank;
+    private int rank;
+    private int entries;
+    private int[] entryRanks = new int[16];
+    private int[] entryScores = new int[16];
+
+    public ResponseReader read(byte[] body) {
+        return read(body, 0, body.length);
+    }
+
+    public ResponseReader read(byte[] buf, int off, int len) {
+        outcome = Outcome.UNKNOWN;
+        error = null;
+        hasQuestionId = false;
+        hasScore = false;
+        items = 0;
+        hasRank = false;
+        entries = 0;
+        int end = off + len;
+        int lineStart = off;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && buf[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && buf[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            readLine(buf, lineStart, contentEnd);
+            lineStart = lineEnd + 1;
+        }
+        return this;
+    }
+
+    public Outcome outcome() {
+        return outcome;
+    }
+
+    /**
+     * The error of an {@link Outcome#ERROR} response, or {@code null} when the message is not a known
+     * {@link QuizError}.
+     */
+    public QuizError error() {
+        return error;
+    }
+
+    public boolean hasQuestionId() {
+        return hasQuestionId;
+    }
+
+    public int questionId() {
+        if (!hasQuestionId) {
+            throw new IllegalStateException("Id not found in response");
+        }
+        return questionId;
+    }
+
+    public boolean hasScore() {
+        return hasScore;
+    }
+
+    public int score() {
+        if (!hasScore) {
+            throw new IllegalStateException("Score not found in response");
+        }
+        return score;
+    }
+
+    /**
+     * Number of per-question results of a {@link Outcome#BATCH} response.
+     */
+    public int itemCount() {
+        return items;
+    }
+
+    public int itemQuestionId(int item) {
+        return itemIds[checkItem(item)];
+    }
+
+    public boolean itemCorrect(int item) {
+        return itemCorrect[checkItem(item)];
+    }
+
+    public boolean hasRank() {
+        return hasRank;
+    }
+
+    public int rank() {
+        if (!hasRank) {
+            throw new IllegalStateException("Rank not found in response");
+        }
+        return rank;
+    }
+
+    /**
+     * Number of entries of a {@link Outcome#LEADERBOARD} response, best first.
+     */
+    public int entryCount() {
+        return entries;
+    }
+
+    public int entryRank(int entry) {
+        return entryRanks[checkEntry(entry)];
+    }
+
+    public int entryScore(int entry) {
+        return entryScores[checkEntry(entry)];
+    }
+
+    private int checkEntry(int entry) {
+        if (entry < 0 || entry >= entries) {
+            throw new IndexOutOfBoundsException("Leaderboard entry " + entry + " of " + entries);
+        }
+        return entry;
+    }
+
+    private int checkItem(int item) {
+        if (item < 0 || item >= items) {
+            throw new IndexOutOfBoundsException("Batch item " + item + " of " + items);
+        }
+        return item;
+    }
+
+    private void readLine(byte[] buf, int start, int end) {
+        if (startsWith(buf, start, end, ID)) {
+            long value = parseInt(buf, start + ID.length, end);
+            if (value != Long.MIN_VALUE) {
+                hasQuestionId = true;
+                questionId = (int) value;
+            }
+        } else if (startsWith(buf, start, end, SCORE)) {
+            long value = parseInt(buf, start + SCORE.length, end);
+            if (value != Long.MIN_VALUE) {
+                hasScore = true;
+                score = (int) value;
+                if (outcome != Outcome.BATCH) {
+                    outcome = Outcome.SCORE;
+                }
+            }
+        } else if (startsWith(buf, start, end, RANK)) {
+            long value = parseInt(buf, start + RANK.length, end);
+            if (value != Long.MIN_VALUE) {
+                hasRank = true;
+                rank = (int) value;
+                outcome = Outcome.RANK;
+            }
+        } else if (startsWith(buf, start, end, LEADERBOARD)) {
+            outcome = Outcome.LEADERBOARD;
+        } else if (outcome == Outcome.LEADERBOARD && start < end && buf[start] >= '0' && buf[start] <= '9') {
+            readLeaderboardEntry(buf, start, end);
+        } else if (startsWith(buf, start, end, QUESTION)) {
+            outcome = Outcome.QUESTION;
+        } else if (startsWith(buf, start, end, BATCH_ITEM)) {
+            readBatchItem(buf, start + BATCH_ITEM.length, end);
+        } else if (startsWith(buf, start, end, ERROR)) {
+            outcome = Outcome.ERROR;
+            for (int i = 0; i < ERROR_MESSAGES.length; i++) {
+                if (startsWith(buf, start, end, ERROR_MESSAGES[i])) {
+                    error = ERRORS[i];
+                    break;
+                }
+            }
+        } else if (startsWith(buf, start, end, CORRECT)) {
+            outcome = Outcome.CORRECT;
+        } else if (startsWith(buf, start, end, INCORRECT)) {
+            outcome = Outcome.INCORRECT;
+        } else if (startsWith(buf, start, end, NO_MORE_QUESTIONS)) {
+            outcome = Outcome.NO_MORE_QUESTIONS;
+        } else if (startsWith(buf, start, end, LOGGED_IN)) {
+            outcome = Outcome.LOGGED_IN;
+        } else if (startsWith(buf, start, end, RESET_DONE)) {
+            outcome = Outcome.RESET;
+        }
+    }
+
+    private void readBatchItem(byte[] buf, int start, int end) {
+        int colon = start;
+        while (colon < end && buf[colon] != ':') {
+            colon++;
+        }
+        long id = parseInt(buf, start, colon);
+        if (id == Long.MIN_VALUE || colon == end) {
+            return;
+        }
+        int result = colon + 1;
+        while (result < end && buf[result] == ' ') {
+            result++;
+        }
+        boolean correct = startsWith(buf, result, end, CORRECT);
+        if (!correct && !startsWith(buf, result, end, INCORRECT)) {
+            return;
+        }
+        if (items == itemIds.length) {
+            itemIds = Arrays.copyOf(itemIds, items * 2);
+            itemCorrect = Arrays.copyOf(itemCorrect, items * 2);
+        }
+        itemIds[items] = (int) id;
+        itemCorrect[items] = correct;
+        items++;
+        outcome = Outcome.BATCH;
+    }
+
+    private void readLeaderboardEntry(byte[] buf, int start, int end) {
+        int dot = start;
+        while (dot < end && buf[dot] != '.') {
+            dot++;
+        }
+        int colon = end;
+        while (colon > dot && buf[colon - 1] != ':') {
+            colon--;
+        }
+        long entryRank = parseInt(buf, start, dot);
+        long entryScore = colon > dot ? parseInt(buf, colon, end) : Long.MIN_VALUE;
+        if (entryRank == Long.MIN_VALUE || entryScore == Long.MIN_VALUE) {
+            return;
+        }
+        if (entries == entryRanks.length) {
+            entryRanks = Arrays.copyOf(entryRanks, entries * 2);
+            entryScores = Arrays.copyOf(entryScores, entries * 2);
+        }
+        entryRanks[entries] = (int) entryRank;
+        entryScores[entries] = (int) entryScore;
+        entries++;
+    }
+
+    /**
+     * Parses an optionally signed int after leading blanks, or returns {@link Long#MIN_VALUE} when there is none.
+     */
+    private static long parseInt(byte[] buf, int i, int end) {
+        while (i < end && (buf[i] == ' ' || buf[i] == '\t')) {
+            i++;
+        }
+        boolean negative = i < end && buf[i] == '-';
+        if (negative) {
+            i++;
+        }
+        int digitsStart = i;
+        long value = 0;
+        while (i < end && buf[i] >= '0' && buf[i] <= '9' && value <= Integer.MAX_VALUE) {
+            value = value * 10 + (buf[i++] - '0');
+        }
+        if (i == digitsStart || value > Integer.MAX_VALUE) {
+            return Long.MIN_VALUE;
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean startsWith(byte[] buf, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
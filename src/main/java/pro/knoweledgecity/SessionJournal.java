@@ -0,0 +1,58 @@
+package pro.knoweledgecity;
+
+/**
+ * Receives every state-changing session event so the state can be rebuilt after a restart.
+ *
+ * <p>Events are reported after the change they record, those of one user in the order their changes were applied,
+ * and changes that change nothing, such as a repeated correct answer, are not reported. Replaying an event onto a
+ * state that already contains it leaves that state unchanged, so a journal can be replayed onto a snapshot taken
+ * while it was being written. Reporting an event may only append it; {@link #awaitDurable()} waits until the
+ * thread's events are as durable as the journal promises.
+ */
+public interface SessionJournal {
+
+    /**
+     * Journal that records nothing, for servers whose state may be lost on restart.
+     */
+    SessionJournal NONE = new SessionJournal() {
+        @Override
+        public void login(int userId, String email) {
+        }
+
+        @Override
+        public void question(int userId, int questionId) {
+        }
+
+        @Override
+        public void answer(int userId, int questionId) {
+        }
+
+        @Override
+        public void reset(int userId) {
+        }
+    };
+
+    void login(int userId, String email);
+
+    /**
+     * Records that question {@code questionId} was served, which moved the user's cursor past it.
+     */
+    void question(int userId, int questionId);
+
+    void answer(int userId, int questionId);
+
+    void reset(int userId);
+
+    /**
+     * Waits until the events this thread reported are durable. Callers report under the locks that order them and
+     * wait after releasing those, so that one user's wait for the disk does not hold up the others.
+     */
+    default void awaitDurable() {
+    }
+
+    /**
+     * Appends the journal's own metrics in the Prometheus text format; journals without any append nothing.
+     */
+    default void writeTo(StringBuilder out) {
+    }
+}
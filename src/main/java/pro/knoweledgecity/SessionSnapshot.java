@@ -0,0 +1,198 @@
+package pro.knoweledgecity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary image of every session in a {@link SessionStore}, written while the store keeps serving requests and
+ * loaded at startup instead of replaying the journal it replaces.
+ *
+ * <p>Layout (little-endian): a {@value #HEADER_BYTES}-byte header {@code int magic, int version, int questionCount,
+ * int unused, long generation, long users}, then one record per user in id order: {@code int id, int cursor,
+ * short emailLength}, the UTF-8 email, and {@code int credited} followed by that many question ids, or, when
+ * negative, by {@code -credited} words of a bitset over the bank, whichever is smaller. The score is not stored;
+ * it is the number of credited questions. {@code generation} is the first journal generation to replay on top.
+ *
+ * <p>Users are read with the same volatile reads a request makes, without stopping anyone, so a snapshot taken
+ * under load is fuzzy: it holds every event journaled before it started and maybe some journaled during it. Replaying
+ * events onto a state that already holds them changes nothing, so the journal generation started just before the
+ * snapshot brings it to the exact state. The file is forced under a temporary name and then renamed over the
+ * previous snapshot, so a crash midway leaves the previous one.
+ */
+final class SessionSnapshot {
+    static final int MAGIC = 0x53535A51; // "QZSS" read as a little-endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    private static final int RECORD_HEADER_BYTES = 3 * Integer.BYTES + Short.BYTES;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int WINDOW_BYTES = 64 << 20;
+
+    private SessionSnapshot() {
+    }
+
+    /**
+     * Writes every user of {@code store} to {@code path}, followed by journal {@code generation}, and returns the
+     * number of users written. The snapshot replaces the previous one atomically, and the rename is forced to
+     * disk along with its directory before this returns.
+     */
+    static long write(SessionStore store, long generation, Path path) {
+        int questionCount = store.questionCount();
+        int words = (questionCount + 63) >>> 6;
+        int[] ids = new int[questionCount];
+        long[] bits = new long[words];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_BYTES, maxRecordBytes(words)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long users = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.position(HEADER_BYTES);
+            for (int id = 0, limit = store.idLimit(); id < limit; id++) {
+                UserState user = store.user(id);
+                if (user == null) {
+                    continue;
+                }
+                int count = user.answered(ids);
+                int cursor = user.cursor();
+                int emailLength = store.emailLength(id);
+                boolean dense = (long) count * Integer.BYTES > (long) words * Long.BYTES;
+                int recordBytes = RECORD_HEADER_BYTES + emailLength
+                        + (dense ? words * Long.BYTES : count * Integer.BYTES);
+                if (buffer.remaining() < recordBytes) {
+                    drain(channel, buffer);
+                }
+                buffer.putInt(id).putInt(cursor).putShort((short) emailLength);
+                store.copyEmail(id, buffer);
+                if (dense) {
+                    Arrays.fill(bits, 0);
+                    for (int i = 0; i < count; i++) {
+                        bits[ids[i] >>> 6] |= 1L << ids[i];
+                    }
+                    buffer.putInt(-words);
+                    for (long word : bits) {
+                        buffer.putLong(word);
+                    }
+                } else {
+                    buffer.putInt(count);
+                    for (int i = 0; i < count; i++) {
+                        buffer.putInt(ids[i]);
+                    }
+                }
+                users++;
+            }
+            drain(channel, buffer);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(questionCount).putInt(0).putLong(generation).putLong(users)
+                    .flip();
+            for (long position = 0; buffer.hasRemaining(); ) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + temporary, e);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace snapshot " + path, e);
+        }
+        // The rename is durable only once the directory is; callers delete the journals it replaces afterwards
+        Path directory = path.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sync directory " + directory, e);
+        }
+        return users;
+    }
+
+    /**
+     * Restores every user of the snapshot at {@code path} into an empty {@code store}, without ranking them, and
+     * returns the first journal generation to replay on top. The file is mapped in windows and read once.
+     */
+    static long load(Path path, SessionStore store) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer window = map(channel, 0, Math.min(size, WINDOW_BYTES));
+            if (size < HEADER_BYTES || window.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a session snapshot: " + path);
+            }
+            if (window.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("Unsupported session snapshot version " + window.getInt(4));
+            }
+            int snapshotQuestions = window.getInt(8);
+            long generation = window.getLong(16);
+            long users = window.getLong(24);
+            store.reserve((int) Math.min(users, Integer.MAX_VALUE / 4));
+            int questionCount = store.questionCount();
+            int maxRecordBytes = maxRecordBytes((snapshotQuestions + 63) >>> 6);
+            // Windows hold at least two records, so moving one to the record it is short of always makes progress
+            long windowBytes = Math.max(WINDOW_BYTES, 2L * maxRecordBytes);
+            int[] ids = new int[snapshotQuestions];
+            byte[] email = new byte[EmailDictionary.MAX_BYTES];
+            long base = 0;
+            int position = HEADER_BYTES;
+            for (long user = 0; user < users; user++) {
+                if (window.limit() - position < maxRecordBytes && base + window.limit() < size) {
+                    base += position;
+                    window = map(channel, base, Math.min(size - base, windowBytes));
+                    position = 0;
+                }
+                int id = window.getInt(position);
+                int cursor = window.getInt(position + 4);
+                int emailLength = window.getShort(position + 8) & 0xFFFF;
+                window.get(position + 10, email, 0, emailLength);
+                int credited = window.getInt(position + 10 + emailLength);
+                position += RECORD_HEADER_BYTES + emailLength;
+                int count = 0;
+                if (credited >= 0) {
+                    for (int i = 0; i < credited; i++, position += Integer.BYTES) {
+                        int questionId = window.getInt(position);
+                        if (questionId < questionCount) {
+                            ids[count++] = questionId;
+                        }
+                    }
+                } else {
+                    for (int word = 0; word < -credited; word++, position += Long.BYTES) {
+                        for (long remaining = window.getLong(position); remaining != 0; remaining &= remaining - 1) {
+                            int questionId = word << 6 | Long.numberOfTrailingZeros(remaining);
+                            if (questionId < questionCount) {
+                                ids[count++] = questionId;
+                            }
+                        }
+                    }
+                }
+                store.restore(id, email, 0, emailLength).restore(cursor, ids, count);
+            }
+            return generation;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot " + path, e);
+        }
+    }
+
+    private static int maxRecordBytes(int words) {
+        return RECORD_HEADER_BYTES + EmailDictionary.MAX_BYTES + words * Long.BYTES;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long from, long length) throws IOException {
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        return window;
+    }
+}
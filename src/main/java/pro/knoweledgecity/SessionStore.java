@@ -0,0 +1,188 @@
+package pro.knoweledgecity;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Sessions of logged-in users, and their {@link Leaderboard}. Per-user updates never lock; see {@link UserState}.
+ *
+ * <p>Login interns the email in an {@link EmailDictionary} under the next dense id, and everything else about the
+ * user lives in arrays indexed by that id: the packed epoch, score and cursor in a {@code long}, the credited questions
+ * in an {@code Object} slot and the leaderboard bucket in an {@code int}. The arrays are split into pages of
+ * {@value #PAGE_SIZE} users so they grow without copying; a page is allocated before the id that needs it is
+ * published, so a reader that resolves an email always finds its page. No object is kept per user;
+ * {@link UserState} is a short-lived handle onto the arrays.
+ */
+public final class SessionStore {
+    static final int PAGE_BITS = 12;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final EmailDictionary emails = new EmailDictionary();
+    private final int questionCount;
+    private final Leaderboard leaderboard;
+    private volatile long[][] words = new long[16][];
+    private volatile Object[][] answered = new Object[16][];
+    private volatile int[][] rankedScores = new int[16][];
+    // Guarded by this, like every write to the dictionary and the page tables
+    private int nextId;
+
+    public SessionStore(int questionCount) {
+        if (questionCount > UserState.MAX_QUESTIONS) {
+            throw new IllegalArgumentException("Banks over " + UserState.MAX_QUESTIONS
+                    + " questions are not supported: " + questionCount);
+        }
+        this.questionCount = questionCount;
+        this.leaderboard = new Leaderboard(questionCount, emails::email);
+    }
+
+    public int questionCount() {
+        return questionCount;
+    }
+
+    /**
+     * Registers a new session and returns its state, or {@code null} when the email is already logged in.
+     */
+    public UserState login(String email) {
+        if (emails.find(email) >= 0) {
+            return null;
+        }
+        int id;
+        synchronized (this) {
+            if (emails.find(email) >= 0) {
+                return null;
+            }
+            id = nextId++;
+            allocate(id);
+            emails.put(email, id);
+        }
+        UserState state = new UserState(this, id);
+        leaderboard.update(state);
+        return state;
+    }
+
+    /**
+     * Returns the state of a logged-in user, or {@code null} when the email never logged in.
+     */
+    public UserState get(String email) {
+        int id = emails.find(email);
+        return id < 0 ? null : new UserState(this, id);
+    }
+
+    /**
+     * Like {@link #get(String)}, for the UTF-8 email in {@code bytes[offset, offset + length)}.
+     */
+    public UserState get(byte[] bytes, int offset, int length) {
+        int id = emails.find(bytes, offset, length);
+        return id < 0 ? null : new UserState(this, id);
+    }
+
+    /**
+     * Ranking of all logged-in users. Callers that change a score must {@link Leaderboard#update} it afterwards.
+     */
+    public Leaderboard leaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Re-creates a session with the id it had before a restart. Only used while replaying, before serving requests.
+     */
+    synchronized UserState restore(int id, String email) {
+        allocate(id);
+        emails.put(email, id);
+        if (nextId <= id) {
+            nextId = id + 1;
+        }
+        return new UserState(this, id);
+    }
+
+    /**
+     * Like {@link #restore(int, String)}, for the UTF-8 email in {@code bytes[offset, offset + length)}.
+     */
+    synchronized UserState restore(int id, byte[] bytes, int offset, int length) {
+        allocate(id);
+        emails.put(bytes, offset, length, id);
+        if (nextId <= id) {
+            nextId = id + 1;
+        }
+        return new UserState(this, id);
+    }
+
+    /**
+     * Makes room for {@code users} more sessions ahead of restoring them.
+     */
+    synchronized void reserve(int users) {
+        emails.reserve(emails.size() + users);
+    }
+
+    /**
+     * Files every restored user under their score in the empty leaderboard, once replay or a snapshot load is done.
+     */
+    void rankAll() {
+        leaderboard.addAll(this);
+    }
+
+    /**
+     * Returns the state of the user with {@code id}, or {@code null} when no login was given that id.
+     */
+    UserState user(int id) {
+        return emails.contains(id) ? new UserState(this, id) : null;
+    }
+
+    /**
+     * One more than the highest id given out so far.
+     */
+    synchronized int idLimit() {
+        return nextId;
+    }
+
+    String email(int id) {
+        return emails.email(id);
+    }
+
+    int emailLength(int id) {
+        return emails.emailLength(id);
+    }
+
+    void copyEmail(int id, ByteBuffer target) {
+        emails.copyEmail(id, target);
+    }
+
+    long[] wordPage(int id) {
+        return words[id >>> PAGE_BITS];
+    }
+
+    Object[] answeredPage(int id) {
+        return answered[id >>> PAGE_BITS];
+    }
+
+    int[] rankedScorePage(int id) {
+        return rankedScores[id >>> PAGE_BITS];
+    }
+
+    public int size() {
+        return emails.size();
+    }
+
+    private void allocate(int id) {
+        int page = id >>> PAGE_BITS;
+        long[][] words = this.words;
+        Object[][] answered = this.answered;
+        int[][] rankedScores = this.rankedScores;
+        if (page >= words.length) {
+            int pages = Math.max(words.length * 2, page + 1);
+            words = Arrays.copyOf(words, pages);
+            answered = Arrays.copyOf(answered, pages);
+            rankedScores = Arrays.copyOf(rankedScores, pages);
+        }
+        if (words[page] == null) {
+            words[page] = new long[PAGE_SIZE];
+            answered[page] = new Object[PAGE_SIZE];
+            rankedScores[page] = new int[PAGE_SIZE];
+            Arrays.fill(rankedScores[page], -1);
+        }
+        this.answered = answered;
+        this.rankedScores = rankedScores;
+        this.words = words;
+    }
+}
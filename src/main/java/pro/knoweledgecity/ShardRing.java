@@ -0,0 +1,129 @@
+package pro.knoweledgecity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent-hash assignment of users to shards by email.
+ *
+ * <p>Each node is placed on a 64-bit ring at {@code virtualNodes} points, hashed from its name and the point's
+ * index; an email belongs to the node of the first point at or after its own hash, wrapping around. With enough
+ * virtual nodes every node owns close to {@code 1/N} of the ring, and adding or removing one node only reassigns
+ * the emails on the arcs it gains or gives up: about {@code 1/N} of them, all to or from that node.
+ *
+ * <p>Rings are immutable; {@link #with(String)} and {@link #without(String)} return new ones. The owner of an email
+ * depends only on the node names and the number of virtual nodes, so every router built from the same list agrees.
+ */
+public final class ShardRing {
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final List<String> nodes;
+    private final int virtualNodes;
+    // Sorted point hashes, and the index in nodes of the node at each point
+    private final long[] points;
+    private final int[] owners;
+
+    public ShardRing(List<String> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ShardRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A shard ring needs at least one node");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+        if (nodes.stream().distinct().count() != nodes.size()) {
+            throw new IllegalArgumentException("Duplicate shard node in " + nodes);
+        }
+        this.nodes = List.copyOf(nodes);
+        this.virtualNodes = virtualNodes;
+        int count = nodes.size() * virtualNodes;
+        // Hash and node index packed together, so one sort orders both; ties go to the lower index
+        long[][] placed = new long[count][];
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int point = 0; point < virtualNodes; point++) {
+                byte[] name = (nodes.get(node) + "#" + point).getBytes(StandardCharsets.UTF_8);
+                placed[node * virtualNodes + point] = new long[]{hash(name, 0, name.length), node};
+            }
+        }
+        Arrays.sort(placed, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[count];
+        this.owners = new int[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = placed[i][0];
+            owners[i] = (int) placed[i][1];
+        }
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public String node(int index) {
+        return nodes.get(index);
+    }
+
+    /**
+     * Index in {@link #nodes()} of the node owning the UTF-8 email in {@code bytes[offset, offset + length)}.
+     */
+    public int owner(byte[] bytes, int offset, int length) {
+        long hash = hash(bytes, offset, length);
+        int at = Arrays.binarySearch(points, hash);
+        if (at < 0) {
+            at = -at - 1;
+        } else {
+            // The first of equal points, as placed
+            while (at > 0 && points[at - 1] == hash) {
+                at--;
+            }
+        }
+        return owners[at == points.length ? 0 : at];
+    }
+
+    public int owner(String email) {
+        byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+        return owner(bytes, 0, bytes.length);
+    }
+
+    /**
+     * This ring with {@code node} added after the existing nodes.
+     */
+    public ShardRing with(String node) {
+        List<String> grown = new ArrayList<>(nodes);
+        grown.add(node);
+        return new ShardRing(grown, virtualNodes);
+    }
+
+    /**
+     * This ring without {@code node}; the remaining nodes keep their points.
+     */
+    public ShardRing without(String node) {
+        List<String> shrunk = new ArrayList<>(nodes);
+        if (!shrunk.remove(node)) {
+            throw new IllegalArgumentException("Not a node of this ring: " + node);
+        }
+        return new ShardRing(shrunk, virtualNodes);
+    }
+
+    /**
+     * 64-bit FNV-1a over the bytes, finished with the MurmurHash3 mixer so that emails differing only in their last
+     * characters still land far apart.
+     */
+    static long hash(byte[] bytes, int offset, int length) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ bytes[i] & 0xFF) * 0x100000001B3L;
+        }
+        hash = (hash ^ hash >>> 33) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ hash >>> 33) * 0xC4CEB93FE5A6F0C3L;
+        return hash ^ hash >>> 33;
+    }
+}
@@ -0,0 +1,159 @@
+package pro.knoweledgecity;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * HTTP front end that spreads users over several quiz servers: every {@code POST /} is forwarded unchanged to the
+ * node that owns its email on a {@link ShardRing}, and that node's status, body and {@code Retry-After} are sent back.
+ *
+ * <p>Each user lives on exactly one node, so {@code login}, {@code question}, {@code answer}, {@code batch},
+ * {@code score} and {@code reset} behave as on a single server, and each node applies its own admission limits to
+ * the emails it owns. {@code rank} and {@code leaderboard} would need every node's users, which no node has, so
+ * they get {@value #GLOBAL_ACTION_STATUS} instead of a node's partial answer. A request without an email still goes
+ * to a node, which reports the error as a single server would. Requests to a node that cannot be reached get
+ * {@value #SHARD_UNAVAILABLE_STATUS}, and requests whose parameters cannot be decoded get the same 400 as from
+ * {@link QuizServer} without being forwarded.
+ *
+ * <p>{@link #ring(ShardRing)} switches to a new ring while serving. The ring moves only about {@code 1/N} of the
+ * users when a node is added or removed, but their sessions stay on the node they left: moved users log in again
+ * on their new node.
+ */
+public final class ShardRouter implements AutoCloseable {
+    static final int SHARD_UNAVAILABLE_STATUS = 502;
+    static final QuizResponse SHARD_UNAVAILABLE = new QuizResponse(SHARD_UNAVAILABLE_STATUS,
+            ByteBuffer.wrap("Error: Shard unavailable".getBytes(StandardCharsets.UTF_8)));
+    static final int GLOBAL_ACTION_STATUS = 501;
+    static final QuizResponse GLOBAL_ACTION_UNSUPPORTED = new QuizResponse(GLOBAL_ACTION_STATUS,
+            ByteBuffer.wrap("Error: Action not supported across shards".getBytes(StandardCharsets.UTF_8)));
+    private static final int BACKLOG = 4096;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private volatile ShardRing ring;
+
+    private ShardRouter(HttpServer http, ExecutorService executor, ShardRing ring) {
+        this.http = http;
+        this.executor = executor;
+        this.ring = ring;
+        // Keep-alive connections to the nodes are pooled by the client and shared by all request threads
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .executor(executor)
+                .build();
+    }
+
+    public static ShardRouter start(int port, ShardRing ring) {
+        HttpServer http;
+        try {
+            http = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot bind shard router to port " + port, e);
+        }
+        ExecutorService executor = Threads.newPerTaskExecutor();
+        ShardRouter router = new ShardRouter(http, executor, ring);
+        http.createContext("/", router::handle);
+        http.setExecutor(executor);
+        http.start();
+        return router;
+    }
+
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port();
+    }
+
+    public ShardRing ring() {
+        return ring;
+    }
+
+    /**
+     * Routes requests that arrive from now on over {@code ring}; requests already forwarded finish on their node.
+     */
+    public void ring(ShardRing ring) {
+        this.ring = ring;
+    }
+
+    @Override
+    public void close() {
+        http.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            QuizResponse response;
+            String retryAfter = null;
+            if ("POST".equals(exchange.getRequestMethod())) {
+                String rawQuery = exchange.getRequestURI().getRawQuery();
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                QuizRequest request = QuizServer.decode(rawQuery, new ByteArrayInputStream(body));
+                if (request == null) {
+                    response = QuizServer.MALFORMED_REQUEST;
+                } else if (request.action() == Action.RANK || request.action() == Action.LEADERBOARD) {
+                    response = GLOBAL_ACTION_UNSUPPORTED;
+                } else {
+                    ShardRing current = ring;
+                    int owner = request.hasEmail()
+                            ? current.owner(request.bytes(), request.emailOffset(), request.emailLength()) : 0;
+                    HttpResponse<byte[]> forwarded = forward(current.node(owner), rawQuery, body);
+                    if (forwarded == null) {
+                        response = SHARD_UNAVAILABLE;
+                    } else {
+                        response = new QuizResponse(forwarded.statusCode(), ByteBuffer.wrap(forwarded.body()));
+                        retryAfter = forwarded.headers().firstValue("Retry-After").orElse(null);
+                    }
+                }
+            } else {
+                response = QuizServer.METHOD_NOT_ALLOWED;
+            }
+            if (retryAfter != null) {
+                exchange.getResponseHeaders().set("Retry-After", retryAfter);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(response.status(), response.length() == 0 ? -1 : response.length());
+            try (OutputStream out = exchange.getResponseBody()) {
+                response.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Sends the request to {@code node} as it came; returns {@code null} when the node cannot be reached.
+     */
+    private HttpResponse<byte[]> forward(String node, String rawQuery, byte[] body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(rawQuery == null ? node + "/" : node + "/?" + rawQuery))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
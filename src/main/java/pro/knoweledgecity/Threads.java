@@ -0,0 +1,25 @@
+package pro.knoweledgecity;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Thread factories shared by the server and the load tools.
+ */
+public final class Threads {
+
+    private Threads() {
+    }
+
+    /**
+     * Runs every task on its own virtual thread when the runtime provides them (JDK 21+), and on a cached
+     * platform-thread pool otherwise, so the project still builds and runs on JDK 17.
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
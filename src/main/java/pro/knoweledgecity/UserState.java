@@ -0,0 +1,418 @@
+package pro.knoweledgecity;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Lock-free progress of one logged-in user: a handle onto the user's slots in the {@link SessionStore} arrays,
+ * created per request and cheap to drop. Handles of the same user share all state.
+ *
+ * <p>An epoch, the score and the question cursor are packed into a single {@code long}
+ * ({@code epoch << 48 | score << 24 | cursor}), so serving a question, crediting an answer, reading the score and
+ * resetting are each one CAS on that word. Credited questions are claimed with an atomic test-and-set before the
+ * score is incremented, which keeps each question worth at most one point however many threads answer it. The
+ * only lock is the one {@link Leaderboard} takes, by id, to move the user between score buckets.
+ *
+ * <p>A reset bumps the epoch, and every credited set records the epoch it was created in; a set from an older
+ * epoch reads as empty and is dropped by whoever meets it next, so the reset's CAS forgets the credited questions
+ * too. A claim only counts if the epoch is unchanged when its point is added; otherwise the answer is claimed
+ * again in the new epoch's set, as if it had arrived after the reset.
+ *
+ * <p>Most users answer a few questions of a large bank, so the credited set starts empty ({@code null}) and sparse:
+ * an {@code int[]} of the epoch followed by {@code questionId + 1} filled from the front, where a question is
+ * claimed by CAS-ing the first zero slot. Slots are only ever appended in order, so two threads claiming the same
+ * question meet at the same slot. A full array can no longer change; it is replaced with CAS by one twice its
+ * size, or by a dense bitset of the whole bank (after a word holding the epoch) once that is smaller. Dense words
+ * are set with CAS. A user who answered 8 of 10,000 questions holds 56 bytes instead of the 1,280 of an eager
+ * bitset.
+ */
+public final class UserState {
+    /**
+     * Largest question bank the packed word can count; score and cursor take 24 bits each.
+     */
+    public static final int MAX_QUESTIONS = (1 << 24) - 1;
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ANSWERED = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final VarHandle RANKED = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int FIRST_SLOTS = 4;
+    // Outcomes of markAnswered
+    private static final int ALREADY = 0;
+    private static final int CREDITED = 1;
+    private static final int STALE = -1;
+
+    private final SessionStore store;
+    private final int id;
+    private final int slot;
+    private final long[] words;
+    // Credited questions per slot: null when none, int[] slots while sparse, long[] bitset once dense
+    private final Object[] answered;
+    // Score bucket each user is filed under in the leaderboard, -1 until added
+    private final int[] rankedScores;
+
+    UserState(SessionStore store, int id) {
+        this.store = store;
+        this.id = id;
+        this.slot = id & SessionStore.PAGE_MASK;
+        this.words = store.wordPage(id);
+        this.answered = store.answeredPage(id);
+        this.rankedScores = store.rankedScorePage(id);
+    }
+
+    static long pack(int epoch, int score, int cursor) {
+        return (long) (epoch & 0xFFFF) << 48 | (long) score << 24 | cursor;
+    }
+
+    static int epoch(long word) {
+        return (int) (word >>> 48);
+    }
+
+    static int score(long word) {
+        return (int) (word >>> 24) & MAX_QUESTIONS;
+    }
+
+    static int cursor(long word) {
+        return (int) word & MAX_QUESTIONS;
+    }
+
+    /**
+     * Dense id assigned at login, used to refer to the user in the journal.
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * Decodes the email from the store; not meant for the request path.
+     */
+    public String email() {
+        return store.email(id);
+    }
+
+    public int score() {
+        return score(word());
+    }
+
+    public int cursor() {
+        return cursor(word());
+    }
+
+    /**
+     * Returns the id of the next question and advances the cursor, or {@code -1} when all {@code total}
+     * questions have been served.
+     */
+    public int nextQuestion(int total) {
+        long current;
+        int cursor;
+        do {
+            current = word();
+            cursor = cursor(current);
+            if (cursor >= total) {
+                return -1;
+            }
+        } while (!WORDS.compareAndSet(words, slot, current, pack(epoch(current), score(current), cursor + 1)));
+        return cursor;
+    }
+
+    /**
+     * Records a correct answer: moves the cursor past {@code questionId} and adds a point unless the question
+     * was already credited. Returns whether a point was added.
+     */
+    public boolean recordCorrect(int questionId) {
+        while (true) {
+            long current = word();
+            int epoch = epoch(current);
+            int marked = markAnswered(questionId, epoch);
+            if (marked == STALE) {
+                continue;
+            }
+            while (epoch(current) == epoch) {
+                long next = pack(epoch, score(current) + marked, Math.max(cursor(current), questionId + 1));
+                if (next == current || WORDS.compareAndSet(words, slot, current, next)) {
+                    return marked == CREDITED;
+                }
+                current = word();
+            }
+        }
+    }
+
+    /**
+     * Records the correct entries of a batch of answers and adds all their points with one CAS on the packed word,
+     * so readers see either none or all of the batch's points. Returns the resulting score.
+     */
+    public int recordCorrect(int[] questionIds, boolean[] correct, int count) {
+        int cursorAfter = 0;
+        for (int i = 0; i < count; i++) {
+            if (correct[i]) {
+                cursorAfter = Math.max(cursorAfter, questionIds[i] + 1);
+            }
+        }
+        while (true) {
+            long current = word();
+            int epoch = epoch(current);
+            int credits = markAnswered(questionIds, correct, count, epoch);
+            if (credits < 0) {
+                continue;
+            }
+            while (epoch(current) == epoch) {
+                long next = pack(epoch, score(current) + credits, Math.max(cursor(current), cursorAfter));
+                if (next == current || WORDS.compareAndSet(words, slot, current, next)) {
+                    return score(next);
+                }
+                current = word();
+            }
+        }
+    }
+
+    public boolean isAnswered(int questionId) {
+        Object set = credited();
+        if (set instanceof long[] bits) {
+            return ((long) BITS.getVolatile(bits, 1 + (questionId >>> 6)) & 1L << questionId) != 0;
+        }
+        if (set instanceof int[] slots) {
+            return find(slots, questionId + 1) >= 0;
+        }
+        return false;
+    }
+
+    /**
+     * Moves the cursor forward to {@code cursor} unless it is already there or past it; replay uses it to apply a
+     * served question idempotently.
+     */
+    void advanceCursor(int cursor) {
+        long current;
+        do {
+            current = word();
+            if (cursor(current) >= cursor) {
+                return;
+            }
+        } while (!WORDS.compareAndSet(words, slot, current, pack(epoch(current), score(current), cursor)));
+    }
+
+    /**
+     * Copies the credited question ids into {@code ids}, which must hold the whole bank, and returns how many there
+     * are. Taken while answers are being credited, the copy holds at least the questions credited before the call.
+     */
+    int answered(int[] ids) {
+        Object set = credited();
+        int count = 0;
+        if (set instanceof long[] bits) {
+            for (int word = 1; word < bits.length; word++) {
+                for (long remaining = (long) BITS.getVolatile(bits, word); remaining != 0; remaining &= remaining - 1) {
+                    ids[count++] = (word - 1) << 6 | Long.numberOfTrailingZeros(remaining);
+                }
+            }
+        } else if (set instanceof int[] slots) {
+            for (int i = 1; i < slots.length; i++) {
+                int entry = (int) SLOT.getVolatile(slots, i);
+                if (entry == 0) {
+                    break;
+                }
+                ids[count++] = entry - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replaces the user's progress with {@code cursor} and the {@code count} distinct credited questions in
+     * {@code ids}, scoring one point each. Only used while loading a snapshot, before serving requests.
+     */
+    void restore(int cursor, int[] ids, int count) {
+        Object set = null;
+        if (count > 0 && (long) count * 4 >= denseBytes()) {
+            long[] bits = new long[1 + wordCount()];
+            for (int i = 0; i < count; i++) {
+                bits[1 + (ids[i] >>> 6)] |= 1L << ids[i];
+            }
+            set = bits;
+        } else if (count > 0) {
+            // A full sparse array is valid: the next claim replaces it, as it would any full one
+            int[] slots = new int[1 + count];
+            for (int i = 0; i < count; i++) {
+                slots[1 + i] = ids[i] + 1;
+            }
+            set = slots;
+        }
+        ANSWERED.setVolatile(answered, slot, set);
+        WORDS.setVolatile(words, slot, pack(0, count, cursor));
+    }
+
+    /**
+     * Clears score and cursor and starts a new epoch in one CAS, which also forgets the credited questions; the
+     * old set is then dropped so that it can be collected.
+     */
+    public void reset() {
+        long current;
+        long next;
+        do {
+            current = word();
+            next = pack(epoch(current) + 1, 0, 0);
+        } while (!WORDS.compareAndSet(words, slot, current, next));
+        Object set;
+        while ((set = ANSWERED.getVolatile(answered, slot)) != null && setEpoch(set) != epoch(word())) {
+            ANSWERED.compareAndSet(answered, slot, set, null);
+        }
+    }
+
+    /**
+     * The credited set of the current epoch, or {@code null} when nothing was credited in it.
+     */
+    private Object credited() {
+        while (true) {
+            long current = word();
+            Object set = ANSWERED.getVolatile(answered, slot);
+            if (set == null || setEpoch(set) == epoch(current)) {
+                return set;
+            }
+            if (epoch(word()) == epoch(current)) {
+                // A set left behind by a reset: the new epoch had no set of its own when it was read
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Atomically adds {@code questionId} to the credited set of {@code epoch}: returns {@link #CREDITED}, or
+     * {@link #ALREADY} when it was already there, or {@link #STALE} once a reset has moved the user past
+     * {@code epoch}.
+     */
+    private int markAnswered(int questionId, int epoch) {
+        int entry = questionId + 1;
+        while (true) {
+            Object set = ANSWERED.getVolatile(answered, slot);
+            if (set != null && setEpoch(set) != epoch) {
+                if (epoch(word()) != epoch) {
+                    return STALE;
+                }
+                // Left behind by a reset that has not dropped it yet
+                ANSWERED.compareAndSet(answered, slot, set, null);
+            } else if (set instanceof long[] bits) {
+                return setBit(bits, questionId) ? CREDITED : ALREADY;
+            } else if (set instanceof int[] slots) {
+                int free = find(slots, entry);
+                if (free >= 0) {
+                    return ALREADY;
+                }
+                free = -free - 1;
+                while (free < slots.length) {
+                    int seen = (int) SLOT.compareAndExchange(slots, free, 0, entry);
+                    if (seen == 0) {
+                        return CREDITED;
+                    }
+                    if (seen == entry) {
+                        return ALREADY;
+                    }
+                    free++;
+                }
+                // Full arrays never change again, so copying one loses nothing
+                ANSWERED.compareAndSet(answered, slot, slots, grow(slots));
+            } else {
+                ANSWERED.compareAndSet(answered, slot, null, emptySet(epoch));
+            }
+        }
+    }
+
+    /**
+     * Marks the correct entries of a batch in the credited set of {@code epoch} and returns how many were new, or
+     * {@code -1} once a reset has moved the user past {@code epoch}.
+     */
+    private int markAnswered(int[] questionIds, boolean[] correct, int count, int epoch) {
+        int credits = 0;
+        for (int i = 0; i < count; i++) {
+            if (correct[i]) {
+                int marked = markAnswered(questionIds[i], epoch);
+                if (marked == STALE) {
+                    return -1;
+                }
+                credits += marked;
+            }
+        }
+        return credits;
+    }
+
+    /**
+     * Returns the slot holding {@code entry}, or {@code -(first free slot) - 1} when it is absent.
+     */
+    private static int find(int[] slots, int entry) {
+        for (int i = 1; i < slots.length; i++) {
+            int value = (int) SLOT.getVolatile(slots, i);
+            if (value == entry) {
+                return i;
+            }
+            if (value == 0) {
+                return -i - 1;
+            }
+        }
+        return -slots.length - 1;
+    }
+
+    private static int setEpoch(Object set) {
+        return set instanceof long[] bits ? (int) bits[0] : ((int[]) set)[0];
+    }
+
+    private Object emptySet(int epoch) {
+        if (denseBytes() <= FIRST_SLOTS * 4) {
+            long[] bits = new long[1 + wordCount()];
+            bits[0] = epoch;
+            return bits;
+        }
+        int[] slots = new int[1 + FIRST_SLOTS];
+        slots[0] = epoch;
+        return slots;
+    }
+
+    private Object grow(int[] full) {
+        int size = (full.length - 1) * 2;
+        if ((long) size * 4 >= denseBytes()) {
+            long[] bits = new long[1 + wordCount()];
+            bits[0] = full[0];
+            for (int i = 1; i < full.length; i++) {
+                int questionId = full[i] - 1;
+                bits[1 + (questionId >>> 6)] |= 1L << questionId;
+            }
+            return bits;
+        }
+        int[] slots = new int[1 + size];
+        System.arraycopy(full, 0, slots, 0, full.length);
+        return slots;
+    }
+
+    private static boolean setBit(long[] bits, int questionId) {
+        int index = 1 + (questionId >>> 6);
+        long mask = 1L << questionId;
+        long current;
+        do {
+            current = (long) BITS.getVolatile(bits, index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!BITS.compareAndSet(bits, index, current, current | mask));
+        return true;
+    }
+
+    private long word() {
+        return (long) WORDS.getVolatile(words, slot);
+    }
+
+    /**
+     * Score bucket the user is filed under in the {@link Leaderboard}, {@code -1} until added.
+     */
+    int rankedScore() {
+        return (int) RANKED.getVolatile(rankedScores, slot);
+    }
+
+    void rankedScore(int score) {
+        RANKED.setVolatile(rankedScores, slot, score);
+    }
+
+    private int wordCount() {
+        return (store.questionCount() + 63) >>> 6;
+    }
+
+    private long denseBytes() {
+        return (long) wordCount() * 8;
+    }
+}
@@ -0,0 +1,153 @@
+import io.qameta.allure.Description;
+import io.restassured.specification.RequestSpecification;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.api.parallel.Isolated;
+import pro.knoweledgecity.Action;
+import pro.knoweledgecity.AdmissionControl;
+import pro.knoweledgecity.QuizServer;
+import pro.knoweledgecity.QuizService;
+import pro.knoweledgecity.SessionStore;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Per-email admission control against a dedicated local server, so its limits never touch the shared one. Isolated
+ * so that the flood is the only load on the machine while normal users' latency is measured.
+ */
+@Isolated
+@Execution(ExecutionMode.SAME_THREAD)
+public class AdmissionControlTest extends BaseApiTest {
+    private static final int EMAIL_RATE = 50;
+
+    @Test
+    @Description("Verifies that one email flooding at 10x its limit gets 429 with Retry-After while other users keep "
+            + "their p99 under 50 ms.")
+    public void testFloodingEmailDoesNotHurtOthers() throws Exception {
+        QuizServer server = QuizServer.start(0, new QuizService(BANK, new SessionStore(BANK.size())),
+                new AdmissionControl(EMAIL_RATE, EMAIL_RATE, 0, 0));
+        try {
+            String flooder = generateRandomEmail();
+            String[] users = new String[10];
+            request(server).queryParam("email", flooder).queryParam("action", "login").post("/").then().statusCode(200);
+            for (int i = 0; i < users.length; i++) {
+                users[i] = generateRandomEmail();
+                request(server).queryParam("email", users[i]).queryParam("action", "login").post("/").then()
+                        .statusCode(200);
+            }
+
+            AtomicInteger rejected = new AtomicInteger();
+            AtomicInteger admitted = new AtomicInteger();
+            AtomicInteger missingRetryAfter = new AtomicInteger();
+            AtomicLong stop = new AtomicLong();
+            Thread flood = new Thread(() -> flood(server, flooder, stop, rejected, admitted, missingRetryAfter));
+            flood.start();
+            try {
+                // 200 calls spread over about two seconds, as ten users each checking in five times a second
+                for (int i = 0; i < 200; i++) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                    request(server)
+                            .queryParam("email", users[i % users.length])
+                            .queryParam("action", "score")
+                            .post("/")
+                            .then()
+                            .statusCode(200);
+                }
+            } finally {
+                stop.set(1);
+                flood.join();
+            }
+
+            assertTrue(rejected.get() > admitted.get(),
+                    "Flood got " + admitted + " admitted and " + rejected + " rejected");
+            assertEquals(0, missingRetryAfter.get(), missingRetryAfter + " rejections had no Retry-After");
+            assertLatency(Action.SCORE, 99, Duration.ofMillis(50), 200);
+            request(server)
+                    .get("/metrics")
+                    .then()
+                    .statusCode(200)
+                    .body(containsString("quiz_admission_rejected_total{limit=\"email\"} " + rejected.get()));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    @Description("Verifies that an email's burst is admitted, the next request waits about one interval, and other "
+            + "emails and encodings are charged as expected.")
+    public void testEmailBucket() {
+        AdmissionControl admission = new AdmissionControl(10, 3, 0, 0);
+        String query = "action=score&email=" + URLEncoder.encode("a+b@example.com", StandardCharsets.UTF_8);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, admission.admitQuery(query), "Burst request " + i + " was rejected");
+        }
+        long wait = admission.admitQuery(query);
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(50) && wait <= TimeUnit.MILLISECONDS.toNanos(100),
+                "Waited " + wait);
+        assertEquals(1, AdmissionControl.retryAfterSeconds(wait));
+        // The decoded form of the same email shares its bucket; another email has its own
+        assertTrue(admission.admitEmail("a+b@example.com") > 0);
+        assertEquals(0, admission.admitQuery("email=other@example.com&action=score"));
+        assertEquals(0, admission.admitQuery("action=score"));
+        assertEquals(0, AdmissionControl.UNLIMITED.admitQuery(query));
+    }
+
+    @Test
+    @Description("Verifies that the global limit rejects once its burst is spent, whatever the email.")
+    public void testGlobalBucket() {
+        AdmissionControl admission = new AdmissionControl(0, 0, 1, 1);
+        assertEquals(0, admission.admitQuery("email=a@example.com"));
+        long wait = admission.admitQuery("email=b@example.com");
+        assertTrue(wait > 0, "Second request within a second was admitted");
+        assertEquals(1, AdmissionControl.retryAfterSeconds(wait));
+    }
+
+    private static RequestSpecification request(QuizServer server) {
+        return baseRequest().baseUri(server.baseUrl());
+    }
+
+    /**
+     * Sends a score request for {@code email} every 2 ms, ten times its limit, until {@code stop} is set.
+     */
+    private static void flood(QuizServer server, String email, AtomicLong stop, AtomicInteger rejected,
+                              AtomicInteger admitted, AtomicInteger missingRetryAfter) {
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create(server.baseUrl() + "/?action=score&email="
+                + URLEncoder.encode(email, StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build();
+        long interval = TimeUnit.SECONDS.toNanos(1) / (EMAIL_RATE * 10);
+        long next = System.nanoTime();
+        while (stop.get() == 0) {
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 429) {
+                    rejected.incrementAndGet();
+                    if (response.headers().firstValue("Retry-After").isEmpty()) {
+                        missingRetryAfter.incrementAndGet();
+                    }
+                } else {
+                    admitted.incrementAndGet();
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Flood request failed", e);
+            }
+            next += interval;
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+    }
+}
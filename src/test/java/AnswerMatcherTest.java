@@ -0,0 +1,57 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.AnswerMatcher;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AnswerMatcherTest {
+
+    private static boolean matches(String expected, String submitted) {
+        return AnswerMatcher.compile(expected).matches(submitted.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @Description("Verifies that boolean answers accept yes/no synonyms in any case.")
+    public void testBooleanSynonyms() {
+        assertTrue(matches("true", "true"));
+        assertTrue(matches("true", " YES "));
+        assertTrue(matches("false", "No"));
+        assertFalse(matches("true", "no"));
+        assertFalse(matches("false", "yes"));
+        assertFalse(matches("true", "yess"));
+    }
+
+    @Test
+    @Description("Verifies that numeric answers compare by value.")
+    public void testNumericAnswers() {
+        assertTrue(matches("42", "42"));
+        assertTrue(matches("42", " +042 "));
+        assertFalse(matches("42", "-42"));
+        assertFalse(matches("42", "42.5"));
+        assertFalse(matches("42", "4 2"));
+        assertFalse(matches("42", "100"));
+    }
+
+    @Test
+    @Description("Verifies that text answers ignore case and fold whitespace.")
+    public void testFoldedTextAnswers() {
+        String expected = "To test the bartender's skills";
+        assertTrue(matches(expected, expected));
+        assertTrue(matches(expected, "\tto  TEST the bartender's\nskills  "));
+        assertFalse(matches(expected, "To test the bartenders skills"));
+        assertFalse(matches(expected, "To test the bartender's skills!"));
+        assertFalse(matches(expected, "To test the bartender's"));
+    }
+
+    @Test
+    @Description("Verifies that blank submissions never match.")
+    public void testBlankAnswers() {
+        assertFalse(matches("42", ""));
+        assertFalse(matches("true", "   "));
+        assertFalse(matches("To test the bartender's skills", ""));
+        assertFalse(matches("", ""));
+    }
+}
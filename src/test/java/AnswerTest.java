@@ -1,7 +1,10 @@
 import io.qameta.allure.Description;
 import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.ResponseReader;
+import pro.knoweledgecity.ResponseReader.Outcome;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class AnswerTest extends BaseApiTest {
 
@@ -10,12 +13,12 @@ public class AnswerTest extends BaseApiTest {
     public void testSubmitValidAnswer() {
 
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("answer", ANSWERS[0])
                 .queryParam("question_id", QUESTION_IDS[0])
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Correct answer"));
     }
@@ -24,11 +27,11 @@ public class AnswerTest extends BaseApiTest {
     @Description("Ensure that a 400 error is returned when the questionId parameter is missing.")
     public void testMissingQuestionId() {
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("answer", ANSWERS[2])
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(400)
                 .body(containsString("Error: Question ID parameter is missing"));
     }
@@ -37,12 +40,12 @@ public class AnswerTest extends BaseApiTest {
     @Description("Verifies handling of incorrect answer format (e.g., empty answer).")
     public void testInvalidAnswerFormat() {
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", QUESTION_IDS[1])
                 .queryParam("answer", "")
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Incorrect answer"));
     }
@@ -51,11 +54,11 @@ public class AnswerTest extends BaseApiTest {
     @Description("Verifies handling of missing answer.") // Bug #1
     public void testMissingAnswerFormat() {
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", QUESTION_IDS[1])
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Incorrect answer"));
     }
@@ -66,27 +69,19 @@ public class AnswerTest extends BaseApiTest {
         int nonExistentQuestionId = 9999;
 
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", nonExistentQuestionId)
                 .queryParam("answer", ANSWERS[0])
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(400);
     }
 
     @Test
     @Description("Verifies submitting an answer to a question as a new user.")
     public void testSubmitAnswerWithNewUser() {
-        String newUserEmail = generateRandomEmail();
-
-        // Create a new user
-        baseRequest()
-                .queryParam("email", newUserEmail)
-                .queryParam("action", "login")
-                .post("/")
-                .then().statusCode(200)
-                .body(containsString("You have successfully logged in"));
+        String newUserEmail = USERS.lease();
 
         // Submit an answer to an existing question
         baseRequest()
@@ -95,7 +90,7 @@ public class AnswerTest extends BaseApiTest {
                 .queryParam("question_id", QUESTION_IDS[1])
                 .queryParam("answer", ANSWERS[1])
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Correct answer"));
     }
@@ -110,45 +105,45 @@ public class AnswerTest extends BaseApiTest {
 
         // Correct answer "true"
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", QUESTION_IDS[2])
                 .queryParam("answer", ANSWERS[2])
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Correct answer"));
 
         // Correct answer "yes"
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", QUESTION_IDS[2])
                 .queryParam("answer", answerYes)
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Correct answer"));
 
         // Incorrect answer "false"
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", QUESTION_IDS[2])
                 .queryParam("answer", answerFalse)
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Incorrect answer"));
 
         // Incorrect answer "no"
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", QUESTION_IDS[2])
                 .queryParam("answer", answerNo)
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Incorrect answer"));
     }
@@ -159,12 +154,12 @@ public class AnswerTest extends BaseApiTest {
         int numericAnswer = 42;
 
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", QUESTION_IDS[1])
                 .queryParam("answer", numericAnswer)
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Correct answer"));
     }
@@ -176,37 +171,37 @@ public class AnswerTest extends BaseApiTest {
         String validAnswer = "To test the bartender's skills";
 
         // Retrieve initial score
-        String initialScoreResponse = baseRequest()
-                .queryParam("email", staticEmail)
+        byte[] initialScoreResponse = baseRequest()
+                .queryParam("email", userEmail)
                 .queryParam("action", "score")
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .extract()
-                .asString();
+                .asByteArray();
 
         int initialScore = extractScore(initialScoreResponse);
 
         // Submit the correct answer for the first time
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", questionId)
                 .queryParam("answer", validAnswer)
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Correct answer"));
 
         // Retrieve the score after the first correct answer
-        String firstAnswerScoreResponse = baseRequest()
-                .queryParam("email", staticEmail)
+        byte[] firstAnswerScoreResponse = baseRequest()
+                .queryParam("email", userEmail)
                 .queryParam("action", "score")
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .extract()
-                .asString();
+                .asByteArray();
 
         int firstAnswerScore = extractScore(firstAnswerScoreResponse);
 
@@ -215,23 +210,23 @@ public class AnswerTest extends BaseApiTest {
 
         // Submit the same answer again
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", questionId)
                 .queryParam("answer", validAnswer)
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200);
 
         // Retrieve the score after the second (duplicate) answer
-        String secondAnswerScoreResponse = baseRequest()
-                .queryParam("email", staticEmail)
+        byte[] secondAnswerScoreResponse = baseRequest()
+                .queryParam("email", userEmail)
                 .queryParam("action", "score")
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .extract()
-                .asString();
+                .asByteArray();
 
         int secondAnswerScore = extractScore(secondAnswerScoreResponse);
 
@@ -246,13 +241,68 @@ public class AnswerTest extends BaseApiTest {
         String incorrectNumericAnswer = "100";
 
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", questionId)
                 .queryParam("answer", incorrectNumericAnswer)
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Incorrect answer"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @Description("Verifies that a batch of answers is checked per question and credited in one round trip.")
+    public void testSubmitBatchAnswers() {
+        String[] questionIds = {QUESTION_IDS[0], QUESTION_IDS[1], QUESTION_IDS[2], QUESTION_IDS[2], QUESTION_IDS[3]};
+        String[] answers = {ANSWERS[0], "42", "yes", "true", "wrong"};
+
+        ResponseReader result = responseReader.read(submitAnswers(userEmail, questionIds, answers));
+
+        assertEquals(Outcome.BATCH, result.outcome(), "Unexpected outcome " + result.outcome());
+        assertEquals(questionIds.length, result.itemCount(), "Expected one result per pair");
+        boolean[] expected = {true, true, true, true, false};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(Integer.parseInt(questionIds[i]), result.itemQuestionId(i));
+            assertEquals(expected[i], result.itemCorrect(i), "Wrong result for pair " + i);
+        }
+        // The duplicate answer to question 2 is correct but worth no second point
+        assertEquals(3, result.score(), "Unexpected score " + result.score());
+    }
+
+    @Test
+    @Description("Ensure that a batch containing a non-existent question is rejected as a whole.")
+    public void testBatchWithNonExistentQuestion() {
+        baseRequest()
+                .queryParam("email", userEmail)
+                .queryParam("action", "batch")
+                .queryParam("question_id[0]", QUESTION_IDS[0])
+                .queryParam("answer[0]", ANSWERS[0])
+                .queryParam("question_id[1]", 9999)
+                .queryParam("answer[1]", ANSWERS[1])
+                .post("/")
+                .then()
+                .statusCode(400)
+                .body(containsString("Error: Invalid question ID"));
+
+        baseRequest()
+                .queryParam("email", userEmail)
+                .queryParam("action", "score")
+                .post("/")
+                .then()
+                .statusCode(200)
+                .body(containsString("Current score: 0"));
+    }
+
+    @Test
+    @Description("Ensure that a 400 error is returned when a batch has no question IDs.")
+    public void testEmptyBatch() {
+        baseRequest()
+                .queryParam("email", userEmail)
+                .queryParam("action", "batch")
+                .post("/")
+                .then()
+                .statusCode(400)
+                .body(containsString("Error: Question ID parameter is missing"));
+    }
+}
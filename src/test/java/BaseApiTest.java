@@ -1,41 +1,115 @@
-import com.github.javafaker.Faker;
 import io.restassured.RestAssured;
+import io.restassured.specification.RequestSpecification;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
+import pro.knoweledgecity.Action;
+import pro.knoweledgecity.LatencyHistogram;
+import pro.knoweledgecity.NioQuizServer;
+import pro.knoweledgecity.QuestionBank;
+import pro.knoweledgecity.QuizServer;
+import pro.knoweledgecity.QuizService;
+import pro.knoweledgecity.ResponseReader;
+import pro.knoweledgecity.SessionStore;
+
+import java.nio.file.Path;
+import java.time.Duration;
 
 import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+@ExtendWith({HttpCaptureExtension.class, LatencyRecordingExtension.class})
 public class BaseApiTest {
-    protected static final String[] QUESTIONS = {
-            "Why did the QA engineer go to the bar?",
-            "How many QA engineers does it take to change a light bulb?",
-            "Did the QA engineer enjoy their last bug hunt?",
-            "Why did the QA engineer drown in the pool?",
-            "Is it possible for a QA engineer to have too much coffee?"
-    };
-
-    protected static final String[] ANSWERS = {
-            "To test the bartender's skills",
-            "42",
-            "true",
-            "Because they didn't receive the 'float' property!",
-            "false"
-    };
-    protected static final String[] QUESTION_IDS = {"0", "1", "2", "3", "4"};
-    protected static Faker faker = new Faker();
-    protected final String BASE_URL = "https://qa-test.kcdev.pro";
-    protected final String staticEmail = "niwatarou@gmail.com";
-
-    protected static io.restassured.specification.RequestSpecification baseRequest() {
-        return given().contentType("application/x-www-form-urlencoded");
+    // Pass -Dquiz.questions=<file> to run against a saved bank; it must match the remote server's when baseUrl is set
+    protected static final QuestionBank BANK = resolveBank();
+    protected static final String[] QUESTIONS = new String[BANK.size()];
+    protected static final String[] ANSWERS = new String[BANK.size()];
+    protected static final String[] QUESTION_IDS = new String[BANK.size()];
+
+    static {
+        for (int id = 0; id < BANK.size(); id++) {
+            QUESTIONS[id] = BANK.question(id);
+            ANSWERS[id] = BANK.answer(id);
+            QUESTION_IDS[id] = Integer.toString(id);
+        }
+    }
+
+    // Pass -DbaseUrl=https://qa-test.kcdev.pro to run the suite against a remote server instead of the local one,
+    // or -Dquiz.frontend=nio to run it against the local selector-based server
+    protected static final String BASE_URL = resolveBaseUrl();
+    // Latency budgets are multiplied by -Dlatency.budgetScale, e.g. 4 against a remote server
+    protected static final double BUDGET_SCALE = Double.parseDouble(System.getProperty("latency.budgetScale", "1"));
+    // Logged in once for the whole suite, before the first test runs
+    protected static final UserPool USERS = UserPool.provision(Integer.getInteger("users.pool", 128));
+    protected final ResponseReader responseReader = new ResponseReader();
+    // Logged-in user owned by the current test, so tests never share progress
+    protected String userEmail;
+
+    protected static RequestSpecification baseRequest() {
+        return given()
+                .filter(HttpCaptureFilter.INSTANCE)
+                .filter(LatencyRecordingFilter.INSTANCE)
+                .filter(TraceRecordingFilter.INSTANCE)
+                .contentType("application/x-www-form-urlencoded");
+    }
+
+    /**
+     * Fails unless this test made at least {@code minCalls} calls to {@code action} and the given percentile (0-100)
+     * of them answered within {@code budget}, e.g. {@code assertLatency(Action.SCORE, 99, Duration.ofMillis(50), 200)}.
+     */
+    protected static void assertLatency(Action action, double percentile, Duration budget, int minCalls) {
+        LatencyHistogram histogram = LatencyRecordingFilter.histogram(action);
+        long calls = histogram.count();
+        assertTrue(calls >= minCalls,
+                "Expected at least " + minCalls + " " + action.param() + " calls, recorded " + calls);
+        long limit = (long) (budget.toNanos() * BUDGET_SCALE);
+        long observed = histogram.valueAtPercentile(percentile);
+        assertTrue(observed <= limit, String.format("%s p%s was %.2f ms over %d calls, budget %.2f ms",
+                action.param(), percentile, LatencyRecordingFilter.millis(observed), calls,
+                LatencyRecordingFilter.millis(limit)));
+    }
+
+    private static QuestionBank resolveBank() {
+        String path = System.getProperty("quiz.questions");
+        return path != null ? QuestionBank.open(Path.of(path)) : QuestionBank.defaultBank();
+    }
+
+    private static String resolveBaseUrl() {
+        String configured = System.getProperty("baseUrl");
+        String baseUrl;
+        if (configured != null && !configured.isBlank()) {
+            baseUrl = configured;
+        } else if ("nio".equals(System.getProperty("quiz.frontend"))) {
+            NioQuizServer server = NioQuizServer.start(0, new QuizService(BANK, new SessionStore(BANK.size())));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            baseUrl = server.baseUrl();
+        } else {
+            QuizServer server = QuizServer.start(0, BANK);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            baseUrl = server.baseUrl();
+        }
+        RestAssured.baseURI = baseUrl;
+        return baseUrl;
     }
 
     @BeforeEach
     public void setup() {
-        RestAssured.baseURI = BASE_URL;
+        userEmail = USERS.lease();
     }
 
+    /**
+     * Returns an address unique across parallel tests and suite runs that has not been logged in.
+     */
     protected String generateRandomEmail() {
-        return faker.internet().emailAddress();
+        return UserPool.freshEmail();
+    }
+
+    protected void loginUser(String email) {
+        baseRequest()
+                .queryParam("email", email)
+                .queryParam("action", "login")
+                .post("/")
+                .then()
+                .statusCode(200);
     }
 
     protected void resetUserState(String email) {
@@ -44,28 +118,33 @@ public class BaseApiTest {
                 .queryParam("action", "reset")
                 .post("/")
                 .then()
-                .log().all()
                 .statusCode(200);
     }
 
-    protected int extractScore(String response) {
-        String scorePrefix = "Current score: ";
-        int index = response.indexOf(scorePrefix);
-        if (index != -1) {
-            return Integer.parseInt(response.substring(index + scorePrefix.length()).trim());
+    /**
+     * Submits every (question id, answer) pair in one {@code action=batch} round trip and returns the response body.
+     */
+    protected byte[] submitAnswers(String email, String[] questionIds, String[] answers) {
+        RequestSpecification request = baseRequest()
+                .queryParam("email", email)
+                .queryParam("action", "batch");
+        for (int i = 0; i < questionIds.length; i++) {
+            request.queryParam("question_id[" + i + "]", questionIds[i])
+                    .queryParam("answer[" + i + "]", answers[i]);
         }
-        throw new IllegalStateException("Score not found in response");
+        return request
+                .post("/")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asByteArray();
     }
 
-    protected int extractQuestionId(String response) {
-        String[] lines = response.split("\n");
-        for (String line : lines) {
-            if (line.startsWith("Id:")) {
-                return Integer.parseInt(line.replace("Id:", "").trim());
-            }
-        }
-        throw new IllegalStateException("Id not found in response");
+    protected int extractScore(byte[] response) {
+        return responseReader.read(response).score();
     }
-}
-
 
+    protected int extractQuestionId(byte[] response) {
+        return responseReader.read(response).questionId();
+    }
+}
@@ -0,0 +1,213 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pro.knoweledgecity.CheckpointedJournal;
+import pro.knoweledgecity.FsyncPolicy;
+import pro.knoweledgecity.QuestionBank;
+import pro.knoweledgecity.QuizService;
+import pro.knoweledgecity.SessionStore;
+import pro.knoweledgecity.UserState;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CheckpointedJournalTest {
+    private static final int THREADS = 4;
+    private static final int USERS_PER_THREAD = 5_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @Description("Verifies that a checkpoint replaces the journal with a snapshot and the next journal, and that "
+            + "recovery rebuilds the same state from them.")
+    public void testCheckpointReplacesJournal() throws Exception {
+        Path base = dir.resolve("quiz.journal");
+        SessionStore store = new SessionStore(5);
+        try (CheckpointedJournal journal = open(base, store)) {
+            QuizService service = new QuizService(QuestionBank.defaultBank(), store, journal);
+            service.handle(Map.of("email", "before@example.com", "action", "login"));
+            service.handle(Map.of("email", "before@example.com", "action", "question"));
+            service.handle(Map.of("email", "before@example.com", "action", "answer", "question_id", "1",
+                    "answer", "42"));
+            assertEquals(1, journal.checkpoint());
+            service.handle(Map.of("email", "after@example.com", "action", "login"));
+            service.handle(Map.of("email", "after@example.com", "action", "answer", "question_id", "2",
+                    "answer", "yes"));
+            service.handle(Map.of("email", "before@example.com", "action", "question"));
+        }
+        assertFalse(Files.exists(base), "Journal replaced by the snapshot was kept");
+        assertTrue(Files.exists(dir.resolve("quiz.journal.1")) && Files.exists(dir.resolve("quiz.journal.snapshot")));
+
+        SessionStore restored = new SessionStore(5);
+        try (CheckpointedJournal journal = open(base, restored)) {
+            assertEquals(3, journal.recoveredEvents(),
+                    "Replayed " + journal.recoveredEvents() + " events after the snapshot");
+            UserState before = restored.get("before@example.com");
+            assertTrue(before.score() == 1 && before.cursor() == 3 && before.isAnswered(1),
+                    before.score() + " " + before.cursor());
+            UserState after = restored.get("after@example.com");
+            assertTrue(after.score() == 1 && after.cursor() == 3 && after.isAnswered(2));
+            assertTrue(restored.leaderboard().rank(after) == 1 && restored.leaderboard().size() == 2);
+            assertEquals(2, restored.login("third@example.com").id(), "Ids must continue after recovered users");
+        }
+    }
+
+    @Test
+    @Description("Verifies that sparse and dense credited sets, long emails and the login order survive a snapshot.")
+    public void testSnapshotRestoresEveryUser() {
+        int questions = 300;
+        Path base = dir.resolve("sets.journal");
+        SessionStore store = new SessionStore(questions);
+        String longEmail = "l".repeat(200) + "@example.com";
+        try (CheckpointedJournal journal = open(base, store)) {
+            for (int user = 0; user < 100; user++) {
+                UserState state = store.login(user == 7 ? longEmail : "user" + user + "@example.com");
+                journal.login(state.id(), state.email());
+                // User n is credited every n-th question, from dense for user 1 to a single question
+                for (int question = 0; question < questions; question += user + 1) {
+                    state.recordCorrect(question);
+                }
+                state.nextQuestion(questions);
+            }
+            store.get("user3@example.com").reset();
+            journal.checkpoint();
+        }
+
+        SessionStore restored = new SessionStore(questions);
+        try (CheckpointedJournal journal = open(base, restored)) {
+            assertEquals(0, journal.recoveredEvents());
+            for (int user = 0; user < 100; user++) {
+                String email = user == 7 ? longEmail : "user" + user + "@example.com";
+                assertSameUser(store.get(email), restored.get(email), questions);
+                assertEquals(user, restored.get(email).id());
+            }
+            UserState dense = restored.get("user0@example.com");
+            assertTrue(dense.score() == questions && !dense.recordCorrect(17) && dense.score() == questions);
+            UserState sparse = restored.get("user50@example.com");
+            assertTrue(sparse.recordCorrect(1) && sparse.score() == 7 && !sparse.recordCorrect(51));
+        }
+    }
+
+    @Test
+    @Description("Verifies that checkpoints taken while users keep answering, advancing and resetting lose and "
+            + "duplicate nothing.")
+    public void testCheckpointsUnderLoad() throws Exception {
+        int questions = 1000;
+        Path base = dir.resolve("load.journal");
+        SessionStore store = new SessionStore(questions);
+        int checkpoints = 0;
+        try (CheckpointedJournal journal = open(base, store)) {
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                workers.add(pool.submit(() -> {
+                    // Each user belongs to one thread, as requests of one user are serialized by its client
+                    Random random = new Random(thread);
+                    UserState[] users = new UserState[USERS_PER_THREAD];
+                    for (int i = 0; i < USERS_PER_THREAD; i++) {
+                        users[i] = store.login("load" + thread + "." + i + "@example.com");
+                        journal.login(users[i].id(), users[i].email());
+                    }
+                    for (int round = 0; round < 200_000; round++) {
+                        UserState user = users[random.nextInt(USERS_PER_THREAD)];
+                        int choice = random.nextInt(100);
+                        if (choice < 60) {
+                            // Answers stay near the front so that served questions, not answers, move the cursors
+                            int question = random.nextInt(questions / 20);
+                            user.recordCorrect(question);
+                            journal.answer(user.id(), question);
+                        } else if (choice < 98) {
+                            int served = user.nextQuestion(questions);
+                            if (served >= 0) {
+                                journal.question(user.id(), served);
+                            }
+                        } else {
+                            user.reset();
+                            journal.reset(user.id());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            pool.shutdown();
+            while (!workers.stream().allMatch(Future::isDone)) {
+                journal.checkpoint();
+                checkpoints++;
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        assertTrue(checkpoints > 1, "Only " + checkpoints + " checkpoint ran during the load");
+
+        // Recovery happens while opening, so the journal is not needed afterwards
+        SessionStore restored = new SessionStore(questions);
+        open(base, restored).close();
+        assertEquals(THREADS * USERS_PER_THREAD, restored.size());
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                String email = "load" + t + "." + i + "@example.com";
+                assertSameUser(store.get(email), restored.get(email), questions);
+            }
+        }
+    }
+
+    @Test
+    @Description("Verifies that a failed checkpoint is counted, keeps the journal it would have replaced and is "
+            + "retried by the next.")
+    public void testFailedCheckpointIsCounted() throws Exception {
+        Path base = dir.resolve("failed.journal");
+        Path blocked = dir.resolve("failed.journal.snapshot.tmp");
+        SessionStore store = new SessionStore(5);
+        try (CheckpointedJournal journal = open(base, store)) {
+            QuizService service = new QuizService(QuestionBank.defaultBank(), store, journal);
+            service.handle(Map.of("email", "failed@example.com", "action", "login"));
+            // A directory where the snapshot's temporary file goes makes writing it fail
+            Files.createDirectories(blocked.resolve("child"));
+            assertThrows(UncheckedIOException.class, journal::checkpoint);
+            assertTrue(Files.exists(base), "Journal dropped by a failed checkpoint");
+            Files.delete(blocked.resolve("child"));
+            Files.delete(blocked);
+            assertEquals(1, journal.checkpoint());
+            StringBuilder text = new StringBuilder();
+            journal.writeTo(text);
+            assertTrue(text.indexOf("quiz_journal_checkpoints_total{result=\"ok\"} 1\n") >= 0
+                    && text.indexOf("quiz_journal_checkpoints_total{result=\"failed\"} 1\n") >= 0, text.toString());
+        }
+        SessionStore restored = new SessionStore(5);
+        try (CheckpointedJournal journal = open(base, restored)) {
+            assertTrue(journal.recoveredEvents() == 0 && restored.get("failed@example.com") != null);
+        }
+    }
+
+    private static void assertSameUser(UserState expected, UserState actual, int questions) {
+        String email = expected.email();
+        assertNotNull(actual, email + " lost");
+        assertEquals(expected.score(), actual.score(), email + " score " + actual.score() + " != " + expected.score());
+        assertEquals(expected.cursor(), actual.cursor(),
+                email + " cursor " + actual.cursor() + " != " + expected.cursor());
+        for (int question = 0; question < questions; question++) {
+            assertEquals(expected.isAnswered(question), actual.isAnswered(question), email + " question " + question);
+        }
+    }
+
+    private static CheckpointedJournal open(Path base, SessionStore store) {
+        return CheckpointedJournal.open(base, store, FsyncPolicy.PERIODIC, 1000, 0);
+    }
+}
@@ -0,0 +1,111 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.EmailValidator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EmailValidatorTest {
+    // The pattern the validator used to run, kept as the reference for its accept/reject behaviour
+    private static final Pattern REFERENCE = Pattern.compile(
+            "^[A-Za-z0-9._%+-]{1,64}@[A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*\\.[A-Za-z]{2,}$");
+    private static final char[] ALPHABET = {'a', 'Z', '7', '.', '@', '-', '_', '%', '+', '"', ' ', 'é', '\n'};
+
+    @Test
+    @Description("Verifies that the validator agrees with the reference regex on every string of up to 5 characters "
+            + "over an email-shaped alphabet.")
+    public void testExhaustiveShortStrings() {
+        char[] chars = new char[5];
+        for (int length = 0; length <= chars.length; length++) {
+            int[] digits = new int[length];
+            while (true) {
+                for (int i = 0; i < length; i++) {
+                    chars[i] = ALPHABET[digits[i]];
+                }
+                assertAgrees(new String(chars, 0, length));
+                int i = length - 1;
+                while (i >= 0 && ++digits[i] == ALPHABET.length) {
+                    digits[i--] = 0;
+                }
+                if (i < 0) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Test
+    @Description("Verifies that the validator agrees with the reference regex on random mutations of valid addresses, "
+            + "including the length limits.")
+    public void testRandomMutations() {
+        Random random = new Random(20241018);
+        int runs = 200_000;
+        int accepted = 0;
+        for (int run = 0; run < runs; run++) {
+            StringBuilder email = new StringBuilder()
+                    .append(word(random, 1 + random.nextInt(random.nextInt(10) == 0 ? 80 : 12), "._%+-"))
+                    .append('@');
+            for (int labels = random.nextInt(4); labels >= 0; labels--) {
+                email.append(word(random, 1 + random.nextInt(random.nextInt(10) == 0 ? 120 : 10), "-")).append('.');
+            }
+            email.append(word(random, 1 + random.nextInt(4), ""));
+            for (int mutations = random.nextInt(3); mutations > 0; mutations--) {
+                int at = random.nextInt(email.length() + 1);
+                char c = ALPHABET[random.nextInt(ALPHABET.length)];
+                switch (random.nextInt(3)) {
+                    case 0 -> email.insert(at, c);
+                    case 1 -> email.deleteCharAt(Math.min(at, email.length() - 1));
+                    default -> email.setCharAt(Math.min(at, email.length() - 1), c);
+                }
+            }
+            if (assertAgrees(email.toString())) {
+                accepted++;
+            }
+        }
+        // Both outcomes must be well represented for the agreement to mean anything
+        assertTrue(accepted > runs / 10 && accepted < runs - runs / 10, accepted + " of " + runs + " accepted");
+    }
+
+    @Test
+    @Description("Verifies the accept/reject decisions the API tests rely on, for strings and raw bytes.")
+    public void testKnownAddresses() {
+        String[] valid = {"niwatarou@gmail.com", "a@b.co", "first.last+tag@sub-domain.example.org", "x%y@1-2.io"};
+        String[] invalid = {"testtest.test", "test@testtest", "test\"123\"@test.test", "", "@example.com",
+                "user@.com", "user@example.c", "user@example.c0m", "user@example..com", "user@@example.com",
+                "a".repeat(65) + "@example.com", "user@" + "a".repeat(250) + ".com", "user@exämple.com"};
+        for (String email : valid) {
+            assertTrue(EmailValidator.isValid(email) && isValidBytes(email), email + " should be valid");
+        }
+        for (String email : invalid) {
+            assertTrue(!EmailValidator.isValid(email) && !isValidBytes(email), email + " should be invalid");
+        }
+        assertFalse(EmailValidator.isValid(null));
+    }
+
+    private static boolean assertAgrees(String email) {
+        boolean expected = email.length() <= 254 && REFERENCE.matcher(email).matches();
+        assertEquals(expected, EmailValidator.isValid(email), "String \"" + email + "\" expected " + expected);
+        assertEquals(expected, isValidBytes(email), "Bytes of \"" + email + "\" expected " + expected);
+        return expected;
+    }
+
+    private static boolean isValidBytes(String email) {
+        byte[] bytes = ("#" + email + "#").getBytes(StandardCharsets.UTF_8);
+        return EmailValidator.isValid(bytes, 1, bytes.length - 2);
+    }
+
+    private static String word(Random random, int length, String extra) {
+        String letters = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        String alphabet = extra.isEmpty() ? letters : letters + "0123456789" + extra;
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return word.toString();
+    }
+}
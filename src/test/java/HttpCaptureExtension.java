@@ -0,0 +1,45 @@
+import io.qameta.allure.attachment.AttachmentData;
+import io.qameta.allure.attachment.DefaultAttachmentProcessor;
+import io.qameta.allure.attachment.FreemarkerAttachmentRenderer;
+import io.qameta.allure.attachment.http.HttpRequestAttachment;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.TestWatcher;
+
+import java.util.Optional;
+
+/**
+ * Attaches the exchanges captured by {@link HttpCaptureFilter} to the Allure report of failed tests only.
+ */
+public class HttpCaptureExtension implements BeforeEachCallback, TestWatcher {
+    private static final FreemarkerAttachmentRenderer REQUEST = new FreemarkerAttachmentRenderer("http-request.ftl");
+    private static final FreemarkerAttachmentRenderer RESPONSE = new FreemarkerAttachmentRenderer("http-response.ftl");
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        HttpCaptureFilter.open();
+    }
+
+    @Override
+    public void testFailed(ExtensionContext context, Throwable cause) {
+        DefaultAttachmentProcessor processor = new DefaultAttachmentProcessor();
+        for (AttachmentData attachment : HttpCaptureFilter.drain()) {
+            processor.addAttachment(attachment, attachment instanceof HttpRequestAttachment ? REQUEST : RESPONSE);
+        }
+    }
+
+    @Override
+    public void testSuccessful(ExtensionContext context) {
+        HttpCaptureFilter.discard();
+    }
+
+    @Override
+    public void testAborted(ExtensionContext context, Throwable cause) {
+        HttpCaptureFilter.discard();
+    }
+
+    @Override
+    public void testDisabled(ExtensionContext context, Optional<String> reason) {
+        HttpCaptureFilter.discard();
+    }
+}
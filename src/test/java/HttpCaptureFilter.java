@@ -0,0 +1,99 @@
+import io.qameta.allure.attachment.AttachmentData;
+import io.qameta.allure.attachment.http.HttpRequestAttachment;
+import io.qameta.allure.attachment.http.HttpResponseAttachment;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.http.Headers;
+import io.restassured.internal.NameAndValue;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records request/response pairs of the current test thread in memory instead of logging them.
+ *
+ * <p>{@link HttpCaptureExtension} opens the buffer before each test, attaches it to the Allure report when the test
+ * fails and drops it otherwise. Only references are kept while the test runs; the Allure attachments are built on
+ * failure. Requests made on threads without an open buffer pass through untouched.
+ */
+public final class HttpCaptureFilter implements OrderedFilter {
+    static final HttpCaptureFilter INSTANCE = new HttpCaptureFilter();
+
+    private static final ThreadLocal<List<Exchange>> BUFFER = new ThreadLocal<>();
+
+    private record Exchange(String method, String uri, Headers headers, Object body, Response response) {
+    }
+
+    private HttpCaptureFilter() {
+    }
+
+    static void open() {
+        BUFFER.set(new ArrayList<>());
+    }
+
+    /**
+     * Closes the buffer and drops what it captured.
+     */
+    static void discard() {
+        BUFFER.remove();
+    }
+
+    /**
+     * Closes the buffer and returns its exchanges as Allure request and response attachments, in order.
+     */
+    static List<AttachmentData> drain() {
+        List<Exchange> captured = BUFFER.get();
+        BUFFER.remove();
+        List<AttachmentData> attachments = new ArrayList<>();
+        if (captured == null) {
+            return attachments;
+        }
+        for (Exchange exchange : captured) {
+            HttpRequestAttachment.Builder request = HttpRequestAttachment.Builder
+                    .create("Request", exchange.uri())
+                    .setMethod(exchange.method())
+                    .setHeaders(toMap(exchange.headers()));
+            if (exchange.body() != null) {
+                request.setBody(String.valueOf(exchange.body()));
+            }
+            Response response = exchange.response();
+            attachments.add(request.build());
+            attachments.add(HttpResponseAttachment.Builder
+                    .create("Response " + response.getStatusCode())
+                    .setResponseCode(response.getStatusCode())
+                    .setHeaders(toMap(response.getHeaders()))
+                    .setBody(response.getBody().asString())
+                    .build());
+        }
+        return attachments;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec,
+                           FilterableResponseSpecification responseSpec,
+                           FilterContext context) {
+        Response response = context.next(requestSpec, responseSpec);
+        List<Exchange> buffer = BUFFER.get();
+        if (buffer != null) {
+            buffer.add(new Exchange(requestSpec.getMethod(), requestSpec.getURI(),
+                    requestSpec.getHeaders(), requestSpec.getBody(), response));
+        }
+        return response;
+    }
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+
+    private static Map<String, String> toMap(Iterable<? extends NameAndValue> values) {
+        Map<String, String> map = new LinkedHashMap<>();
+        values.forEach(value -> map.put(value.getName(), value.getValue()));
+        return map;
+    }
+}
@@ -0,0 +1,74 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.api.parallel.Isolated;
+import pro.knoweledgecity.Action;
+
+import java.time.Duration;
+
+/**
+ * Latency budgets of the quiz API, checked like functional behaviour. Isolated and run one method at a time so that
+ * other tests do not compete for the CPU while the budgets are measured.
+ */
+@Isolated
+@Execution(ExecutionMode.SAME_THREAD)
+public class LatencyBudgetTest extends BaseApiTest {
+
+    @Test
+    @Description("Checks that score answers within 50 ms at p99 over 200 calls.")
+    public void testScoreLatencyBudget() {
+        for (int i = 0; i < 200; i++) {
+            baseRequest()
+                    .queryParam("email", userEmail)
+                    .queryParam("action", "score")
+                    .post("/")
+                    .then()
+                    .statusCode(200);
+        }
+
+        assertLatency(Action.SCORE, 99, Duration.ofMillis(50), 200);
+    }
+
+    @Test
+    @Description("Checks that answer responds within 50 ms at p99 over 200 calls, correct or not.")
+    public void testAnswerLatencyBudget() {
+        for (int i = 0; i < 200; i++) {
+            int id = i % QUESTION_IDS.length;
+            baseRequest()
+                    .queryParam("email", userEmail)
+                    .queryParam("action", "answer")
+                    .queryParam("question_id", QUESTION_IDS[id])
+                    .queryParam("answer", i % 2 == 0 ? ANSWERS[id] : "wrong")
+                    .post("/")
+                    .then()
+                    .statusCode(200);
+        }
+
+        assertLatency(Action.ANSWER, 99, Duration.ofMillis(50), 200);
+    }
+
+    @Test
+    @Description("Checks that a budget the calls cannot meet, or too few calls, fails the test.")
+    public void testBudgetViolationFails() {
+        baseRequest()
+                .queryParam("email", userEmail)
+                .queryParam("action", "score")
+                .post("/")
+                .then()
+                .statusCode(200);
+
+        assertFails(() -> assertLatency(Action.SCORE, 99, Duration.ofNanos(1), 1));
+        assertFails(() -> assertLatency(Action.SCORE, 99, Duration.ofSeconds(10), 2));
+        assertLatency(Action.SCORE, 99, Duration.ofSeconds(10), 1);
+    }
+
+    private static void assertFails(Runnable check) {
+        try {
+            check.run();
+        } catch (AssertionError expected) {
+            return;
+        }
+        throw new AssertionError("Latency assertion passed unexpectedly");
+    }
+}
@@ -0,0 +1,45 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.LatencyHistogram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    @Description("Verifies that percentiles stay within the histogram's 1/128 relative error.")
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+        assertEquals(100_000, histogram.count());
+        assertClose(histogram.valueAtPercentile(50), 50_000_000);
+        assertClose(histogram.valueAtPercentile(99), 99_000_000);
+        assertClose(histogram.valueAtPercentile(99.9), 99_900_000);
+        assertClose(histogram.max(), 100_000_000);
+    }
+
+    @Test
+    @Description("Verifies that small values are exact and extreme values do not overflow.")
+    public void testEdges() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertTrue(histogram.valueAtPercentile(99) == 0 && histogram.max() == 0);
+        histogram.record(3);
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.valueAtPercentile(10));
+        assertEquals(3, histogram.valueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.max());
+
+        LatencyHistogram merged = new LatencyHistogram();
+        merged.add(histogram);
+        merged.add(histogram);
+        assertEquals(6, merged.count());
+    }
+
+    private static void assertClose(long actual, long expected) {
+        assertTrue(Math.abs(actual - expected) <= expected / 128, actual + " is not within 1/128 of " + expected);
+    }
+}
@@ -0,0 +1,24 @@
+import io.qameta.allure.Allure;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Attaches the per-action latency summary recorded by {@link LatencyRecordingFilter} to the Allure report of every
+ * test that made requests.
+ */
+public class LatencyRecordingExtension implements BeforeEachCallback, AfterEachCallback {
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        LatencyRecordingFilter.open();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        String summary = LatencyRecordingFilter.drain();
+        if (summary != null) {
+            Allure.addAttachment("Latency", "text/plain", summary, ".txt");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import pro.knoweledgecity.Action;
+import pro.knoweledgecity.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Times every request of the current test thread and records it in a {@link LatencyHistogram} per action.
+ *
+ * <p>{@link LatencyRecordingExtension} opens the histograms before each test and attaches their summary to the
+ * Allure report after it; {@link BaseApiTest#assertLatency} checks a test's latency budget against them. The clock
+ * is read around sending the request and reading the response only, so assertions in the test do not count.
+ * Requests made on threads without open histograms, or without a known {@code action}, pass through untouched.
+ */
+public final class LatencyRecordingFilter implements OrderedFilter {
+    static final LatencyRecordingFilter INSTANCE = new LatencyRecordingFilter();
+
+    private static final ThreadLocal<Map<Action, LatencyHistogram>> HISTOGRAMS = new ThreadLocal<>();
+
+    private LatencyRecordingFilter() {
+    }
+
+    static void open() {
+        HISTOGRAMS.set(new EnumMap<>(Action.class));
+    }
+
+    /**
+     * Returns the current test's histogram for {@code action}, empty when it made no such call.
+     */
+    static LatencyHistogram histogram(Action action) {
+        Map<Action, LatencyHistogram> histograms = HISTOGRAMS.get();
+        LatencyHistogram histogram = histograms == null ? null : histograms.get(action);
+        return histogram != null ? histogram : new LatencyHistogram();
+    }
+
+    /**
+     * Closes the histograms and returns them as a plain-text table, or {@code null} when nothing was recorded.
+     */
+    static String drain() {
+        Map<Action, LatencyHistogram> histograms = HISTOGRAMS.get();
+        HISTOGRAMS.remove();
+        if (histograms == null || histograms.isEmpty()) {
+            return null;
+        }
+        StringBuilder summary = new StringBuilder(String.format("%-11s %7s %9s %9s %9s %9s%n",
+                "action", "calls", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        histograms.forEach((action, histogram) -> summary.append(String.format("%-11s %7d %9.2f %9.2f %9.2f %9.2f%n",
+                action.param(), histogram.count(), millis(histogram.valueAtPercentile(50)),
+                millis(histogram.valueAtPercentile(90)), millis(histogram.valueAtPercentile(99)),
+                millis(histogram.max()))));
+        return summary.toString();
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec,
+                           FilterableResponseSpecification responseSpec,
+                           FilterContext context) {
+        Map<Action, LatencyHistogram> histograms = HISTOGRAMS.get();
+        Action action = histograms == null ? null : action(requestSpec);
+        if (action == null) {
+            return context.next(requestSpec, responseSpec);
+        }
+        long start = System.nanoTime();
+        Response response = context.next(requestSpec, responseSpec);
+        long elapsed = System.nanoTime() - start;
+        histograms.computeIfAbsent(action, ignored -> new LatencyHistogram()).record(elapsed);
+        return response;
+    }
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+
+    private static Action action(FilterableRequestSpecification requestSpec) {
+        Object action = requestSpec.getQueryParams().get("action");
+        if (action == null) {
+            action = requestSpec.getFormParams().get("action");
+        }
+        return action == null ? null : Action.fromParam(action.toString());
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,143 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.Leaderboard;
+import pro.knoweledgecity.ResponseReader;
+import pro.knoweledgecity.ResponseReader.Outcome;
+import pro.knoweledgecity.SessionStore;
+import pro.knoweledgecity.UserState;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LeaderboardTest extends BaseApiTest {
+    private static final int THREADS = 8;
+
+    @Test
+    @Description("Verifies that a user with a full score is ranked first and ahead of a user without points.")
+    public void testRankOrdersUsersByScore() {
+        String leader = USERS.lease();
+        submitAnswers(leader, QUESTION_IDS, ANSWERS);
+
+        int leaderRank = rank(leader);
+        int newcomerRank = rank(userEmail);
+        assertTrue(leaderRank == 1 && newcomerRank > 1, "Leader " + leaderRank + ", newcomer " + newcomerRank);
+    }
+
+    @Test
+    @Description("Verifies that the leaderboard lists users best first and honours the limit.")
+    public void testLeaderboardTopUsers() {
+        submitAnswers(userEmail, QUESTION_IDS, ANSWERS);
+
+        ResponseReader board = responseReader.read(baseRequest()
+                .queryParam("email", userEmail)
+                .queryParam("action", "leaderboard")
+                .queryParam("limit", "3")
+                .post("/")
+                .then()
+                .statusCode(200)
+                .body(containsString("Leaderboard:"))
+                .extract()
+                .asByteArray());
+
+        assertEquals(Outcome.LEADERBOARD, board.outcome());
+        assertTrue(board.entryCount() >= 1 && board.entryCount() <= 3, "Entries " + board.entryCount());
+        assertTrue(board.entryRank(0) == 1 && board.entryScore(0) == QUESTIONS.length);
+        for (int i = 1; i < board.entryCount(); i++) {
+            assertTrue(board.entryScore(i) <= board.entryScore(i - 1), "Entry " + i + " out of order");
+            assertTrue(board.entryRank(i) >= board.entryRank(i - 1), "Rank " + i + " out of order");
+        }
+    }
+
+    @Test
+    @Description("Verifies that a limit outside 1..100 is rejected.")
+    public void testInvalidLimit() {
+        for (String limit : new String[]{"0", "101", "ten"}) {
+            baseRequest()
+                    .queryParam("email", userEmail)
+                    .queryParam("action", "leaderboard")
+                    .queryParam("limit", limit)
+                    .post("/")
+                    .then()
+                    .statusCode(400)
+                    .body(containsString("Error: Invalid limit"));
+        }
+    }
+
+    @Test
+    @Description("Verifies that ranks and the top list stay exact after concurrent answers and resets.")
+    public void testConcurrentUpdates() throws Exception {
+        int users = 2_000;
+        SessionStore store = new SessionStore(QUESTIONS.length);
+        UserState[] states = new UserState[users];
+        for (int i = 0; i < users; i++) {
+            states[i] = store.login("ranked." + i + "@example.com");
+        }
+        Leaderboard leaderboard = store.leaderboard();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 50_000; i++) {
+                    UserState state = states[random.nextInt(users)];
+                    if (random.nextInt(20) == 0) {
+                        state.reset();
+                    } else {
+                        state.recordCorrect(random.nextInt(QUESTIONS.length));
+                    }
+                    leaderboard.update(state);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        int[] usersWithScore = new int[QUESTIONS.length + 1];
+        for (UserState state : states) {
+            usersWithScore[state.score()]++;
+        }
+        assertEquals(users, leaderboard.size(), "Board holds " + leaderboard.size());
+        for (UserState state : states) {
+            int above = 0;
+            for (int score = state.score() + 1; score <= QUESTIONS.length; score++) {
+                above += usersWithScore[score];
+            }
+            assertEquals(above + 1, leaderboard.rank(state), state.email() + " ranked " + leaderboard.rank(state));
+        }
+
+        List<Leaderboard.Entry> top = leaderboard.top(users);
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < top.size(); i++) {
+            Leaderboard.Entry entry = top.get(i);
+            assertTrue(seen.add(entry.email()), entry.email() + " listed twice");
+            assertEquals(entry.score(), store.get(entry.email()).score(), entry + " has a stale score");
+            assertTrue(i == 0 || entry.score() <= top.get(i - 1).score(), "Entry " + i + " out of order");
+        }
+        assertEquals(users, top.size(), "Top list holds " + top.size());
+    }
+
+    private int rank(String email) {
+        return responseReader.read(baseRequest()
+                .queryParam("email", email)
+                .queryParam("action", "rank")
+                .post("/")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asByteArray()).rank();
+    }
+}
@@ -0,0 +1,156 @@
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import pro.knoweledgecity.Action;
+import pro.knoweledgecity.LatencyHistogram;
+import pro.knoweledgecity.Threads;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator built on {@link BaseApiTest#baseRequest()}.
+ *
+ * <p>User journeys (login, question, N answers or one batch of N, score, reset) start at a fixed arrival rate
+ * whether or not earlier journeys have finished, each on its own virtual thread (JDK 21+). The first step of a
+ * journey is timed from its intended start rather than from when it was actually sent, so a stalled server or a
+ * lagging scheduler shows up in the percentiles instead of silently lowering the offered load (coordinated
+ * omission).
+ *
+ * <p>Runs against the in-process server unless {@code -DbaseUrl} is set:
+ * {@code mvn -P load test -Dload.rate=1000 -Dload.seconds=30 -Dload.answers=5 -Dload.batch=false}
+ */
+public final class LoadGenerator {
+    private static final String RUN_ID = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<Action, LatencyHistogram> latencies = new EnumMap<>(Action.class);
+    private final Map<Action, LongAdder> errors = new EnumMap<>(Action.class);
+    private final AtomicLong requests = new AtomicLong();
+
+    public LoadGenerator() {
+        for (Action action : Action.values()) {
+            latencies.put(action, new LatencyHistogram());
+            errors.put(action, new LongAdder());
+        }
+    }
+
+    /**
+     * Starts {@code journeysPerSecond * seconds} journeys at the given rate and waits for all of them to finish.
+     */
+    public void run(double journeysPerSecond, int seconds, int answersPerJourney) throws InterruptedException {
+        run(journeysPerSecond, seconds, answersPerJourney, false);
+    }
+
+    /**
+     * Like {@link #run(double, int, int)}, optionally submitting each journey's answers in one {@code action=batch}.
+     */
+    public void run(double journeysPerSecond, int seconds, int answersPerJourney, boolean batch)
+            throws InterruptedException {
+        String baseUrl = BaseApiTest.BASE_URL;
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / journeysPerSecond);
+        long journeys = (long) (journeysPerSecond * seconds);
+        ExecutorService users = Threads.newPerTaskExecutor();
+        long start = System.nanoTime();
+        for (long i = 0; i < journeys; i++) {
+            long intendedStart = start + i * interval;
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String email = "load." + RUN_ID + "." + i + "@example.com";
+            users.execute(() -> journey(email, intendedStart, answersPerJourney, batch));
+        }
+        users.shutdown();
+        users.awaitTermination(1, TimeUnit.HOURS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %d journeys, %d requests in %.1f s (%.0f req/s offered %.0f journeys/s)%n",
+                baseUrl, journeys, requests.get(), elapsedSeconds, requests.get() / elapsedSeconds, journeysPerSecond);
+    }
+
+    public LatencyHistogram latency(Action action) {
+        return latencies.get(action);
+    }
+
+    public long errors(Action action) {
+        return errors.get(action).sum();
+    }
+
+    public void printReport() {
+        System.out.printf("%-9s %9s %7s %9s %9s %9s %9s%n", "action", "count", "errors", "p50 ms", "p99 ms",
+                "p99.9 ms", "max ms");
+        for (Action action : Action.values()) {
+            LatencyHistogram histogram = latencies.get(action);
+            System.out.printf("%-9s %9d %7d %9.2f %9.2f %9.2f %9.2f%n", action.param(), histogram.count(),
+                    errors(action), millis(histogram.valueAtPercentile(50)), millis(histogram.valueAtPercentile(99)),
+                    millis(histogram.valueAtPercentile(99.9)), millis(histogram.max()));
+        }
+    }
+
+    private void journey(String email, long intendedStart, int answers, boolean batch) {
+        long stepStart = call(Action.LOGIN, intendedStart, request(email, Action.LOGIN));
+        stepStart = call(Action.QUESTION, stepStart, request(email, Action.QUESTION));
+        if (batch) {
+            RequestSpecification request = request(email, Action.BATCH);
+            for (int i = 0; i < answers; i++) {
+                int questionId = i % BaseApiTest.QUESTION_IDS.length;
+                request.queryParam("question_id[" + i + "]", BaseApiTest.QUESTION_IDS[questionId])
+                        .queryParam("answer[" + i + "]", BaseApiTest.ANSWERS[questionId]);
+            }
+            stepStart = call(Action.BATCH, stepStart, request);
+        } else {
+            for (int i = 0; i < answers; i++) {
+                int questionId = i % BaseApiTest.QUESTION_IDS.length;
+                stepStart = call(Action.ANSWER, stepStart, request(email, Action.ANSWER)
+                        .queryParam("question_id", BaseApiTest.QUESTION_IDS[questionId])
+                        .queryParam("answer", BaseApiTest.ANSWERS[questionId]));
+            }
+        }
+        stepStart = call(Action.SCORE, stepStart, request(email, Action.SCORE));
+        call(Action.RESET, stepStart, request(email, Action.RESET));
+    }
+
+    private static RequestSpecification request(String email, Action action) {
+        return BaseApiTest.baseRequest()
+                .queryParam("email", email)
+                .queryParam("action", action.param());
+    }
+
+    /**
+     * Sends the request, records its latency since {@code startNanos} and returns when the next step may start.
+     */
+    private long call(Action action, long startNanos, RequestSpecification request) {
+        int status;
+        try {
+            Response response = request.post("/");
+            status = response.statusCode();
+        } catch (RuntimeException e) {
+            status = -1;
+        }
+        long end = System.nanoTime();
+        requests.incrementAndGet();
+        latencies.get(action).record(end - startNanos);
+        if (status != 200) {
+            errors.get(action).increment();
+        }
+        return end;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        double rate = Double.parseDouble(System.getProperty("load.rate", "200"));
+        int seconds = Integer.getInteger("load.seconds", 30);
+        int answers = Integer.getInteger("load.answers", 5);
+        boolean batch = Boolean.getBoolean("load.batch");
+        LoadGenerator generator = new LoadGenerator();
+        generator.run(rate, seconds, answers, batch);
+        generator.printReport();
+        System.exit(0);
+    }
+}
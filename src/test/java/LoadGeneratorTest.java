@@ -0,0 +1,33 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.Action;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadGeneratorTest {
+
+    @Test
+    @Description("Verifies that a short open-model run completes every journey without errors.")
+    public void testShortRunAgainstLocalServer() throws InterruptedException {
+        int rate = 20;
+        int seconds = 2;
+        int answers = 3;
+        LoadGenerator generator = new LoadGenerator();
+        generator.run(rate, seconds, answers);
+        generator.printReport();
+
+        long journeys = (long) rate * seconds;
+        for (Action action : Action.values()) {
+            long expected = switch (action) {
+                case ANSWER -> journeys * answers;
+                case BATCH, RANK, LEADERBOARD -> 0;
+                default -> journeys;
+            };
+            assertEquals(expected, generator.latency(action).count(),
+                    action + " recorded " + generator.latency(action).count() + " of " + expected);
+            assertEquals(0, generator.errors(action), action + " had " + generator.errors(action) + " errors");
+            assertTrue(expected == 0 || generator.latency(action).valueAtPercentile(50) > 0);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pro.knoweledgecity.FsyncPolicy;
+import pro.knoweledgecity.MappedJournal;
+import pro.knoweledgecity.QuestionBank;
+import pro.knoweledgecity.QuizService;
+import pro.knoweledgecity.SessionJournal;
+import pro.knoweledgecity.SessionStore;
+import pro.knoweledgecity.UserState;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedJournalTest {
+    private static final String EMAIL = "journal.user@example.com";
+    private static final String LONG_EMAIL = "a".repeat(64) + "@" + "b".repeat(60) + ".example.com";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @Description("Verifies that logins, questions, answers and resets survive a restart.")
+    public void testReplayRestoresSessions() {
+        Path file = dir.resolve("quiz.journal");
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            try (MappedJournal journal = MappedJournal.open(file, policy, 10)) {
+                QuizService service = recover(journal);
+                String email = policy.name().toLowerCase() + "." + EMAIL;
+                service.handle(Map.of("email", email, "action", "login"));
+                service.handle(Map.of("email", email, "action", "question"));
+                service.handle(Map.of("email", email, "action", "question"));
+                service.handle(Map.of("email", email, "action", "answer", "question_id", "0",
+                        "answer", "To test the bartender's skills"));
+                service.handle(Map.of("email", email, "action", "answer", "question_id", "3",
+                        "answer", "Because they didn't receive the 'float' property!"));
+            }
+        }
+        try (MappedJournal journal = MappedJournal.open(file, FsyncPolicy.PERIODIC, 10)) {
+            QuizService service = recover(journal);
+            service.handle(Map.of("email", LONG_EMAIL, "action", "login"));
+            service.handle(Map.of("email", LONG_EMAIL, "action", "answer", "question_id", "1", "answer", "42"));
+            service.handle(Map.of("email", LONG_EMAIL, "action", "reset"));
+            service.handle(Map.of("email", LONG_EMAIL, "action", "answer", "question_id", "2", "answer", "yes"));
+        }
+
+        SessionStore restored = new SessionStore(5);
+        try (MappedJournal journal = MappedJournal.open(file, FsyncPolicy.GROUPED, 10)) {
+            journal.replay(restored);
+            for (FsyncPolicy policy : FsyncPolicy.values()) {
+                UserState state = restored.get(policy.name().toLowerCase() + "." + EMAIL);
+                assertNotNull(state, "User lost for " + policy);
+                assertEquals(2, state.score(), "Score " + state.score() + " for " + policy);
+                assertEquals(4, state.cursor(), "Cursor " + state.cursor() + " for " + policy);
+                assertTrue(state.isAnswered(0) && state.isAnswered(3) && !state.isAnswered(1));
+            }
+            UserState longUser = restored.get(LONG_EMAIL);
+            assertNotNull(longUser, "Multi-slot login lost");
+            assertTrue(longUser.score() == 1 && longUser.cursor() == 3 && !longUser.isAnswered(1));
+
+            String next = "next." + EMAIL;
+            UserState created = restored.login(next);
+            assertEquals(4, created.id(), "Ids must continue after recovered users but got " + created.id());
+        }
+    }
+
+    @Test
+    @Description("Verifies that recovery skips a torn record left by a crash and keeps the records after it.")
+    public void testReplaySkipsTornRecords() throws Exception {
+        Path file = dir.resolve("torn.journal");
+        try (MappedJournal journal = MappedJournal.open(file, FsyncPolicy.PER_WRITE, 10)) {
+            journal.login(0, EMAIL);
+            journal.answer(0, 1);
+            journal.answer(0, 2);
+            journal.answer(0, 4);
+        }
+        // Wipe the type of the first answer record, after the file header and the login, to simulate a writer that
+        // never published it
+        long tornOffset = (2 + (EMAIL.length() + 14) / 15) * 16L;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), tornOffset);
+        }
+
+        SessionStore restored = new SessionStore(5);
+        try (MappedJournal journal = MappedJournal.open(file, FsyncPolicy.GROUPED, 10)) {
+            long applied = journal.replay(restored);
+            assertEquals(3, applied, "Applied " + applied);
+        }
+        UserState state = restored.get(EMAIL);
+        assertTrue(state.score() == 2 && !state.isAnswered(1) && state.isAnswered(2) && state.isAnswered(4));
+    }
+
+    @Test
+    @Description("Verifies that a journal without the current header is rejected instead of being replayed.")
+    public void testRejectsFilesWithoutCurrentHeader() throws Exception {
+        Path file = dir.resolve("versioned.journal");
+        try (MappedJournal journal = MappedJournal.open(file, FsyncPolicy.PER_WRITE, 10)) {
+            journal.login(0, EMAIL);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 1), 8);
+        }
+        IllegalArgumentException version = assertThrows(IllegalArgumentException.class,
+                () -> MappedJournal.open(file, FsyncPolicy.PERIODIC, 10));
+        assertTrue(version.getMessage().contains("version 1"), version.getMessage());
+
+        // A version 1 journal starts right away with its first record
+        Path headerless = dir.resolve("headerless.journal");
+        try (FileChannel channel = FileChannel.open(headerless, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 4), 0);
+        }
+        assertThrows(IllegalArgumentException.class, () -> MappedJournal.open(headerless, FsyncPolicy.PERIODIC, 10));
+    }
+
+    @Test
+    @Description("Verifies that a reset sent while an answer is being journaled is replayed after that answer.")
+    public void testReplayKeepsOrderOfRacingReset() throws Exception {
+        Path file = dir.resolve("racing.journal");
+        QuestionBank bank = QuestionBank.defaultBank();
+        SessionStore live = new SessionStore(bank.size());
+        AtomicReference<QuizService> service = new AtomicReference<>();
+        ExecutorService resetter = Executors.newSingleThreadExecutor();
+        try (MappedJournal journal = MappedJournal.open(file, FsyncPolicy.PERIODIC, 10)) {
+            // Sends a reset once the answer is applied but not yet journaled, and gives it time to overtake
+            SessionJournal racing = new SessionJournal() {
+                @Override
+                public void login(int userId, String email) {
+                    journal.login(userId, email);
+                }
+
+                @Override
+                public void question(int userId, int questionId) {
+                    journal.question(userId, questionId);
+                }
+
+                @Override
+                public void answer(int userId, int questionId) {
+                    Future<?> reset = resetter.submit(() -> service.get().handle(Map.of("email", EMAIL,
+                            "action", "reset")));
+                    try {
+                        reset.get(200, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException expected) {
+                        // The reset waits for the answer
+                    } catch (InterruptedException | ExecutionException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    journal.answer(userId, questionId);
+                }
+
+                @Override
+                public void reset(int userId) {
+                    journal.reset(userId);
+                }
+            };
+            service.set(new QuizService(bank, live, racing));
+            service.get().handle(Map.of("email", EMAIL, "action", "login"));
+            service.get().handle(Map.of("email", EMAIL, "action", "answer", "question_id", "0",
+                    "answer", bank.answer(0)));
+            resetter.shutdown();
+            assertTrue(resetter.awaitTermination(10, TimeUnit.SECONDS), "Reset never finished");
+        }
+
+        SessionStore restored = new SessionStore(bank.size());
+        try (MappedJournal journal = MappedJournal.open(file, FsyncPolicy.GROUPED, 10)) {
+            journal.replay(restored);
+        }
+        UserState before = live.get(EMAIL);
+        UserState after = restored.get(EMAIL);
+        assertEquals(0, before.score(), "Live score after the reset");
+        assertEquals(before.score(), after.score(), "Replayed score");
+        assertEquals(before.isAnswered(0), after.isAnswered(0), "Replayed credit for question 0");
+    }
+
+    @Test
+    @Description("Verifies that a user waiting for the journal to become durable holds no monitor that other users "
+            + "need.")
+    public void testDurabilityWaitHoldsNoEmailLock() throws Exception {
+        CountDownLatch waiting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> stalled = new AtomicReference<>();
+        SessionJournal slowDisk = new SessionJournal() {
+            @Override
+            public void login(int userId, String email) {
+            }
+
+            @Override
+            public void question(int userId, int questionId) {
+            }
+
+            @Override
+            public void answer(int userId, int questionId) {
+            }
+
+            @Override
+            public void reset(int userId) {
+            }
+
+            @Override
+            public void awaitDurable() {
+                if (Thread.currentThread() == stalled.get()) {
+                    waiting.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        QuizService service = new QuizService(QuestionBank.defaultBank(), new SessionStore(5), slowDisk);
+        ExecutorService stalling = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r);
+            stalled.set(thread);
+            return thread;
+        });
+        ExecutorService others = Executors.newSingleThreadExecutor();
+        try {
+            stalling.submit(() -> service.handle(Map.of("email", EMAIL, "action", "login")));
+            assertTrue(waiting.await(10, TimeUnit.SECONDS), "The login never waited for the journal");
+            // Among this many emails some share the stalled user's monitor
+            Future<?> logins = others.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    service.handle(Map.of("email", "user" + i + "@example.com", "action", "login"));
+                }
+            });
+            logins.get(30, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            stalling.shutdown();
+            others.shutdownNow();
+        }
+    }
+
+    private static QuizService recover(MappedJournal journal) {
+        SessionStore store = new SessionStore(5);
+        journal.replay(store);
+        return new QuizService(QuestionBank.defaultBank(), store, journal);
+    }
+}
@@ -0,0 +1,137 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.Action;
+import pro.knoweledgecity.PrometheusMetrics;
+import pro.knoweledgecity.QuizError;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsTest extends BaseApiTest {
+
+    @Test
+    @Description("Verifies that /metrics counts requests per action and errors per message.")
+    public void testMetricsEndpointCountsRequests() {
+        Map<String, Double> before = scrape();
+
+        baseRequest()
+                .queryParam("email", userEmail)
+                .queryParam("action", "score")
+                .post("/")
+                .then()
+                .statusCode(200);
+        baseRequest()
+                .queryParam("email", "not-an-email")
+                .queryParam("action", "score")
+                .post("/")
+                .then()
+                .statusCode(400);
+
+        Map<String, Double> after = scrape();
+        String score = "quiz_requests_total{action=\"score\"}";
+        String invalidEmail = "quiz_errors_total{message=\"" + QuizError.INVALID_EMAIL.message() + "\"}";
+        assertTrue(after.get(score) >= before.get(score) + 2,
+                score + " went from " + before.get(score) + " to " + after.get(score));
+        assertTrue(after.get(invalidEmail) >= before.get(invalidEmail) + 1, invalidEmail + " did not grow");
+    }
+
+    @Test
+    @Description("Verifies that /metrics counts the requests the front end answers itself by status.")
+    public void testMetricsEndpointCountsRejectedRequests() {
+        Map<String, Double> before = scrape();
+
+        baseRequest()
+                .get("/")
+                .then()
+                .statusCode(405);
+        baseRequest()
+                .body("email=%zz%40example.com&action=login")
+                .post("/")
+                .then()
+                .statusCode(400);
+
+        Map<String, Double> after = scrape();
+        for (String status : new String[]{"400", "405"}) {
+            String rejected = "quiz_rejected_total{status=\"" + status + "\"}";
+            assertTrue(after.get(rejected) >= before.get(rejected) + 1,
+                    rejected + " went from " + before.get(rejected) + " to " + after.get(rejected));
+        }
+    }
+
+    @Test
+    @Description("Verifies that recorded latencies land in cumulative histogram buckets.")
+    public void testHistogramExposition() {
+        PrometheusMetrics metrics = new PrometheusMetrics(1);
+        metrics.record(Action.ANSWER, null, TimeUnit.MICROSECONDS.toNanos(30));
+        metrics.record(Action.ANSWER, null, TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.record(Action.ANSWER, QuizError.INVALID_QUESTION_ID, TimeUnit.SECONDS.toNanos(2));
+        metrics.record(null, QuizError.ACTION_MISSING, 1_000);
+        metrics.recordRejected(413);
+        metrics.recordRejected(418);
+        StringBuilder text = new StringBuilder();
+        metrics.writeTo(text);
+        Map<String, Double> samples = parse(text.toString());
+
+        assertEquals(3, samples.get("quiz_requests_total{action=\"answer\"}"));
+        assertEquals(1, samples.get("quiz_requests_total{action=\"unknown\"}"));
+        assertEquals(0, samples.get("quiz_requests_total{action=\"login\"}"));
+        assertEquals(1, samples.get("quiz_rejected_total{status=\"413\"}"));
+        assertEquals(1, samples.get("quiz_rejected_total{status=\"other\"}"));
+        assertEquals(0, samples.get("quiz_rejected_total{status=\"429\"}"));
+        assertEquals(1, samples.get("quiz_errors_total{message=\"" + QuizError.INVALID_QUESTION_ID.message() + "\"}"));
+        assertEquals(1, samples.get("quiz_request_duration_sampled_seconds_bucket{action=\"answer\",le=\"5.0E-5\"}"));
+        assertEquals(2, samples.get("quiz_request_duration_sampled_seconds_bucket{action=\"answer\",le=\"0.005\"}"));
+        assertEquals(2, samples.get("quiz_request_duration_sampled_seconds_bucket{action=\"answer\",le=\"1.0\"}"));
+        assertEquals(3, samples.get("quiz_request_duration_sampled_seconds_bucket{action=\"answer\",le=\"+Inf\"}"));
+        assertEquals(3, samples.get("quiz_request_duration_sampled_seconds_count{action=\"answer\"}"));
+        double sum = samples.get("quiz_request_duration_sampled_seconds_sum{action=\"answer\"}");
+        assertTrue(Math.abs(sum - 2.00303) < 1e-9, "Sum " + sum);
+    }
+
+    @Test
+    @Description("Verifies that sampled timings are exported unscaled while the request count stays exact.")
+    public void testSampledHistogramIsUnscaled() {
+        PrometheusMetrics metrics = new PrometheusMetrics(8);
+        metrics.record(Action.SCORE, null, TimeUnit.MICROSECONDS.toNanos(30));
+        metrics.record(Action.SCORE, null, -1);
+        metrics.record(Action.SCORE, null, -1);
+        StringBuilder text = new StringBuilder();
+        metrics.writeTo(text);
+        Map<String, Double> samples = parse(text.toString());
+
+        assertEquals(3, samples.get("quiz_requests_total{action=\"score\"}"));
+        assertEquals(0.125, samples.get("quiz_request_duration_sample_ratio"));
+        assertEquals(1, samples.get("quiz_request_duration_sampled_seconds_bucket{action=\"score\",le=\"+Inf\"}"));
+        assertEquals(1, samples.get("quiz_request_duration_sampled_seconds_count{action=\"score\"}"));
+        double sum = samples.get("quiz_request_duration_sampled_seconds_sum{action=\"score\"}");
+        assertTrue(Math.abs(sum - 3e-5) < 1e-12, "Sum " + sum);
+    }
+
+    private static Map<String, Double> scrape() {
+        String text = baseRequest()
+                .get("/metrics")
+                .then()
+                .statusCode(200)
+                .header("Content-Type", containsString("text/plain"))
+                .extract()
+                .asString();
+        return parse(text);
+    }
+
+    private static Map<String, Double> parse(String exposition) {
+        Map<String, Double> samples = new HashMap<>();
+        for (String line : exposition.split("\n")) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int space = line.lastIndexOf(' ');
+            samples.put(line.substring(0, space), Double.parseDouble(line.substring(space + 1)));
+        }
+        return samples;
+    }
+}
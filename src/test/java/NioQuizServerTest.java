@@ -0,0 +1,201 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.AdmissionControl;
+import pro.knoweledgecity.NioQuizServer;
+import pro.knoweledgecity.QuestionBank;
+import pro.knoweledgecity.QuizError;
+import pro.knoweledgecity.QuizService;
+import pro.knoweledgecity.SessionStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HTTP/1.1 handling of {@link NioQuizServer} over raw sockets: keep-alive, pipelining, requests split across reads
+ * and the error paths. The API behaviour itself is covered by running the suite with {@code -Dquiz.frontend=nio}.
+ */
+public class NioQuizServerTest {
+    private static final QuestionBank BANK = QuestionBank.defaultBank();
+
+    @Test
+    @Description("Verifies that pipelined requests sent in one write are answered in order on one connection.")
+    public void testPipelinedRequestsAnsweredInOrder() throws IOException {
+        try (NioQuizServer server = start(AdmissionControl.UNLIMITED);
+             Client client = new Client(server)) {
+            StringBuilder pipeline = new StringBuilder(post("email=pipe@example.com&action=login", ""));
+            for (int i = 0; i < 50; i++) {
+                pipeline.append(i % 2 == 0
+                        ? post("email=pipe@example.com&action=answer&question_id=0", "answer=" + BANK.answer(0))
+                        : post("", "email=pipe@example.com&action=score"));
+            }
+            pipeline.append(post("email=nobody@example.com&action=score", ""));
+            client.send(pipeline.toString());
+
+            assertEquals("You have successfully logged in", client.read().body);
+            for (int i = 0; i < 50; i++) {
+                Response response = client.read();
+                assertEquals(200, response.status, response.status + " " + response.body);
+                assertEquals(i % 2 == 0 ? "Correct answer" : "Current score: 1", response.body,
+                        i + ": " + response.body);
+            }
+            Response last = client.read();
+            assertTrue(last.status == 400 && last.body.equals(QuizError.NOT_LOGGED_IN.message()), last.body);
+        }
+    }
+
+    @Test
+    @Description("Verifies that a request arriving a byte at a time is answered once complete, and the connection is "
+            + "then reused.")
+    public void testRequestSplitAcrossReads() throws Exception {
+        try (NioQuizServer server = start(AdmissionControl.UNLIMITED);
+             Client client = new Client(server)) {
+            String request = post("", "email=split@example.com&action=login");
+            for (int i = 0; i < request.length(); i++) {
+                client.send(request.substring(i, i + 1));
+                Thread.sleep(1);
+            }
+            assertEquals("You have successfully logged in", client.read().body);
+            client.send(post("email=split@example.com&action=score", ""));
+            assertEquals("Current score: 0", client.read().body);
+        }
+    }
+
+    @Test
+    @Description("Verifies that Connection: close and HTTP/1.0 close the connection after the response.")
+    public void testConnectionClose() throws IOException {
+        try (NioQuizServer server = start(AdmissionControl.UNLIMITED)) {
+            try (Client client = new Client(server)) {
+                client.send("POST /?action=score HTTP/1.1\r\nHost: x\r\nConnection: close\r\n"
+                        + "Content-Length: 0\r\n\r\n");
+                Response response = client.read();
+                assertTrue(response.status == 400 && "close".equals(response.headers.get("connection")));
+                assertTrue(client.closed());
+            }
+            try (Client client = new Client(server)) {
+                client.send("POST /?action=score HTTP/1.0\r\nContent-Length: 0\r\n\r\n");
+                assertEquals(QuizError.EMAIL_MISSING.message(), client.read().body);
+                assertTrue(client.closed());
+            }
+        }
+    }
+
+    @Test
+    @Description("Verifies the 405, 413, 501 and malformed-request answers and that /metrics is served.")
+    public void testProtocolErrors() throws IOException {
+        try (NioQuizServer server = start(AdmissionControl.UNLIMITED)) {
+            try (Client client = new Client(server)) {
+                client.send("GET /?action=score HTTP/1.1\r\nHost: x\r\n\r\n");
+                assertEquals(405, client.read().status);
+                client.send("GET /metrics HTTP/1.1\r\nHost: x\r\n\r\n");
+                Response metrics = client.read();
+                assertTrue(metrics.status == 200 && metrics.body.contains("quiz_requests_total"), metrics.body);
+            }
+            try (Client client = new Client(server)) {
+                client.send("POST / HTTP/1.1\r\nContent-Length: 20000\r\n\r\n");
+                assertEquals(413, client.read().status);
+                assertTrue(client.closed());
+            }
+            try (Client client = new Client(server)) {
+                client.send("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n0\r\n\r\n");
+                assertEquals(501, client.read().status);
+                assertTrue(client.closed());
+            }
+            try (Client client = new Client(server)) {
+                client.send(post("email=%zz&action=score", ""));
+                Response response = client.read();
+                assertTrue(response.status == 400 && response.body.equals("Error: Malformed request"), response.body);
+                assertTrue(client.closed());
+            }
+        }
+    }
+
+    @Test
+    @Description("Verifies that admission control answers 429 with Retry-After and keeps the connection open.")
+    public void testAdmissionControl() throws IOException {
+        try (NioQuizServer server = start(new AdmissionControl(1, 1, 0, 0));
+             Client client = new Client(server)) {
+            client.send(post("email=limited%40example.com&action=login", "")
+                    + post("", "email=limited@example.com&action=score"));
+            assertEquals(200, client.read().status);
+            Response limited = client.read();
+            assertEquals(429, limited.status);
+            assertEquals("1", limited.headers.get("retry-after"));
+            client.send(post("email=other@example.com&action=login", ""));
+            assertEquals(200, client.read().status);
+        }
+    }
+
+    private static NioQuizServer start(AdmissionControl admission) {
+        return NioQuizServer.start(0, new QuizService(BANK, new SessionStore(BANK.size())), admission, 2);
+    }
+
+    private static String post(String query, String body) {
+        return "POST /" + (query.isEmpty() ? "" : "?" + query) + " HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Type: application/x-www-form-urlencoded\r\nContent-Length: "
+                + body.getBytes(StandardCharsets.UTF_8).length + "\r\n\r\n" + body;
+    }
+
+    private record Response(int status, Map<String, String> headers, String body) {
+    }
+
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        Client(NioQuizServer server) throws IOException {
+            socket = new Socket("localhost", server.port());
+            socket.setSoTimeout(10_000);
+            in = socket.getInputStream();
+            out = socket.getOutputStream();
+        }
+
+        void send(String request) throws IOException {
+            out.write(request.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        Response read() throws IOException {
+            String statusLine = line();
+            int status = Integer.parseInt(statusLine.split(" ")[1]);
+            Map<String, String> headers = new HashMap<>();
+            for (String header = line(); !header.isEmpty(); header = line()) {
+                int colon = header.indexOf(':');
+                headers.put(header.substring(0, colon).toLowerCase(), header.substring(colon + 1).trim());
+            }
+            byte[] body = in.readNBytes(Integer.parseInt(headers.get("content-length")));
+            return new Response(status, headers, new String(body, StandardCharsets.UTF_8));
+        }
+
+        boolean closed() throws IOException {
+            return in.read() < 0;
+        }
+
+        private String line() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            for (int b = in.read(); b != '\n'; b = in.read()) {
+                if (b < 0) {
+                    throw new IOException("Connection closed mid-response");
+                }
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return line.toString(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
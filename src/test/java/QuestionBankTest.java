@@ -0,0 +1,121 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pro.knoweledgecity.AnswerMatcher;
+import pro.knoweledgecity.QuestionBank;
+import pro.knoweledgecity.QuizResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuestionBankTest {
+    private static final String[] SUBMISSIONS = {
+            "To test the bartender's skills", " to TEST the  bartender's skills", "42", "+042", "yes", "True", "no",
+            "false", "", "   ", "wrong", "Because they didn't receive the 'float' property!"
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @Description("Verifies that a saved bank maps back with the same questions, answers, rendered responses and "
+            + "answer checks.")
+    public void testSaveAndOpenRoundTrip() {
+        QuestionBank original = QuestionBank.defaultBank();
+        Path file = dir.resolve("questions.bank");
+        original.save(file);
+        QuestionBank mapped = QuestionBank.open(file);
+
+        assertEquals(original.size(), mapped.size(), "Size " + mapped.size());
+        for (int id = 0; id < original.size(); id++) {
+            assertEquals(original.question(id), mapped.question(id), "Question " + id);
+            assertEquals(original.answer(id), mapped.answer(id), "Answer " + id);
+            String rendered = "Question: " + original.question(id) + "\nId: " + id + "\nAnswer: " + original.answer(id);
+            assertEquals(rendered, QuizResponse.ok(mapped.questionResponse(id)).text(), "Response " + id);
+            assertTrue(original.questionResponse(id).isReadOnly() && mapped.questionResponse(id).isReadOnly(),
+                    "Response " + id + " is writable");
+            AnswerMatcher reference = AnswerMatcher.compile(original.answer(id));
+            for (String submission : SUBMISSIONS) {
+                byte[] bytes = submission.getBytes(StandardCharsets.UTF_8);
+                assertEquals(reference.matches(bytes), mapped.isCorrect(id, bytes, 0, bytes.length),
+                        "Question " + id + " disagrees with its matcher on '" + submission + "'");
+            }
+        }
+    }
+
+    @Test
+    @Description("Verifies that unknown ids are rejected by a bounds check, including on an empty bank.")
+    public void testUnknownIds() {
+        QuestionBank bank = QuestionBank.defaultBank();
+        assertTrue(bank.contains(0) && bank.contains(bank.size() - 1));
+        assertTrue(!bank.contains(-1) && !bank.contains(bank.size()) && !bank.contains(9999));
+
+        QuestionBank empty = new QuestionBank(new String[0], new String[0]);
+        assertTrue(empty.size() == 0 && !empty.contains(0));
+    }
+
+    @Test
+    @Description("Verifies that a large bank keeps multi-byte text and every answer kind addressable by id.")
+    public void testLargeBank() {
+        int count = 100_000;
+        String[] questions = new String[count];
+        String[] answers = new String[count];
+        for (int i = 0; i < count; i++) {
+            questions[i] = "Question №" + i;
+            answers[i] = switch (i % 3) {
+                case 0 -> Integer.toString(i);
+                case 1 -> i % 2 == 0 ? "true" : "false";
+                default -> "Answer  é " + i;
+            };
+        }
+        Path file = dir.resolve("large.bank");
+        new QuestionBank(questions, answers).save(file);
+        QuestionBank bank = QuestionBank.open(file);
+
+        for (int i = 0; i < count; i += 997) {
+            assertEquals(questions[i], bank.question(i), "Question " + i);
+            byte[] answer = answers[i].getBytes(StandardCharsets.UTF_8);
+            assertTrue(bank.isCorrect(i, answer, 0, answer.length), "Own answer rejected for " + i);
+        }
+    }
+
+    @Test
+    @Description("Verifies that files which are not complete banks, or hold more questions than a session can track, "
+            + "are refused.")
+    public void testRejectsCorruptFiles() throws Exception {
+        Path file = dir.resolve("questions.bank");
+        QuestionBank.defaultBank().save(file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        Path truncated = dir.resolve("truncated.bank");
+        Files.write(truncated, java.util.Arrays.copyOf(bytes, bytes.length - 1));
+        assertTrue(rejected(truncated), "Truncated bank was accepted");
+
+        Path garbage = dir.resolve("garbage.bank");
+        Files.write(garbage, "Question: not a bank".getBytes(StandardCharsets.UTF_8));
+        assertTrue(rejected(garbage), "Garbage was accepted");
+
+        // A count over what a session can track is refused before the index is even checked
+        Path oversized = dir.resolve("oversized.bank");
+        byte[] patched = bytes.clone();
+        java.nio.ByteBuffer.wrap(patched).order(java.nio.ByteOrder.LITTLE_ENDIAN).putInt(8, 1 << 24);
+        Files.write(oversized, patched);
+        IllegalArgumentException refused = assertThrows(IllegalArgumentException.class,
+                () -> QuestionBank.open(oversized));
+        assertTrue(refused.getMessage().contains("not supported"), refused.getMessage());
+    }
+
+    private static boolean rejected(Path file) {
+        try {
+            QuestionBank.open(file);
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+}
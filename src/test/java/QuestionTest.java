@@ -1,5 +1,6 @@
 import io.qameta.allure.Description;
 import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.ResponseReader.Outcome;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
@@ -9,14 +10,14 @@ public class QuestionTest extends BaseApiTest {
     @Test
     @Description("Verifies retrieving the next question for a registered user.")
     public void testNextQuestion() {
-        resetUserState(staticEmail); // Reset state before the test
+        resetUserState(userEmail); // Reset state before the test
 
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "question")
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString(QUESTIONS[0]))
                 .body(containsString(QUESTION_IDS[0]))
@@ -30,7 +31,7 @@ public class QuestionTest extends BaseApiTest {
                 .queryParam("action", "question")
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(400)
                 .body(containsString("Error: Email parameter is missing"));
     }
@@ -39,11 +40,10 @@ public class QuestionTest extends BaseApiTest {
     @Description("Ensure that a 400 error is returned when the action parameter is missing.")
     public void testMissingActionParameter() {
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .when()
                 .post("/")
                 .then()
-                .log().all()
                 .statusCode(400)
                 .body(containsString("Error: Action parameter is missing"));
     }
@@ -57,7 +57,6 @@ public class QuestionTest extends BaseApiTest {
                 .when()
                 .post("/")
                 .then()
-                .log().all()
                 .statusCode(400)
                 .body(containsString("Error: Invalid email address"));
     }
@@ -65,24 +64,23 @@ public class QuestionTest extends BaseApiTest {
     @Test
     @Description("Verify the correct message for no more questions when all are exhausted.")
     public void testNoMoreQuestionsAvailable() {
-        resetUserState(staticEmail); // Reset state before the test
+        resetUserState(userEmail); // Reset state before the test
 
         // Retrieve questions until exhaustion
         for (int i = 0; i < 5; i++) { // Assume there are only 5 questions
             baseRequest()
-                    .queryParam("email", staticEmail)
+                    .queryParam("email", userEmail)
                     .queryParam("action", "question")
                     .post("/");
         }
 
         // Verify the message indicating that no more questions are available
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "question")
                 .when()
                 .post("/")
                 .then()
-                .log().all()
                 .statusCode(200)
                 .body(is("No more questions available"));
     }
@@ -90,15 +88,7 @@ public class QuestionTest extends BaseApiTest {
     @Test
     @Description("Verifies the correct retrieval of the next question for a new user after successful login.")
     public void testNextQuestionWithNewUser() {
-        String email = generateRandomEmail();
-        // Register a new user
-        baseRequest()
-                .queryParam("email", email)
-                .queryParam("action", "login")
-                .post("/")
-                .then().log().all()
-                .statusCode(200)
-                .body(containsString("You have successfully logged in"));
+        String email = USERS.lease();
 
         // Retrieve the next question
         baseRequest()
@@ -106,7 +96,7 @@ public class QuestionTest extends BaseApiTest {
                 .queryParam("action", "question")
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString(QUESTIONS[0]))
                 .body(containsString(QUESTION_IDS[0]))
@@ -116,24 +106,23 @@ public class QuestionTest extends BaseApiTest {
     @Test
     @Description("Ensure that the Id field indicates a sequential order of questions for a registered user.")
     public void testQuestionOrder() {
-        resetUserState(staticEmail); // Reset state before the test
+        resetUserState(userEmail); // Reset state before the test
 
         int previousId = -1; // Initial value before the first question
         boolean noMoreQuestions = false;
 
         while (!noMoreQuestions) {
-            String response = baseRequest()
-                    .queryParam("email", staticEmail)
+            byte[] response = baseRequest()
+                    .queryParam("email", userEmail)
                     .queryParam("action", "question")
                     .when()
                     .post("/")
                     .then()
-                    .log().all()
                     .statusCode(200)
                     .extract()
-                    .asString();
+                    .asByteArray();
 
-            if (response.contains("No more questions available")) {
+            if (responseReader.read(response).outcome() == Outcome.NO_MORE_QUESTIONS) {
                 noMoreQuestions = true;
             } else {
                 // Extract the Id from the response
@@ -150,25 +139,25 @@ public class QuestionTest extends BaseApiTest {
     @Description("Verifies that the next question is returned correctly after answering the previous one successfully.")
     //Bug #6
     public void testGetNextQuestionAfterAnswer() {
-        resetUserState(staticEmail);
+        resetUserState(userEmail);
         // Answer the first question
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", QUESTION_IDS[0])
                 .queryParam("answer", ANSWERS[0])
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200);
 
         // Retrieve the next question
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "question")
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString(QUESTIONS[1]))
                 .body(containsString(QUESTION_IDS[1]))
@@ -0,0 +1,162 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.Action;
+import pro.knoweledgecity.FormParams;
+import pro.knoweledgecity.QuizError;
+import pro.knoweledgecity.QuizRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuizRequestTest {
+    private static final String[] NAMES = {"email", "action", "question_id", "answer", "limit", "question_id[0]",
+            "question_id[1]", "answer[0]", "answer[1]", "question_id[01]", "other", "emai", "email2"};
+    private static final String[] VALUES = {"user@example.com", "score", "answer", "batch", "login", "7", " 12 ",
+            "+3", "-0", "-4", "x1", "99999999999", "", "To test the bartender's skills", "a&b=c", "é 100%"};
+
+    @Test
+    @Description("Verifies that the flyweight decodes random queries and bodies exactly like the map-based parser, "
+            + "from a string and from a buffer.")
+    public void testMatchesFormParams() throws IOException {
+        Random random = new Random(20241101);
+        QuizRequest reused = new QuizRequest();
+        for (int run = 0; run < 20_000; run++) {
+            String query = randomForm(random);
+            String body = randomForm(random);
+            Map<String, String> expected = FormParams.parse(query, body);
+
+            byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+            assertMatches(expected, reused.decode(query.isEmpty() && random.nextBoolean() ? null : query,
+                    new ByteArrayInputStream(bodyBytes)), query + " | " + body);
+
+            byte[] queryBytes = query.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(queryBytes.length + bodyBytes.length + 8);
+            buffer.position(3).put(queryBytes).position(5 + queryBytes.length).put(bodyBytes);
+            assertMatches(expected, reused.decode(buffer, 3, 3 + queryBytes.length, 5 + queryBytes.length,
+                    5 + queryBytes.length + bodyBytes.length), query + " | " + body);
+        }
+    }
+
+    @Test
+    @Description("Verifies that missing parameters are reported from the decoding pass in the protocol's order.")
+    public void testMissingParameters() throws IOException {
+        assertEquals(QuizError.EMAIL_MISSING, decode("action=score").missing());
+        assertEquals(QuizError.ACTION_MISSING, decode("email=a%40b.co").missing());
+        assertEquals(QuizError.QUESTION_ID_MISSING, decode("email=a%40b.co&action=answer&answer=x").missing());
+        assertEquals(QuizError.QUESTION_ID_MISSING,
+                decode("email=a%40b.co&action=batch&question_id%5B1%5D=3").missing());
+        assertNull(decode("email=a%40b.co&action=nope").missing());
+        assertNull(decode("email=a%40b.co&action=answer&question_id=x").missing());
+        QuizRequest batch = decode("email=a%40b.co&action=batch&question_id%5B0%5D=3&question_id%5B1%5D=4");
+        assertTrue(batch.missing() == null && batch.batchSize() == 2 && batch.batchQuestionId(1) == 4);
+        assertEquals(0, batch.batchAnswerLength(0));
+    }
+
+    @Test
+    @Description("Verifies that the email in the body is told apart from the email in the query.")
+    public void testEmailSource() throws IOException {
+        QuizRequest request = new QuizRequest();
+        assertTrue(request.decode("email=a%40b.co", stream("email=c%40d.co")).emailInQuery());
+        assertEquals("a@b.co", request.email());
+        assertFalse(request.decode("action=score", stream("email=c%40d.co")).emailInQuery());
+        assertEquals("c@d.co", request.email());
+        assertFalse(request.decode(null, stream("")).hasEmail());
+    }
+
+    @Test
+    @Description("Verifies that a malformed escape is rejected like URLDecoder does, even in an ignored parameter.")
+    public void testMalformedEscape() {
+        for (String query : new String[]{"email=%zz", "other=%4", "x%=1", "answer=100%"}) {
+            try {
+                new QuizRequest().decode(query, stream(""));
+            } catch (IllegalArgumentException | IOException expected) {
+                continue;
+            }
+            throw new AssertionError(query + " was accepted");
+        }
+    }
+
+    private static void assertMatches(Map<String, String> expected, QuizRequest request, String input) {
+        assertEquals(expected.containsKey("email"), request.hasEmail(), input);
+        if (request.hasEmail()) {
+            assertEquals(expected.get("email"), slice(request, request.emailOffset(), request.emailLength()), input);
+        }
+        assertEquals(expected.containsKey("action"), request.hasAction(), input);
+        assertEquals(Action.fromParam(expected.get("action")), request.action(), input);
+        assertEquals(expected.containsKey("question_id"), request.hasQuestionId(), input);
+        if (request.hasQuestionId()) {
+            assertEquals(parseInt(expected.get("question_id")), request.questionId(), input);
+        }
+        assertEquals(expected.getOrDefault("answer", ""), slice(request, request.answerOffset(),
+                request.answerLength()), input);
+        assertEquals(expected.containsKey("limit"), request.hasLimit(), input);
+        if (request.hasLimit()) {
+            assertEquals(parseInt(expected.get("limit")), request.limit(), input);
+        }
+        int size = 0;
+        while (expected.containsKey("question_id[" + size + "]")) {
+            size++;
+        }
+        assertEquals(size, request.batchSize(), input);
+        for (int i = 0; i < size; i++) {
+            assertEquals(parseInt(expected.get("question_id[" + i + "]")), request.batchQuestionId(i), input);
+            assertEquals(expected.getOrDefault("answer[" + i + "]", ""), slice(request, request.batchAnswerOffset(i),
+                    request.batchAnswerLength(i)), input);
+        }
+    }
+
+    /**
+     * What the service made of a number parameter before: {@code Integer.parseInt(value.trim())}, any failure or
+     * negative value being invalid.
+     */
+    private static int parseInt(String value) {
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed < 0 ? QuizRequest.NOT_A_NUMBER : parsed;
+        } catch (NumberFormatException e) {
+            return QuizRequest.NOT_A_NUMBER;
+        }
+    }
+
+    private static String randomForm(Random random) {
+        StringBuilder form = new StringBuilder();
+        for (int pairs = random.nextInt(7); pairs > 0; pairs--) {
+            if (form.length() > 0 || random.nextInt(8) == 0) {
+                form.append(random.nextInt(8) == 0 ? "&&" : "&");
+            }
+            String name = NAMES[random.nextInt(NAMES.length)];
+            form.append(random.nextBoolean() ? URLEncoder.encode(name, StandardCharsets.UTF_8) : name);
+            int shape = random.nextInt(10);
+            if (shape > 0) {
+                form.append('=');
+                if (shape > 1) {
+                    form.append(URLEncoder.encode(VALUES[random.nextInt(VALUES.length)], StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return form.toString();
+    }
+
+    private static String slice(QuizRequest request, int offset, int length) {
+        return new String(Arrays.copyOfRange(request.bytes(), offset, offset + length), StandardCharsets.UTF_8);
+    }
+
+    private static QuizRequest decode(String query) throws IOException {
+        return new QuizRequest().decode(query, stream(""));
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
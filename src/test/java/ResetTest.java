@@ -14,43 +14,43 @@ public class ResetTest extends BaseApiTest {
         String validAnswer = "To test the bartender's skills";
 
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", questionId)
                 .queryParam("answer", validAnswer)
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Correct answer"));
 
         // Check that the score increased
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "score")
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .extract().asString();
 
         // Perform reset
-        resetUserState(staticEmail);
+        resetUserState(userEmail);
 
         // Verify that the score is reset
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "score")
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Current score: 0"));
 
         // Verify that the first question is returned after reset
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "question")
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString(questionText))
                 .body(containsString("Id: 0"))
@@ -63,7 +63,7 @@ public class ResetTest extends BaseApiTest {
         baseRequest()
                 .queryParam("action", "reset")
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(400)
                 .body(containsString("Error: Email parameter is missing"));
     }
@@ -72,10 +72,10 @@ public class ResetTest extends BaseApiTest {
     @Description("Ensure that a 400 error is returned when the action parameter is missing.")
     public void testMissingActionParameter() {
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(400)
                 .body(containsString("Error: Action parameter is missing"));
     }
@@ -83,23 +83,14 @@ public class ResetTest extends BaseApiTest {
     @Test
     @Description("Ensures that the state is properly reset for a new user after login.")
     public void testResetStateForNewUser() {
-        String newUserEmail = generateRandomEmail();
-
-        // Register a new user
-        baseRequest()
-                .queryParam("email", newUserEmail)
-                .queryParam("action", "login")
-                .post("/")
-                .then().log().all()
-                .statusCode(200)
-                .body(containsString("You have successfully logged in"));
+        String newUserEmail = USERS.lease();
 
         // Verify the initial score is 0
         baseRequest()
                 .queryParam("email", newUserEmail)
                 .queryParam("action", "score")
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Current score: 0"));
 
@@ -111,7 +102,7 @@ public class ResetTest extends BaseApiTest {
                 .queryParam("email", newUserEmail)
                 .queryParam("action", "score")
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Current score: 0"));
 
@@ -120,10 +111,10 @@ public class ResetTest extends BaseApiTest {
                 .queryParam("email", newUserEmail)
                 .queryParam("action", "question")
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Question: Why did the QA engineer go to the bar?"))
-                .body(containsString("Id:0"))
+                .body(containsString("Id: 0"))
                 .body(containsString("Answer: To test the bartender's skills"));
     }
 }
\ No newline at end of file
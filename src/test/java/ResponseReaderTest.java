@@ -0,0 +1,75 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.QuizError;
+import pro.knoweledgecity.ResponseReader;
+import pro.knoweledgecity.ResponseReader.Outcome;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResponseReaderTest {
+    private final ResponseReader reader = new ResponseReader();
+
+    private ResponseReader read(String body) {
+        return reader.read(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @Description("Verifies that question bodies expose the Id as an int.")
+    public void testQuestionBody() {
+        read("Question: Why did the QA engineer go to the bar?\r\nId: 12\nAnswer: To test the bartender's skills");
+        assertEquals(Outcome.QUESTION, reader.outcome());
+        assertTrue(reader.hasQuestionId() && reader.questionId() == 12);
+        assertFalse(reader.hasScore());
+
+        read("Question: Why?\nId:7\nAnswer: Because");
+        assertEquals(7, reader.questionId());
+    }
+
+    @Test
+    @Description("Verifies that score, answer and status bodies are classified.")
+    public void testStatusBodies() {
+        assertTrue(read("Current score: 42").outcome() == Outcome.SCORE && reader.score() == 42);
+        assertTrue(read("Correct answer").outcome() == Outcome.CORRECT && !reader.hasScore());
+        assertEquals(Outcome.INCORRECT, read("Incorrect answer").outcome());
+        assertEquals(Outcome.NO_MORE_QUESTIONS, read("No more questions available").outcome());
+        assertEquals(Outcome.LOGGED_IN, read("You have successfully logged in").outcome());
+        assertEquals(Outcome.UNKNOWN, read("something else").outcome());
+    }
+
+    @Test
+    @Description("Verifies that error bodies map to their QuizError.")
+    public void testErrorBodies() {
+        for (QuizError error : QuizError.values()) {
+            assertEquals(Outcome.ERROR, read(error.message()).outcome());
+            assertEquals(error, reader.error(), error + " read as " + reader.error());
+        }
+        assertTrue(read("Error: Something new").outcome() == Outcome.ERROR && reader.error() == null);
+    }
+
+    @Test
+    @Description("Verifies that rank and leaderboard bodies expose ranks and scores.")
+    public void testRankingBodies() {
+        assertTrue(read("Current rank: 3 of 120").outcome() == Outcome.RANK && reader.rank() == 3);
+
+        read("Leaderboard:\n1. first.user@example.com: 5\n1. second@example.co.uk: 5\n3. third@example.com: 2");
+        assertTrue(reader.outcome() == Outcome.LEADERBOARD && !reader.hasRank());
+        assertEquals(3, reader.entryCount());
+        assertTrue(reader.entryRank(0) == 1 && reader.entryScore(0) == 5);
+        assertTrue(reader.entryRank(1) == 1 && reader.entryScore(1) == 5);
+        assertTrue(reader.entryRank(2) == 3 && reader.entryScore(2) == 2);
+    }
+
+    @Test
+    @Description("Verifies that missing values are reported like the String parsers did.")
+    public void testMissingValues() {
+        read("Current score: ");
+        assertFalse(reader.hasScore());
+        IllegalStateException missing = assertThrows(IllegalStateException.class, reader::questionId);
+        assertEquals("Id not found in response", missing.getMessage());
+    }
+}
@@ -9,11 +9,11 @@ public class ScoreTest extends BaseApiTest {
     @Description("Checks that the system correctly displays the current score for the registered user.")
     public void testDisplayCurrentScoreForRegisteredUser() {
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "score")
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Current score:"));
     }
@@ -25,7 +25,7 @@ public class ScoreTest extends BaseApiTest {
                 .queryParam("action", "score")
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(400)
                 .body(containsString("Error: Email parameter is missing"));
     }
@@ -34,10 +34,10 @@ public class ScoreTest extends BaseApiTest {
     @Description("Checks that a 400 error is returned when the action parameter is missing.")
     public void testMissingActionParameter() {
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(400)
                 .body(containsString("Error: Action parameter is missing"));
     }
@@ -45,21 +45,14 @@ public class ScoreTest extends BaseApiTest {
     @Test
     @Description("Checks the score is displayed correctly for a new user after a successful login.")
     public void testDisplayScoreForNewUser() {
-        String email = generateRandomEmail();
-        baseRequest()
-                .queryParam("email", email)
-                .queryParam("action", "login")
-                .post("/")
-                .then()
-                .statusCode(200)
-                .body(containsString("You have successfully logged in"));
+        String email = USERS.lease();
 
         baseRequest()
                 .queryParam("email", email)
                 .queryParam("action", "score")
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Current score: 0"));
     }
@@ -67,14 +60,14 @@ public class ScoreTest extends BaseApiTest {
     @Test
     @Description("Checks that the score is reset after calling reset.") // Bug #5
     public void testResetScore() {
-        resetUserState(staticEmail); // Reset state before the test
+        resetUserState(userEmail); // Reset state before the test
 
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "score")
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Current score: 0"));
     }
@@ -82,46 +75,46 @@ public class ScoreTest extends BaseApiTest {
     @Test
     @Description("Checks that the score is displayed correctly after successfully answering several questions.")
     public void testDisplayScoreAfterAnsweringQuestions() {
-        String response = baseRequest()
-                .queryParam("email", staticEmail)
+        byte[] response = baseRequest()
+                .queryParam("email", userEmail)
                 .queryParam("action", "score")
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
-                .extract().asString();
+                .extract().asByteArray();
 
         int currentScore = extractScore(response);
 
         // Submit the correct answer for the first question
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", QUESTION_IDS[0])
                 .queryParam("answer", ANSWERS[0])
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Correct answer"));
 
         // Submit the correct answer for the second question
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "answer")
                 .queryParam("question_id", QUESTION_IDS[1])
                 .queryParam("answer", ANSWERS[1])
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString("Correct answer"));
 
         // Verify that the score is displayed correctly
         baseRequest()
-                .queryParam("email", staticEmail)
+                .queryParam("email", userEmail)
                 .queryParam("action", "score")
                 .when()
                 .post("/")
-                .then().log().all()
+                .then()
                 .statusCode(200)
                 .body(containsString(String.format("Current score: %d", (currentScore + 2))));
     }
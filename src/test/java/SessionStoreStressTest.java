@@ -0,0 +1,250 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.SessionStore;
+import pro.knoweledgecity.UserState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionStoreStressTest extends BaseApiTest {
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 20_000;
+
+    @Test
+    @Description("Verifies that concurrent duplicate answers for one email credit each question exactly once.")
+    public void testDuplicateAnswersUnderContention() throws Exception {
+        SessionStore store = new SessionStore(QUESTIONS.length);
+        String email = generateRandomEmail();
+        assertNotNull(store.login(email), "Fresh email should log in");
+        UserState state = store.get(email);
+
+        AtomicInteger credited = new AtomicInteger();
+        runConcurrently(thread -> {
+            int previousScore = 0;
+            for (int i = 0; i < ROUNDS; i++) {
+                if (state.recordCorrect((thread + i) % QUESTIONS.length)) {
+                    credited.incrementAndGet();
+                }
+                int score = state.score();
+                assertTrue(score >= previousScore, "Score went backwards: " + previousScore + " -> " + score);
+                assertTrue(score <= QUESTIONS.length, "Score exceeded question count: " + score);
+                previousScore = score;
+            }
+        });
+
+        assertEquals(QUESTIONS.length, credited.get(), "Expected one credit per question but got " + credited.get());
+        assertEquals(QUESTIONS.length, state.score(), "Final score " + state.score());
+        assertEquals(QUESTIONS.length, state.cursor(), "Final cursor " + state.cursor());
+    }
+
+    @Test
+    @Description("Verifies that concurrent answers credit each question once while the answered set grows from sparse "
+            + "to dense.")
+    public void testDuplicateAnswersAcrossSparseAndDense() throws Exception {
+        int questions = 10_000;
+        int distinct = 600;
+        SessionStore store = new SessionStore(questions);
+        UserState state = store.login(generateRandomEmail());
+
+        AtomicInteger credited = new AtomicInteger();
+        runConcurrently(thread -> {
+            for (int i = 0; i < ROUNDS / 10; i++) {
+                // Every thread walks the same 600 ids, spread over the bank, from a different starting point
+                int questionId = (thread * 37 + i) % distinct * 16;
+                if (state.recordCorrect(questionId)) {
+                    credited.incrementAndGet();
+                }
+                assertTrue(state.isAnswered(questionId), "Question " + questionId + " lost after being credited");
+            }
+        });
+
+        assertEquals(distinct, credited.get(), "Expected one credit per question but got " + credited.get());
+        assertEquals(distinct, state.score(), "Final score " + state.score());
+        for (int id = 0; id < questions; id++) {
+            assertEquals(id % 16 == 0 && id / 16 < distinct, state.isAnswered(id), "Question " + id);
+        }
+        state.reset();
+        assertTrue(!state.isAnswered(0) && state.recordCorrect(0) && state.score() == 1);
+    }
+
+    @Test
+    @Description("Verifies that resets racing with answers for one email never leave points for no credited question.")
+    public void testResetRacingAnswers() throws Exception {
+        // 200 questions start sparse and go dense after eight credits
+        int questions = 200;
+        int users = 2_000;
+        SessionStore store = new SessionStore(questions);
+        UserState[] states = new UserState[users];
+        for (int user = 0; user < users; user++) {
+            states[user] = store.login(denseEmail(user));
+        }
+
+        runConcurrently(thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int pass = 0; pass < 10; pass++) {
+                // The threads walk the users together: a quarter of them reset each user while the rest answer
+                for (UserState state : states) {
+                    if (thread % 4 == 0) {
+                        state.reset();
+                    } else {
+                        state.recordCorrect(random.nextInt(questions));
+                    }
+                }
+            }
+        });
+
+        for (UserState state : states) {
+            int credited = 0;
+            int last = -1;
+            for (int id = 0; id < questions; id++) {
+                if (state.isAnswered(id)) {
+                    credited++;
+                    last = id;
+                }
+            }
+            assertEquals(credited, state.score(), "Score of user " + state.id() + " against its credited questions");
+            assertTrue(state.cursor() > last, "Cursor " + state.cursor() + " behind credited question " + last);
+            for (int id = 0; id <= last; id++) {
+                assertFalse(state.isAnswered(id) && state.recordCorrect(id), "Question " + id + " credited twice");
+            }
+            assertEquals(credited, state.score(), "Score of user " + state.id() + " after answering again");
+        }
+    }
+
+    @Test
+    @Description("Verifies that concurrent logins hand out dense unique ids and every email resolves to its own.")
+    public void testConcurrentLoginsAssignDenseIds() throws Exception {
+        int perThread = 5_000;
+        SessionStore store = new SessionStore(QUESTIONS.length);
+        int[] ids = new int[THREADS * perThread];
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                // Neighbouring threads log in the same emails, so half of the attempts are duplicates
+                int user = (thread / 2) * perThread + i;
+                UserState state = store.login(denseEmail(user));
+                if (state == null) {
+                    rejected.incrementAndGet();
+                } else {
+                    ids[user] = state.id() + 1;
+                }
+            }
+        });
+
+        int users = THREADS / 2 * perThread;
+        assertEquals(users, rejected.get(), "Expected one rejected duplicate per email but got " + rejected.get());
+        assertEquals(users, store.size(), "Store holds " + store.size());
+        boolean[] seen = new boolean[users];
+        for (int user = 0; user < users; user++) {
+            int id = ids[user] - 1;
+            assertTrue(id >= 0 && id < users && !seen[id],
+                    "Id " + id + " of user " + user + " is not dense and unique");
+            seen[id] = true;
+            String email = denseEmail(user);
+            UserState state = store.get(email);
+            assertTrue(state.id() == id && state.email().equals(email), email + " resolved to " + state.id());
+        }
+        assertTrue(store.get(denseEmail(users)) == null && store.get(denseEmail(users + 1)) == null);
+    }
+
+    @Test
+    @Description("Verifies that concurrent question requests hand out every question exactly once.")
+    public void testQuestionCursorUnderContention() throws Exception {
+        int total = THREADS * ROUNDS;
+        SessionStore store = new SessionStore(total);
+        String email = generateRandomEmail();
+        store.login(email);
+        UserState state = store.get(email);
+
+        boolean[] served = new boolean[total];
+        AtomicInteger exhausted = new AtomicInteger();
+        runConcurrently(thread -> {
+            for (int i = 0; i <= ROUNDS; i++) {
+                int id = state.nextQuestion(total);
+                if (id < 0) {
+                    exhausted.incrementAndGet();
+                } else {
+                    assertFalse(served[id], "Question " + id + " served twice");
+                    served[id] = true;
+                }
+            }
+        });
+
+        assertEquals(THREADS, exhausted.get(), "Expected one exhausted call per thread but got " + exhausted.get());
+        for (int id = 0; id < total; id++) {
+            assertTrue(served[id], "Question " + id + " never served");
+        }
+    }
+
+    @Test
+    @Description("Verifies the duplicate-answer invariant over HTTP when one email is hammered from many threads.")
+    public void testDuplicateAnswersOverHttp() throws Exception {
+        String email = USERS.lease();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 25; i++) {
+                int questionId = (thread + i) % QUESTIONS.length;
+                baseRequest()
+                        .queryParam("email", email)
+                        .queryParam("action", "answer")
+                        .queryParam("question_id", QUESTION_IDS[questionId])
+                        .queryParam("answer", ANSWERS[questionId])
+                        .post("/")
+                        .then()
+                        .statusCode(200)
+                        .body(containsString("Correct answer"));
+            }
+        });
+
+        baseRequest()
+                .queryParam("email", email)
+                .queryParam("action", "score")
+                .post("/")
+                .then()
+                .statusCode(200)
+                .body(containsString("Current score: " + QUESTIONS.length));
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                worker.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Every other email is non-ASCII so that both the char and the byte lookup paths are taken.
+     */
+    private static String denseEmail(int user) {
+        return "dense." + user + (user % 2 == 0 ? "@example.com" : "@exämple.com");
+    }
+}
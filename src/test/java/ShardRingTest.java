@@ -0,0 +1,91 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.ShardRing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardRingTest {
+    private static final int EMAILS = 100_000;
+    private static final List<String> NODES =
+            List.of("http://localhost:8081", "http://localhost:8082", "http://localhost:8083", "http://localhost:8084");
+
+    @Test
+    @Description("Verifies that every node owns close to an equal share of the emails.")
+    public void testNodesOwnEqualShares() {
+        ShardRing ring = new ShardRing(NODES);
+        int[] owned = new int[NODES.size()];
+        for (int i = 0; i < EMAILS; i++) {
+            owned[ring.owner(email(i))]++;
+        }
+        for (int node = 0; node < owned.length; node++) {
+            double share = owned[node] * (double) NODES.size() / EMAILS;
+            assertTrue(share > 0.8 && share < 1.2, NODES.get(node) + " owns " + share + " of its fair share");
+        }
+    }
+
+    @Test
+    @Description("Verifies that adding a node moves about 1/N of the emails, all of them to the new node.")
+    public void testAddingNodeMovesOnlyItsShare() {
+        ShardRing before = new ShardRing(NODES);
+        ShardRing after = before.with("http://localhost:8085");
+        int moved = 0;
+        for (int i = 0; i < EMAILS; i++) {
+            String from = before.node(before.owner(email(i)));
+            String to = after.node(after.owner(email(i)));
+            if (!from.equals(to)) {
+                assertEquals("http://localhost:8085", to, email(i) + " moved from " + from + " to " + to);
+                moved++;
+            }
+        }
+        double fraction = moved / (double) EMAILS;
+        assertTrue(fraction > 0.15 && fraction < 0.25, "Adding a fifth node moved " + fraction + " of the emails");
+    }
+
+    @Test
+    @Description("Verifies that removing a node moves only the emails it owned, spread over the remaining nodes.")
+    public void testRemovingNodeMovesOnlyItsEmails() {
+        ShardRing before = new ShardRing(NODES);
+        String removed = NODES.get(1);
+        ShardRing after = before.without(removed);
+        int moved = 0;
+        int[] received = new int[after.size()];
+        for (int i = 0; i < EMAILS; i++) {
+            String from = before.node(before.owner(email(i)));
+            int to = after.owner(email(i));
+            if (from.equals(removed)) {
+                received[to]++;
+                moved++;
+            } else {
+                assertEquals(after.node(to), from, email(i) + " moved from " + from + " to " + after.node(to));
+            }
+        }
+        double fraction = moved / (double) EMAILS;
+        assertTrue(fraction > 0.2 && fraction < 0.3, "Removing one of four nodes moved " + fraction + " of the emails");
+        for (int node = 0; node < received.length; node++) {
+            assertTrue(received[node] > moved / 6, after.node(node) + " received " + received[node] + " of " + moved);
+        }
+    }
+
+    @Test
+    @Description("Verifies that owners depend only on the node names, and that bytes and strings agree.")
+    public void testOwnerIsStable() {
+        ShardRing ring = new ShardRing(NODES);
+        ShardRing rebuilt = new ShardRing(NODES);
+        byte[] buffer = new byte[64];
+        for (int i = 0; i < 1000; i++) {
+            byte[] email = email(i).getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(email, 0, buffer, 3, email.length);
+            assertEquals(ring.owner(email(i)), ring.owner(buffer, 3, email.length));
+            assertEquals(ring.owner(email(i)), rebuilt.owner(email(i)));
+        }
+        assertEquals(0, new ShardRing(List.of("only")).owner("anyone@example.com"));
+    }
+
+    private static String email(int i) {
+        return "user" + i + "@example.com";
+    }
+}
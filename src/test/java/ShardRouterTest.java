@@ -0,0 +1,156 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import pro.knoweledgecity.LocalShards;
+import pro.knoweledgecity.QuestionBank;
+import pro.knoweledgecity.QuizError;
+import pro.knoweledgecity.ShardRing;
+import pro.knoweledgecity.ShardRouter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ShardRouter} over three quiz servers running as separate local JVMs.
+ */
+public class ShardRouterTest {
+    private static final QuestionBank BANK = QuestionBank.defaultBank();
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+    private static LocalShards shards;
+
+    @BeforeAll
+    public static void startNodes() {
+        shards = LocalShards.start(3);
+    }
+
+    @AfterAll
+    public static void stopNodes() {
+        shards.close();
+    }
+
+    @Test
+    @Description("Verifies that every action of a user reaches the one node that owns its email, and that users "
+            + "spread over all nodes.")
+    public void testUsersLiveOnTheirOwningNode() throws Exception {
+        List<String> nodes = shards.baseUrls();
+        ShardRing ring = new ShardRing(nodes);
+        int[] owned = new int[nodes.size()];
+        try (ShardRouter router = ShardRouter.start(0, ring)) {
+            for (int i = 0; i < 30; i++) {
+                String email = "owned" + i + "@example.com";
+                assertEquals("You have successfully logged in",
+                        post(router.baseUrl(), "email=" + email + "&action=login"));
+                assertTrue(post(router.baseUrl(), "email=" + email + "&action=question").startsWith("Question: "));
+                String answer = URLEncoder.encode(BANK.answer(0), StandardCharsets.UTF_8);
+                assertEquals("Correct answer",
+                        post(router.baseUrl(), "email=" + email + "&action=answer&question_id=0&answer=" + answer));
+                assertEquals("Current score: 1", post(router.baseUrl(), "email=" + email + "&action=score"));
+                int owner = ring.owner(email);
+                owned[owner]++;
+                for (int node = 0; node < nodes.size(); node++) {
+                    String direct = post(nodes.get(node), "email=" + email + "&action=score");
+                    assertEquals(node == owner ? "Current score: 1" : QuizError.NOT_LOGGED_IN.message(), direct,
+                            email + " on " + nodes.get(node) + ": " + direct);
+                }
+                assertEquals("Your progress has been reset",
+                        post(router.baseUrl(), "email=" + email + "&action=reset"));
+                assertEquals("Current score: 0", post(nodes.get(owner), "email=" + email + "&action=score"));
+            }
+            assertEquals(QuizError.EMAIL_MISSING.message(), post(router.baseUrl(), "action=score"));
+        }
+        for (int node = 0; node < owned.length; node++) {
+            assertTrue(owned[node] > 0, "No user on " + nodes.get(node));
+        }
+    }
+
+    @Test
+    @Description("Verifies that adding a node moves only the users it now owns, and that the others keep their "
+            + "sessions.")
+    public void testAddedNodeTakesOverItsUsers() throws Exception {
+        List<String> nodes = shards.baseUrls();
+        ShardRing before = new ShardRing(nodes.subList(0, 2));
+        ShardRing after = before.with(nodes.get(2));
+        int users = 60;
+        try (ShardRouter router = ShardRouter.start(0, before)) {
+            for (int i = 0; i < users; i++) {
+                assertTrue(post(router.baseUrl(),
+                        "email=moved" + i + "@example.com&action=login").startsWith("You have"));
+            }
+            router.ring(after);
+            int moved = 0;
+            for (int i = 0; i < users; i++) {
+                String email = "moved" + i + "@example.com";
+                String score = post(router.baseUrl(), "email=" + email + "&action=score");
+                if (after.owner(email) == 2) {
+                    moved++;
+                    // Sessions are not migrated: a moved user starts over on the new node
+                    assertEquals(QuizError.NOT_LOGGED_IN.message(), score, email + ": " + score);
+                    assertTrue(post(router.baseUrl(), "email=" + email + "&action=login").startsWith("You have"));
+                } else {
+                    assertEquals(after.owner(email), before.owner(email), email + " moved between old nodes");
+                    assertEquals("Current score: 0", score, email + ": " + score);
+                }
+            }
+            assertTrue(moved > 0 && moved < users / 2, moved + " of " + users + " users moved to the third node");
+        }
+    }
+
+    @Test
+    @Description("Verifies that a request for a node that cannot be reached gets 502.")
+    public void testUnreachableNode() throws Exception {
+        try (ShardRouter router = ShardRouter.start(0, new ShardRing(List.of("http://localhost:1")))) {
+            HttpResponse<String> response = send(router.baseUrl(), "email=down%40example.com&action=score");
+            assertEquals(502, response.statusCode(), response.statusCode() + " " + response.body());
+        }
+    }
+
+    @Test
+    @Description("Verifies that a request the router cannot decode gets the same 400 as from a single server.")
+    public void testMalformedRequest() throws Exception {
+        try (ShardRouter router = ShardRouter.start(0, new ShardRing(shards.baseUrls()))) {
+            // The escape is only sent in the body: a URI cannot hold it
+            HttpResponse<String> response = CLIENT.send(HttpRequest.newBuilder(URI.create(router.baseUrl() + "/"))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString("email=%zz%40example.com&action=score"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertTrue(response.statusCode() == 400 && response.body().equals("Error: Malformed request"),
+                    response.statusCode() + " " + response.body());
+        }
+    }
+
+    @Test
+    @Description("Verifies that rank and leaderboard, which no single node can answer for every user, get an "
+            + "explicit error instead of one node's partial answer.")
+    public void testGlobalActionsRejected() throws Exception {
+        try (ShardRouter router = ShardRouter.start(0, new ShardRing(shards.baseUrls()))) {
+            for (String action : List.of("rank", "leaderboard")) {
+                HttpResponse<String> response = send(router.baseUrl(), "email=global%40example.com&action=" + action);
+                assertTrue(response.statusCode() == 501
+                                && response.body().equals("Error: Action not supported across shards"),
+                        action + ": " + response.statusCode() + " " + response.body());
+            }
+        }
+    }
+
+    private static String post(String baseUrl, String query) throws IOException, InterruptedException {
+        return send(baseUrl, query).body();
+    }
+
+    private static HttpResponse<String> send(String baseUrl, String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/?" + query))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,77 @@
+import io.restassured.RestAssured;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import pro.knoweledgecity.RequestTrace;
+import pro.knoweledgecity.ResponseReader;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends every {@code POST} made through {@link BaseApiTest#baseRequest()} (and the {@link UserPool} logins) to the
+ * {@link RequestTrace} named by {@code -Dquiz.trace=<file>}, from all threads, for {@link TraceReplay} to play back.
+ * Requests to servers a test started for itself are left out, as are all requests without the property.
+ *
+ * <p>{@code mvn test -Dquiz.trace=target/suite.trace} records the whole suite; the trace is written out when the
+ * JVM exits.
+ */
+public final class TraceRecordingFilter implements OrderedFilter {
+    static final TraceRecordingFilter INSTANCE = new TraceRecordingFilter();
+
+    private static final RequestTrace.Writer TRACE = open(System.getProperty("quiz.trace"));
+    private static final ThreadLocal<ResponseReader> READERS = ThreadLocal.withInitial(ResponseReader::new);
+
+    private TraceRecordingFilter() {
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec,
+                           FilterableResponseSpecification responseSpec,
+                           FilterContext context) {
+        if (TRACE == null || !"POST".equals(requestSpec.getMethod())
+                || !RestAssured.baseURI.equals(requestSpec.getBaseUri())) {
+            return context.next(requestSpec, responseSpec);
+        }
+        long start = TRACE.now();
+        long started = System.nanoTime();
+        Response response = context.next(requestSpec, responseSpec);
+        long elapsed = System.nanoTime() - started;
+        List<RequestTrace.Param> params = new ArrayList<>();
+        addParams(params, requestSpec.getQueryParams(), false);
+        addParams(params, requestSpec.getFormParams(), true);
+        ResponseReader reader = READERS.get().read(response.asByteArray());
+        TRACE.append(new RequestTrace.Call(start, elapsed, params, response.statusCode(), reader.outcome(),
+                reader.error()));
+        return response;
+    }
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+
+    private static void addParams(List<RequestTrace.Param> params, Map<String, ?> values, boolean inBody) {
+        values.forEach((name, value) -> {
+            // A parameter set several times arrives as a list of its values
+            if (value instanceof Iterable<?> repeated) {
+                repeated.forEach(each -> params.add(new RequestTrace.Param(name, String.valueOf(each), inBody)));
+            } else {
+                params.add(new RequestTrace.Param(name, String.valueOf(value), inBody));
+            }
+        });
+    }
+
+    private static RequestTrace.Writer open(String path) {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        RequestTrace.Writer trace = RequestTrace.create(Path.of(path));
+        Runtime.getRuntime().addShutdownHook(new Thread(trace::close));
+        return trace;
+    }
+}
@@ -0,0 +1,236 @@
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import pro.knoweledgecity.Action;
+import pro.knoweledgecity.EmailValidator;
+import pro.knoweledgecity.LatencyHistogram;
+import pro.knoweledgecity.RequestTrace;
+import pro.knoweledgecity.ResponseReader;
+import pro.knoweledgecity.Threads;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Plays a {@link RequestTrace} recorded by {@link TraceRecordingFilter} against a server and compares the outcome
+ * with the recording.
+ *
+ * <p>Each email's calls are sent one after another in their recorded order, on its own thread (virtual on JDK
+ * 21+), while different emails run in parallel. At speed {@code s} a call is due at its recorded offset from the
+ * first call divided by {@code s}, is sent no earlier, and its latency counts from when it was due, so that a
+ * server falling behind shows in the latencies instead of only slowing the replay down. Speed {@code 0} sends every
+ * call as soon as the previous call of its email has answered and times it from the send. Valid emails keep their
+ * domain but get a fixed-length local part unique to the email and the replay, so that logins succeed again on a
+ * server that has seen the recording and a valid address stays valid; invalid ones, and the rare valid ones whose
+ * domain leaves no room for the token, are sent as recorded.
+ *
+ * <p>A call diverges when its status, {@link ResponseReader.Outcome} or {@link QuizError} differs from the recorded
+ * one. The report lists per action the recorded and replayed errors and latency percentiles, then the first
+ * divergent calls. Runs against the in-process server unless {@code -DbaseUrl} is set:
+ * {@code mvn -P replay test -Dreplay.trace=target/suite.trace -Dreplay.speed=10}
+ */
+public final class TraceReplay {
+    private static final String RUN_ID = padded(Long.toString(System.currentTimeMillis(), 36), 9);
+    private static final AtomicLong TOKENS = new AtomicLong();
+    private static final int EXAMPLES = 10;
+
+    private final List<RequestTrace.Call> calls;
+    // Recorded start of the first call, so that the replay does not idle through what preceded it
+    private final long firstNanos;
+    private final Map<String, String> replayEmails = new ConcurrentHashMap<>();
+    private final Map<Action, LatencyHistogram> recorded = new EnumMap<>(Action.class);
+    private final Map<Action, LatencyHistogram> replayed = new EnumMap<>(Action.class);
+    private final Map<Action, LongAdder> recordedErrors = new EnumMap<>(Action.class);
+    private final Map<Action, LongAdder> replayedErrors = new EnumMap<>(Action.class);
+    private final Map<Action, LongAdder> diverged = new EnumMap<>(Action.class);
+    private final LongAdder divergences = new LongAdder();
+    private final AtomicLong sent = new AtomicLong();
+    private final Queue<String> examples = new ConcurrentLinkedQueue<>();
+
+    public TraceReplay(List<RequestTrace.Call> calls) {
+        this.calls = new ArrayList<>(calls);
+        this.calls.sort(Comparator.comparingLong(RequestTrace.Call::startNanos));
+        this.firstNanos = this.calls.isEmpty() ? 0 : this.calls.get(0).startNanos();
+        for (Action action : Action.values()) {
+            recorded.put(action, new LatencyHistogram());
+            replayed.put(action, new LatencyHistogram());
+            recordedErrors.put(action, new LongAdder());
+            replayedErrors.put(action, new LongAdder());
+            diverged.put(action, new LongAdder());
+        }
+        for (RequestTrace.Call call : this.calls) {
+            Action action = call.action();
+            if (action != null) {
+                recorded.get(action).record(call.latencyNanos());
+                if (call.status() != 200) {
+                    recordedErrors.get(action).increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Replays every call against {@code baseUrl} at {@code speed} times the recorded pace, or as fast as possible
+     * for {@code 0}, and waits for all of them to finish.
+     */
+    public void run(String baseUrl, double speed) throws InterruptedException {
+        // Calls without an email have no order to keep, so each one is sent on its own
+        Map<String, List<RequestTrace.Call>> byEmail = new LinkedHashMap<>();
+        List<List<RequestTrace.Call>> sequences = new ArrayList<>();
+        for (RequestTrace.Call call : calls) {
+            String email = call.email();
+            if (email == null) {
+                sequences.add(List.of(call));
+            } else {
+                byEmail.computeIfAbsent(email, ignored -> {
+                    List<RequestTrace.Call> sequence = new ArrayList<>();
+                    sequences.add(sequence);
+                    return sequence;
+                }).add(call);
+            }
+        }
+        ExecutorService users = Threads.newPerTaskExecutor();
+        long start = System.nanoTime();
+        for (List<RequestTrace.Call> sequence : sequences) {
+            users.execute(() -> {
+                ResponseReader reader = new ResponseReader();
+                for (RequestTrace.Call call : sequence) {
+                    long due;
+                    if (speed > 0) {
+                        due = start + (long) ((call.startNanos() - firstNanos) / speed);
+                        long wait;
+                        while ((wait = due - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    } else {
+                        due = System.nanoTime();
+                    }
+                    send(baseUrl, call, reader, due);
+                }
+            });
+        }
+        users.shutdown();
+        users.awaitTermination(1, TimeUnit.HOURS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        double recordedSeconds = calls.isEmpty() ? 0 : (calls.get(calls.size() - 1).startNanos() - firstNanos) / 1e9;
+        System.out.printf("%s: %d calls of %d emails in %.1f s (recorded over %.1f s, speed %s), %d diverged%n",
+                baseUrl, sent.get(), byEmail.size(), elapsedSeconds, recordedSeconds,
+                speed > 0 ? speed + "x" : "max", divergences());
+    }
+
+    public long divergences() {
+        return divergences.sum();
+    }
+
+    public LatencyHistogram replayed(Action action) {
+        return replayed.get(action);
+    }
+
+    public LatencyHistogram recorded(Action action) {
+        return recorded.get(action);
+    }
+
+    public void printReport() {
+        System.out.printf("%-11s %7s %8s %8s %8s %9s %9s %9s %9s%n", "action", "calls", "rec err", "rep err",
+                "diverged", "rec p50", "rep p50", "rec p99", "rep p99");
+        for (Action action : Action.values()) {
+            LatencyHistogram before = recorded.get(action);
+            LatencyHistogram after = replayed.get(action);
+            System.out.printf("%-11s %7d %8d %8d %8d %9.2f %9.2f %9.2f %9.2f%n", action.param(), after.count(),
+                    recordedErrors.get(action).sum(), replayedErrors.get(action).sum(), diverged.get(action).sum(),
+                    millis(before.valueAtPercentile(50)), millis(after.valueAtPercentile(50)),
+                    millis(before.valueAtPercentile(99)), millis(after.valueAtPercentile(99)));
+        }
+        examples.forEach(System.out::println);
+    }
+
+    /**
+     * Sends {@code call} and records its latency from {@code due}, the time it should have been sent.
+     */
+    private void send(String baseUrl, RequestTrace.Call call, ResponseReader reader, long due) {
+        RequestSpecification request = given()
+                .baseUri(baseUrl)
+                .contentType("application/x-www-form-urlencoded");
+        for (RequestTrace.Param param : call.params()) {
+            String value = param.name().equals("email") ? replayEmail(param.value()) : param.value();
+            if (param.inBody()) {
+                request.formParam(param.name(), value);
+            } else {
+                request.queryParam(param.name(), value);
+            }
+        }
+        int status;
+        ResponseReader.Outcome outcome = ResponseReader.Outcome.UNKNOWN;
+        try {
+            Response response = request.post("/");
+            status = response.statusCode();
+            reader.read(response.asByteArray());
+            outcome = reader.outcome();
+        } catch (RuntimeException e) {
+            status = -1;
+            reader.read(new byte[0]);
+        }
+        long elapsed = System.nanoTime() - due;
+        sent.incrementAndGet();
+        Action action = call.action();
+        if (action != null) {
+            replayed.get(action).record(elapsed);
+            if (status != 200) {
+                replayedErrors.get(action).increment();
+            }
+        }
+        if (status != call.status() || outcome != call.outcome() || reader.error() != call.error()) {
+            divergences.increment();
+            if (action != null) {
+                diverged.get(action).increment();
+            }
+            if (examples.size() < EXAMPLES) {
+                examples.add(String.format("diverged at %.3f s %s: recorded %d %s %s, replayed %d %s %s",
+                        (call.startNanos() - firstNanos) / 1e9, call.params(), call.status(), call.outcome(),
+                        call.error(), status, outcome, reader.error()));
+            }
+        }
+    }
+
+    private String replayEmail(String email) {
+        if (!EmailValidator.isValid(email)) {
+            return email;
+        }
+        return replayEmails.computeIfAbsent(email, recorded -> {
+            String token = "replay" + RUN_ID + padded(Long.toString(TOKENS.incrementAndGet(), 36), 8);
+            String replayed = token + recorded.substring(recorded.indexOf('@'));
+            return EmailValidator.isValid(replayed) ? replayed : recorded;
+        });
+    }
+
+    private static String padded(String digits, int length) {
+        return "0".repeat(length - digits.length()) + digits;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String trace = System.getProperty("replay.trace", "target/suite.trace");
+        String speed = System.getProperty("replay.speed", "1");
+        TraceReplay replay = new TraceReplay(RequestTrace.read(Path.of(trace)));
+        replay.run(BaseApiTest.BASE_URL, "max".equals(speed) ? 0 : Double.parseDouble(speed));
+        replay.printReport();
+        System.exit(0);
+    }
+}
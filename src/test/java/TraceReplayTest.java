@@ -0,0 +1,147 @@
+import io.qameta.allure.Description;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pro.knoweledgecity.Action;
+import pro.knoweledgecity.QuizError;
+import pro.knoweledgecity.RequestTrace;
+import pro.knoweledgecity.RequestTrace.Call;
+import pro.knoweledgecity.RequestTrace.Param;
+import pro.knoweledgecity.ResponseReader.Outcome;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TraceReplayTest {
+    private static final long MILLI = 1_000_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @Description("Verifies that calls read back from a trace equal the calls written, with emails and names shared "
+            + "between calls.")
+    public void testTraceRoundTrip() {
+        List<Call> calls = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String email = "trace" + i % 7 + "@example.com";
+            calls.add(new Call(i * MILLI, 3 * MILLI + i, List.of(
+                    new Param("email", email, i % 2 == 0),
+                    new Param("action", "answer", false),
+                    new Param("question_id", Integer.toString(i), false),
+                    new Param("answer", "réponse " + "x".repeat(i), true)), 200, Outcome.INCORRECT, null));
+        }
+        calls.add(new Call(1, 2, List.of(new Param("email", "not-an-email", false)), 400, Outcome.ERROR,
+                QuizError.ACTION_MISSING));
+        calls.add(new Call(Long.MAX_VALUE, 0, List.of(), 400, Outcome.ERROR, QuizError.EMAIL_MISSING));
+        Path path = dir.resolve("round-trip.trace");
+        try (RequestTrace.Writer writer = RequestTrace.create(path)) {
+            calls.forEach(writer::append);
+        }
+        assertEquals(calls, RequestTrace.read(path));
+        assertTrue(calls.get(3).action() == Action.ANSWER && calls.get(3).email().equals("trace3@example.com"));
+    }
+
+    @Test
+    @Description("Verifies that a replay as fast as possible keeps each user's order and reproduces every recorded "
+            + "outcome.")
+    public void testReplayReproducesRecording() throws Exception {
+        List<Call> calls = new ArrayList<>();
+        for (int user = 0; user < 50; user++) {
+            String email = "replay" + user + "@example.com";
+            // Recorded out of start order, as calls complete; the replay must still log in first
+            calls.add(call(user + 3, email, 200, Outcome.SCORE, null, "action", "score"));
+            calls.add(call(user + 2, email, 200, Outcome.CORRECT, null,
+                    "action", "answer", "question_id", "0", "answer", BaseApiTest.ANSWERS[0]));
+            calls.add(call(user + 1, email, 200, Outcome.QUESTION, null, "action", "question"));
+            calls.add(call(user, email, 200, Outcome.LOGGED_IN, null, "action", "login"));
+        }
+        calls.add(call(0, "nobody@example.com", 400, Outcome.ERROR, QuizError.NOT_LOGGED_IN, "action", "score"));
+        calls.add(call(0, "invalid@", 400, Outcome.ERROR, QuizError.INVALID_EMAIL, "action", "score"));
+        TraceReplay replay = new TraceReplay(roundTrip(calls));
+        replay.run(BaseApiTest.BASE_URL, 0);
+        replay.printReport();
+        assertEquals(0, replay.divergences(), replay.divergences() + " calls diverged");
+        assertTrue(replay.replayed(Action.LOGIN).count() == 50 && replay.replayed(Action.SCORE).count() == 52);
+
+        // A second replay logs in again under fresh emails; a doctored outcome is reported
+        calls.set(1, call(2, "replay0@example.com", 200, Outcome.INCORRECT, null,
+                "action", "answer", "question_id", "0", "answer", BaseApiTest.ANSWERS[0]));
+        TraceReplay doctored = new TraceReplay(roundTrip(calls));
+        doctored.run(BaseApiTest.BASE_URL, 0);
+        assertEquals(1, doctored.divergences(), doctored.divergences() + " calls diverged");
+    }
+
+    @Test
+    @Description("Verifies that valid emails as long as allowed stay valid and distinct when replayed.")
+    public void testReplayKeepsLongEmailsValid() throws Exception {
+        String domain = "a".repeat(60) + "." + "b".repeat(60) + "." + "c".repeat(60) + ".com";
+        List<Call> calls = new ArrayList<>();
+        for (int user = 0; user < 3; user++) {
+            String email = "x".repeat(62) + user + user + "@" + domain;
+            calls.add(call(user, email, 200, Outcome.LOGGED_IN, null, "action", "login"));
+            calls.add(call(user + 3, email, 200, Outcome.QUESTION, null, "action", "question"));
+        }
+        TraceReplay replay = new TraceReplay(roundTrip(calls));
+        replay.run(BaseApiTest.BASE_URL, 0);
+        assertEquals(0, replay.divergences(), replay.divergences() + " calls diverged");
+        assertEquals(3, replay.replayed(Action.LOGIN).count());
+    }
+
+    @Test
+    @Description("Verifies that a timed replay does not send calls ahead of the recorded pace divided by the speed.")
+    public void testReplayKeepsScaledPace() throws Exception {
+        List<Call> calls = new ArrayList<>();
+        for (int user = 0; user < 20; user++) {
+            // Users log in over one recorded second
+            calls.add(call(user * 50 * MILLI, "paced" + user + "@example.com", 200, Outcome.LOGGED_IN, null,
+                    "action", "login"));
+        }
+        TraceReplay replay = new TraceReplay(roundTrip(calls));
+        long started = System.nanoTime();
+        replay.run(BaseApiTest.BASE_URL, 10);
+        long elapsed = System.nanoTime() - started;
+        assertEquals(0, replay.divergences());
+        assertTrue(elapsed >= 95 * MILLI, "10x replay of 950 ms took " + elapsed / MILLI + " ms");
+    }
+
+    @Test
+    @Description("Verifies that a timed replay starts with the first recorded call rather than idling through the "
+            + "time before it.")
+    public void testReplayStartsAtFirstCall() throws Exception {
+        List<Call> calls = new ArrayList<>();
+        for (int user = 0; user < 3; user++) {
+            // The recording starts 30 s in, after the suite's startup
+            calls.add(call(30_000 * MILLI + user * 10 * MILLI, "late" + user + "@example.com", 200,
+                    Outcome.LOGGED_IN, null, "action", "login"));
+        }
+        TraceReplay replay = new TraceReplay(roundTrip(calls));
+        long started = System.nanoTime();
+        replay.run(BaseApiTest.BASE_URL, 1);
+        long elapsed = System.nanoTime() - started;
+        assertEquals(0, replay.divergences());
+        assertTrue(elapsed < 10_000 * MILLI, "1x replay of 20 ms took " + elapsed / MILLI + " ms");
+    }
+
+    private List<Call> roundTrip(List<Call> calls) throws Exception {
+        Path path = Files.createTempFile(dir, "replay", ".trace");
+        try (RequestTrace.Writer writer = RequestTrace.create(path)) {
+            calls.forEach(writer::append);
+        }
+        return RequestTrace.read(path);
+    }
+
+    private static Call call(long start, String email, int status, Outcome outcome, QuizError error,
+                             String... params) {
+        List<Param> list = new ArrayList<>();
+        list.add(new Param("email", email, false));
+        for (int i = 0; i < params.length; i += 2) {
+            list.add(new Param(params[i], params[i + 1], false));
+        }
+        return new Call(start, MILLI, list, status, outcome, error);
+    }
+}
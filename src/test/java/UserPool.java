@@ -0,0 +1,92 @@
+import pro.knoweledgecity.Threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Users logged in up front, so tests start with a registered user instead of paying a login round trip.
+ *
+ * <p>Emails are a run id plus a counter, unique across parallel tests and suite runs without Faker. The whole pool
+ * is logged in concurrently when {@link BaseApiTest} is first loaded; {@link #lease()} then hands out the next user
+ * with one atomic increment. Once the pool is drained, leases fall back to a synchronous login.
+ *
+ * <p>Size it with {@code -Dusers.pool=N} (default 128, roughly one per test in the suite).
+ */
+public final class UserPool {
+    private static final String RUN_ID = Long.toString(System.currentTimeMillis(), 36);
+    private static final AtomicLong EMAIL_SEQUENCE = new AtomicLong();
+
+    private final String[] emails;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private UserPool(String[] emails) {
+        this.emails = emails;
+    }
+
+    /**
+     * Generates {@code size} emails and logs all of them in concurrently, failing if any login is rejected.
+     */
+    public static UserPool provision(int size) {
+        String[] emails = new String[size];
+        for (int i = 0; i < size; i++) {
+            emails[i] = freshEmail();
+        }
+        ExecutorService executor = Threads.newPerTaskExecutor();
+        try {
+            List<Future<?>> logins = new ArrayList<>(size);
+            for (String email : emails) {
+                logins.add(executor.submit(() -> login(email)));
+            }
+            for (Future<?> login : logins) {
+                login.get();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to provision " + size + " users", e);
+        } finally {
+            executor.shutdown();
+        }
+        return new UserPool(emails);
+    }
+
+    /**
+     * Returns an email that is valid and has never been used, without logging it in.
+     */
+    public static String freshEmail() {
+        return "user." + RUN_ID + "." + EMAIL_SEQUENCE.incrementAndGet() + "@example.com";
+    }
+
+    /**
+     * Returns a logged-in user with no progress that no other caller has been given.
+     */
+    public String lease() {
+        int index = next.getAndIncrement();
+        if (index < emails.length) {
+            return emails[index];
+        }
+        String email = freshEmail();
+        login(email);
+        return email;
+    }
+
+    public int size() {
+        return emails.length;
+    }
+
+    private static void login(String email) {
+        // Not BaseApiTest.baseRequest(): provisioning runs on other threads while BaseApiTest is still initializing
+        given()
+                .filter(TraceRecordingFilter.INSTANCE)
+                .contentType("application/x-www-form-urlencoded")
+                .queryParam("email", email)
+                .queryParam("action", "login")
+                .post("/")
+                .then()
+                .statusCode(200);
+    }
+}
@@ -0,0 +1,88 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.AnswerMatcher;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the precompiled byte matcher with the trim/lower-case String comparison it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnswerMatcherBenchmark {
+
+    @Param({"text", "boolean", "numeric"})
+    public String kind;
+
+    private String expected;
+    private String submitted;
+    private byte[] submittedBytes;
+    private AnswerMatcher matcher;
+
+    @Setup
+    public void setup() {
+        switch (kind) {
+            case "text" -> {
+                expected = "To test the bartender's skills";
+                submitted = "  to TEST the   bartender's Skills ";
+            }
+            case "boolean" -> {
+                expected = "true";
+                submitted = "Yes";
+            }
+            case "numeric" -> {
+                expected = "42";
+                submitted = " 042";
+            }
+            default -> throw new IllegalArgumentException(kind);
+        }
+        submittedBytes = submitted.getBytes(StandardCharsets.UTF_8);
+        matcher = AnswerMatcher.compile(expected);
+    }
+
+    @Benchmark
+    public boolean compiledMatcher() {
+        return matcher.matches(submittedBytes, 0, submittedBytes.length);
+    }
+
+    @Benchmark
+    public boolean stringNormalization() {
+        String e = expected.trim().toLowerCase();
+        String a = submitted.trim().toLowerCase().replaceAll("\\s+", " ");
+        return e.equals(a)
+                || e.equals("true") && a.equals("yes")
+                || e.equals("false") && a.equals("no")
+                || isInteger(e) && isInteger(a) && Long.parseLong(e) == Long.parseLong(a);
+    }
+
+    private static boolean isInteger(String value) {
+        return value.matches("[+-]?\\d{1,18}");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AnswerMatcherBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
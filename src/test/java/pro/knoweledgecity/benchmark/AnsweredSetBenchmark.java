@@ -0,0 +1,96 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.SessionStore;
+import pro.knoweledgecity.UserState;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap held by the answered-question sets of one million users, and the cost of crediting an answer.
+ *
+ * <p>The setup logs the users in, has each answer {@code answered} random questions and prints the heap the store
+ * retains per user (email, state, answered set and leaderboard entry) next to what an eagerly allocated bitset of
+ * the whole bank would add; the answered set's own cost is the difference to the {@code answered=0} row. The
+ * benchmark then credits random questions of random users, which mostly finds them already answered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class AnsweredSetBenchmark {
+    private static final int USERS = 1_000_000;
+
+    @Param({"1000", "10000"})
+    public int questions;
+
+    @Param({"0", "8", "64"})
+    public int answered;
+
+    private SessionStore store;
+    private UserState[] users;
+
+    @Setup(Level.Trial)
+    public void login() {
+        long baseline = usedHeap();
+        store = new SessionStore(questions);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < USERS; i++) {
+            UserState user = store.login(email(i));
+            for (int answer = 0; answer < answered; answer++) {
+                user.recordCorrect(random.nextInt(questions));
+            }
+        }
+        long retained = usedHeap() - baseline;
+        System.out.printf("%n%d users, %d questions, %d answers each: %.1f bytes per user (an eager bitset adds %d)%n",
+                USERS, questions, answered, retained / (double) USERS, 16 + (questions + 63) / 64 * 8);
+        // Handles are taken after measuring so that they do not count as the store's footprint
+        users = new UserState[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = store.get(email(i));
+        }
+    }
+
+    @Benchmark
+    public boolean recordCorrect() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return users[random.nextInt(USERS)].recordCorrect(random.nextInt(Math.max(1, answered * 2)));
+    }
+
+    private static String email(int user) {
+        return "user" + user + "@example.com";
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AnsweredSetBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,121 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.QuestionBank;
+import pro.knoweledgecity.QuizServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Completed quizzes per second over loopback HTTP: login plus one {@code action=answer} per question, against login
+ * plus a single {@code action=batch}. The {@code requests} counter reports round trips per completed quiz.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchAnswerBenchmark {
+    private final AtomicLong users = new AtomicLong();
+    private String[] answers;
+    private QuizServer server;
+    private HttpClient client;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Requests {
+        public long requests;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            requests = 0;
+        }
+    }
+
+    @Setup
+    public void start() {
+        QuestionBank bank = QuestionBank.defaultBank();
+        answers = new String[bank.size()];
+        for (int id = 0; id < answers.length; id++) {
+            answers[id] = bank.answer(id);
+        }
+        server = QuizServer.start(0, bank);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown
+    public void stop() {
+        server.close();
+    }
+
+    @Benchmark
+    public int perAnswer(Requests counter) throws Exception {
+        String email = login(counter);
+        int status = 0;
+        for (int id = 0; id < answers.length; id++) {
+            status += post("email=" + email + "&action=answer&question_id=" + id + "&answer=" + encode(answers[id]),
+                    counter);
+        }
+        return status;
+    }
+
+    @Benchmark
+    public int batch(Requests counter) throws Exception {
+        String email = login(counter);
+        StringBuilder query = new StringBuilder("email=").append(email).append("&action=batch");
+        for (int id = 0; id < answers.length; id++) {
+            query.append("&question_id%5B").append(id).append("%5D=").append(id)
+                    .append("&answer%5B").append(id).append("%5D=").append(encode(answers[id]));
+        }
+        return post(query.toString(), counter);
+    }
+
+    private String login(Requests counter) throws IOException, InterruptedException {
+        String email = encode("bench." + users.incrementAndGet() + "@example.com");
+        post("email=" + email + "&action=login", counter);
+        return email;
+    }
+
+    private int post(String query, Requests counter) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.baseUrl() + "/?" + query))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        counter.requests++;
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BatchAnswerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,122 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.FormParams;
+import pro.knoweledgecity.PrometheusMetrics;
+import pro.knoweledgecity.QuestionBank;
+import pro.knoweledgecity.QuizRequest;
+import pro.knoweledgecity.QuizResponse;
+import pro.knoweledgecity.QuizService;
+import pro.knoweledgecity.RequestMetrics;
+import pro.knoweledgecity.SessionJournal;
+import pro.knoweledgecity.SessionStore;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side request path without the socket: parameter parsing, action dispatch and response rendering, with
+ * and without request metrics.
+ *
+ * <p>The dispatch benchmarks decode the query from a buffer into a reused {@link QuizRequest}, as a front end event
+ * loop does; {@code parseParams} keeps the map-based {@link FormParams} for comparison with {@code decodeRequest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    private static final String EMAIL = "bench.user@example.com";
+    private static final String SCORE_QUERY = "email=bench.user%40example.com&action=score";
+    private static final String ANSWER_QUERY =
+            "email=bench.user%40example.com&action=answer&question_id=0&answer=To+test+the+bartender%27s+skills";
+    private static final String INVALID_EMAIL_QUERY = "email=bench.user%40example&action=score";
+
+    @Param({"off", "on"})
+    public String metrics;
+
+    private QuizService service;
+    private Map<String, String> scoreParams;
+
+    @Setup
+    public void setup() {
+        QuestionBank questions = QuestionBank.defaultBank();
+        SessionStore sessions = new SessionStore(questions.size());
+        RequestMetrics recorder = metrics.equals("on") ? new PrometheusMetrics() : RequestMetrics.NONE;
+        service = new QuizService(questions, sessions, SessionJournal.NONE, recorder);
+        service.handle(Map.of("email", EMAIL, "action", "login"));
+        scoreParams = FormParams.parse(SCORE_QUERY, "");
+    }
+
+    @State(Scope.Thread)
+    public static class Decoder {
+        final QuizRequest request = new QuizRequest();
+        final ByteBuffer score = buffer(SCORE_QUERY);
+        final ByteBuffer answer = buffer(ANSWER_QUERY);
+        final ByteBuffer invalidEmail = buffer(INVALID_EMAIL_QUERY);
+
+        QuizRequest decode(ByteBuffer query) {
+            return request.decode(query, 0, query.capacity(), query.capacity(), query.capacity());
+        }
+
+        private static ByteBuffer buffer(String query) {
+            byte[] bytes = query.getBytes(StandardCharsets.US_ASCII);
+            return ByteBuffer.allocateDirect(bytes.length).put(bytes);
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> parseParams() {
+        return FormParams.parse(ANSWER_QUERY, "");
+    }
+
+    @Benchmark
+    public QuizRequest decodeRequest(Decoder decoder) {
+        return decoder.decode(decoder.answer);
+    }
+
+    @Benchmark
+    public QuizResponse handleScore() {
+        return service.handle(scoreParams);
+    }
+
+    @Benchmark
+    public QuizResponse dispatchScore(Decoder decoder) {
+        return service.handle(decoder.decode(decoder.score));
+    }
+
+    @Benchmark
+    public QuizResponse dispatchAnswer(Decoder decoder) {
+        return service.handle(decoder.decode(decoder.answer));
+    }
+
+    @Benchmark
+    public QuizResponse dispatchInvalidEmail(Decoder decoder) {
+        return service.handle(decoder.decode(decoder.invalidEmail));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DispatchBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,70 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.EmailValidator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Email validation as run on every request, for an accepted and two rejected addresses: the hand-written validator
+ * over the decoded string and over raw bytes, against the regex it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailValidatorBenchmark {
+
+    private static final Pattern REGEX = Pattern.compile(
+            "^[A-Za-z0-9._%+-]{1,64}@[A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*\\.[A-Za-z]{2,}$");
+
+    @Param({"niwatarou@gmail.com", "test@testtest", "testtest.test"})
+    public String email;
+
+    private byte[] bytes;
+
+    @Setup
+    public void encode() {
+        bytes = email.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return EmailValidator.isValid(email);
+    }
+
+    @Benchmark
+    public boolean validateBytes() {
+        return EmailValidator.isValid(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public boolean regex() {
+        return email.length() <= 254 && REGEX.matcher(email).matches();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmailValidatorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,219 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.AdmissionControl;
+import pro.knoweledgecity.NioQuizServer;
+import pro.knoweledgecity.QuestionBank;
+import pro.knoweledgecity.QuizServer;
+import pro.knoweledgecity.QuizService;
+import pro.knoweledgecity.SessionStore;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The thread-per-request {@link QuizServer} (virtual threads on JDK 21+, a cached pool before) against the
+ * selector-based {@link NioQuizServer}: score round trips over keep-alive connections while {@code idle} other
+ * keep-alive connections are held open.
+ *
+ * <p>Sample mode reports the percentiles of the round trip. The setup prints the live threads and the heap per idle
+ * connection once they are open, and the teardown how many of them the server still held at the end and how often
+ * the active clients had to reconnect because the server closed their connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Threads(4)
+public class FrontEndBenchmark {
+    private static final QuestionBank BANK = QuestionBank.defaultBank();
+    private static final int USERS = 64;
+
+    @Param({"threads", "nio"})
+    public String frontend;
+
+    @Param({"0", "5000"})
+    public int idle;
+
+    private AutoCloseable server;
+    private int port;
+    private final List<SocketChannel> idleConnections = new ArrayList<>();
+    private final AtomicInteger nextUser = new AtomicInteger();
+    private final AtomicInteger reconnects = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        SessionStore sessions = new SessionStore(BANK.size());
+        for (int i = 0; i < USERS; i++) {
+            sessions.login(email(i));
+        }
+        QuizService service = new QuizService(BANK, sessions);
+        if ("nio".equals(frontend)) {
+            NioQuizServer nio = NioQuizServer.start(0, service, AdmissionControl.UNLIMITED,
+                    Runtime.getRuntime().availableProcessors());
+            server = nio;
+            port = nio.port();
+        } else {
+            QuizServer threads = QuizServer.start(0, service);
+            server = threads;
+            port = threads.port();
+        }
+        long heap = usedHeap();
+        byte[] request = scoreRequest(email(0));
+        for (int i = 0; i < idle; i++) {
+            // One request each, so that every connection is a served keep-alive connection, then left idle
+            SocketChannel connection = connect(port);
+            if (roundTrip(connection, request, ByteBuffer.allocate(512)) < 0) {
+                throw new IllegalStateException("Server closed connection " + i + " before answering");
+            }
+            idleConnections.add(connection);
+        }
+        System.out.printf("%n%s: %d idle connections, %d live threads, %.0f heap bytes per connection (both ends)%n",
+                frontend, idle, ManagementFactory.getThreadMXBean().getThreadCount(),
+                idle == 0 ? 0.0 : (usedHeap() - heap) / (double) idle);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        int held = 0;
+        for (SocketChannel connection : idleConnections) {
+            connection.configureBlocking(false);
+            // A connection the server closed reads end-of-stream
+            if (connection.read(ByteBuffer.allocate(1)) == 0) {
+                held++;
+            }
+            connection.close();
+        }
+        System.out.printf("%n%s: %d of %d idle connections still held, %d reconnects by active clients%n",
+                frontend, held, idle, reconnects.getAndSet(0));
+        idleConnections.clear();
+        server.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        FrontEndBenchmark benchmark;
+        SocketChannel connection;
+        byte[] request;
+        final ByteBuffer response = ByteBuffer.allocate(512);
+
+        @Setup(Level.Trial)
+        public void connect(FrontEndBenchmark benchmark) throws IOException {
+            this.benchmark = benchmark;
+            connection = FrontEndBenchmark.connect(benchmark.port);
+            request = scoreRequest(email(benchmark.nextUser.getAndIncrement() % USERS));
+        }
+
+        /**
+         * Replaces a connection the server closed, as a real client would; the new handshake counts in the time.
+         */
+        void reconnect() throws IOException {
+            connection.close();
+            connection = FrontEndBenchmark.connect(benchmark.port);
+            benchmark.reconnects.incrementAndGet();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public int score(Client client) throws IOException {
+        int length = roundTrip(client.connection, client.request, client.response);
+        if (length < 0) {
+            client.reconnect();
+            length = roundTrip(client.connection, client.request, client.response);
+        }
+        return length;
+    }
+
+    private static SocketChannel connect(int port) throws IOException {
+        SocketChannel connection = SocketChannel.open(new InetSocketAddress("localhost", port));
+        connection.socket().setTcpNoDelay(true);
+        return connection;
+    }
+
+    /**
+     * Sends one request and reads its response; returns the response length, or {@code -1} when the server had
+     * closed the connection.
+     */
+    private static int roundTrip(SocketChannel connection, byte[] request, ByteBuffer response) {
+        try {
+            ByteBuffer out = ByteBuffer.wrap(request);
+            while (out.hasRemaining()) {
+                connection.write(out);
+            }
+            response.clear();
+            int headEnd = -1;
+            int length = -1;
+            while (length < 0 || response.position() < headEnd + length) {
+                if (connection.read(response) < 0) {
+                    return -1;
+                }
+                if (headEnd < 0) {
+                    String head = new String(response.array(), 0, response.position(), StandardCharsets.ISO_8859_1);
+                    int end = head.indexOf("\r\n\r\n");
+                    if (end >= 0) {
+                        headEnd = end + 4;
+                        int header = head.toLowerCase().indexOf("content-length:");
+                        length = Integer.parseInt(head.substring(header + 15, head.indexOf('\r', header)).trim());
+                    }
+                }
+            }
+            return response.position();
+        } catch (IOException e) {
+            // Reset by the server
+            return -1;
+        }
+    }
+
+    private static byte[] scoreRequest(String email) {
+        return ("POST /?email=" + email + "&action=score HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String email(int user) {
+        return "frontend" + user + "@example.com";
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FrontEndBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
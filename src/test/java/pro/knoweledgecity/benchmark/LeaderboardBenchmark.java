@@ -0,0 +1,94 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.Leaderboard;
+import pro.knoweledgecity.SessionStore;
+import pro.knoweledgecity.UserState;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@code action=rank} and {@code action=leaderboard} queries over one million users while six threads
+ * keep answering and resetting.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class LeaderboardBenchmark {
+    private static final int USERS = 1_000_000;
+    private static final int QUESTIONS = 5;
+
+    private UserState[] users;
+    private Leaderboard leaderboard;
+
+    @Setup(Level.Trial)
+    public void login() {
+        SessionStore store = new SessionStore(QUESTIONS);
+        users = new UserState[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = store.login("user" + i + "@example.com");
+        }
+        leaderboard = store.leaderboard();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (UserState user : users) {
+            for (int question = random.nextInt(QUESTIONS + 1); question > 0; question--) {
+                user.recordCorrect(question - 1);
+            }
+            leaderboard.update(user);
+        }
+    }
+
+    @Benchmark
+    @Group("ranking")
+    @GroupThreads(6)
+    public void answer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UserState user = users[random.nextInt(USERS)];
+        if (user.score() == QUESTIONS) {
+            user.reset();
+        } else {
+            user.recordCorrect(random.nextInt(QUESTIONS));
+        }
+        leaderboard.update(user);
+    }
+
+    @Benchmark
+    @Group("ranking")
+    @GroupThreads(1)
+    public int rank() {
+        return leaderboard.rank(users[ThreadLocalRandom.current().nextInt(USERS)]);
+    }
+
+    @Benchmark
+    @Group("ranking")
+    @GroupThreads(1)
+    public List<Leaderboard.Entry> top10() {
+        return leaderboard.top(10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LeaderboardBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
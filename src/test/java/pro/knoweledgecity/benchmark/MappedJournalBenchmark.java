@@ -0,0 +1,113 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.FsyncPolicy;
+import pro.knoweledgecity.MappedJournal;
+import pro.knoweledgecity.SessionStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal append throughput per fsync policy, and recovery time of a journal holding one million users
+ * (one login, five questions and five correct answers each).
+ */
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class MappedJournalBenchmark {
+    static final int USERS = 1_000_000;
+    static final int QUESTIONS = 5;
+
+    @State(Scope.Benchmark)
+    public static class Appending {
+        @Param({"PER_WRITE", "GROUPED", "PERIODIC"})
+        public FsyncPolicy policy;
+
+        Path file;
+        MappedJournal journal;
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            file = Files.createTempFile("quiz-append", ".journal");
+            journal = MappedJournal.open(file, policy, 100);
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            journal.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recovering {
+        Path file;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            file = Files.createTempFile("quiz-recover", ".journal");
+            try (MappedJournal journal = MappedJournal.open(file, FsyncPolicy.PERIODIC, 1000)) {
+                for (int user = 0; user < USERS; user++) {
+                    journal.login(user, "user" + user + "@example.com");
+                    for (int question = 0; question < QUESTIONS; question++) {
+                        journal.question(user, question);
+                        journal.answer(user, question);
+                    }
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 2)
+    @Threads(8)
+    public void append(Appending state, ThreadParams thread) {
+        state.journal.answer(thread.getThreadIndex(), 1);
+        state.journal.awaitDurable();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public SessionStore recoverMillionUsers(Recovering state) {
+        SessionStore store = new SessionStore(QUESTIONS);
+        try (MappedJournal journal = MappedJournal.open(state.file, FsyncPolicy.PERIODIC, 1000)) {
+            journal.replay(store);
+        }
+        return store;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MappedJournalBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
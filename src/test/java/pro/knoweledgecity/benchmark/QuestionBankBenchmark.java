@@ -0,0 +1,87 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.QuestionBank;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load time of a mapped question bank as it grows, and random lookups (question text plus answer check) in it.
+ */
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class QuestionBankBenchmark {
+    private static final byte[] SUBMITTED = " 42 ".getBytes(StandardCharsets.UTF_8);
+
+    @State(Scope.Benchmark)
+    public static class Saved {
+        @Param({"1000", "1000000"})
+        public int questions;
+
+        Path file;
+        QuestionBank bank;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            String[] texts = new String[questions];
+            String[] answers = new String[questions];
+            for (int i = 0; i < questions; i++) {
+                texts[i] = "How many QA engineers does it take to change light bulb number " + i + "?";
+                answers[i] = Integer.toString(i % 100);
+            }
+            file = Files.createTempFile("quiz", ".bank");
+            new QuestionBank(texts, answers).save(file);
+            bank = QuestionBank.open(file);
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public QuestionBank open(Saved state) {
+        return QuestionBank.open(state.file);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public int lookup(Saved state) {
+        int id = ThreadLocalRandom.current().nextInt(state.questions);
+        QuestionBank bank = state.bank;
+        return bank.question(id).length() + (bank.isCorrect(id, SUBMITTED, 0, SUBMITTED.length) ? 1 : 0);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(QuestionBankBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,95 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.QuestionBank;
+import pro.knoweledgecity.QuizResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing and writing one {@code action=question} body: formatting and encoding it per request, as the
+ * service used to, against writing the slice pre-rendered in the bank image (heap-backed or mapped from a file).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionResponseBenchmark {
+    private static final int QUESTIONS = 1000;
+
+    @Param({"heap", "mapped"})
+    public String storage;
+
+    private final OutputStream socket = OutputStream.nullOutputStream();
+    private Path file;
+    private QuestionBank bank;
+
+    @Setup(Level.Trial)
+    public void build() throws IOException {
+        String[] questions = new String[QUESTIONS];
+        String[] answers = new String[QUESTIONS];
+        for (int i = 0; i < QUESTIONS; i++) {
+            questions[i] = "How many QA engineers does it take to change light bulb number " + i + "?";
+            answers[i] = Integer.toString(i % 100);
+        }
+        bank = new QuestionBank(questions, answers);
+        if (storage.equals("mapped")) {
+            file = Files.createTempFile("quiz", ".bank");
+            bank.save(file);
+            bank = QuestionBank.open(file);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public OutputStream naive() throws IOException {
+        int id = ThreadLocalRandom.current().nextInt(QUESTIONS);
+        String body = "Question: " + bank.question(id) + "\nId: " + id + "\nAnswer: " + bank.answer(id);
+        socket.write(body.getBytes(StandardCharsets.UTF_8));
+        return socket;
+    }
+
+    @Benchmark
+    public OutputStream prerendered() throws IOException {
+        int id = ThreadLocalRandom.current().nextInt(QUESTIONS);
+        QuizResponse.ok(bank.questionResponse(id)).writeTo(socket);
+        return socket;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(QuestionResponseBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.ResponseReader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side parsing of response bodies: {@link ResponseReader} against the String parsing that
+ * {@code BaseApiTest.extractScore} and {@code extractQuestionId} used before it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParsingBenchmark {
+    private final String scoreBody = "Current score: 1234";
+    private final String questionBody = "Question: Why did the QA engineer drown in the pool?\n"
+            + "Id: 3\n"
+            + "Answer: Because they didn't receive the 'float' property!";
+    private final byte[] scoreBytes = scoreBody.getBytes(StandardCharsets.UTF_8);
+    private final byte[] questionBytes = questionBody.getBytes(StandardCharsets.UTF_8);
+    private final ResponseReader reader = new ResponseReader();
+
+    @Benchmark
+    public int readerScore() {
+        return reader.read(scoreBytes).score();
+    }
+
+    @Benchmark
+    public int readerQuestionId() {
+        return reader.read(questionBytes).questionId();
+    }
+
+    @Benchmark
+    public int stringScore() {
+        String scorePrefix = "Current score: ";
+        int index = scoreBody.indexOf(scorePrefix);
+        if (index != -1) {
+            return Integer.parseInt(scoreBody.substring(index + scorePrefix.length()).trim());
+        }
+        throw new IllegalStateException("Score not found in response");
+    }
+
+    @Benchmark
+    public int stringQuestionId() {
+        String[] lines = questionBody.split("\n");
+        for (String line : lines) {
+            if (line.startsWith("Id:")) {
+                return Integer.parseInt(line.replace("Id:", "").trim());
+            }
+        }
+        throw new IllegalStateException("Id not found in response");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResponseParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,120 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.LocalShards;
+import pro.knoweledgecity.QuestionBank;
+import pro.knoweledgecity.ShardRing;
+import pro.knoweledgecity.ShardRouter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of answers sent through a {@link ShardRouter} as nodes are added: {@code nodes} quiz servers run as
+ * separate local JVMs ({@link LocalShards}) with the selector front end and no admission limits, and the router
+ * runs in the benchmark JVM. Each call answers a random question of a random one of {@value #USERS} users.
+ *
+ * <p>Nodes only add throughput while the machine has idle cores for them; on a box with fewer cores than nodes
+ * plus router the numbers show the routing hop's cost instead. The setup prints how many users each node owns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(16)
+public class ShardScalingBenchmark {
+    private static final QuestionBank BANK = QuestionBank.defaultBank();
+    private static final int USERS = 4096;
+    private static final List<String> NODE_OPTIONS = List.of("-Xmx512m", "-Dquiz.frontend=nio",
+            "-Dquiz.admission.emailRate=0", "-Dquiz.admission.emailBurst=0");
+
+    @Param({"1", "2", "4"})
+    public int nodes;
+
+    private LocalShards shards;
+    private ShardRouter router;
+    private HttpClient client;
+    private URI[][] answers;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException, InterruptedException {
+        shards = new LocalShards();
+        for (int i = 0; i < nodes; i++) {
+            shards.add(0, NODE_OPTIONS);
+        }
+        ShardRing ring = new ShardRing(shards.baseUrls());
+        router = ShardRouter.start(0, ring);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        int[] owned = new int[nodes];
+        answers = new URI[USERS][];
+        for (int user = 0; user < USERS; user++) {
+            String email = "shard" + user + "@example.com";
+            send(URI.create(router.baseUrl() + "/?email=" + email + "&action=login"));
+            owned[ring.owner(email)]++;
+            answers[user] = new URI[BANK.size()];
+            for (int question = 0; question < BANK.size(); question++) {
+                answers[user][question] = URI.create(router.baseUrl() + "/?email=" + email
+                        + "&action=answer&question_id=" + question
+                        + "&answer=" + URLEncoder.encode(BANK.answer(question), StandardCharsets.UTF_8));
+            }
+        }
+        System.out.printf("%n%d nodes, users per node: %s%n", nodes, Arrays.toString(owned));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        router.close();
+        shards.close();
+    }
+
+    @Benchmark
+    public int answer() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return send(answers[random.nextInt(USERS)][random.nextInt(BANK.size())]);
+    }
+
+    private int send(URI uri) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(uri + ": " + response.statusCode() + " "
+                    + new String(response.body(), StandardCharsets.UTF_8));
+        }
+        return response.body().length;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ShardScalingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package pro.knoweledgecity.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pro.knoweledgecity.CheckpointedJournal;
+import pro.knoweledgecity.FsyncPolicy;
+import pro.knoweledgecity.SessionStore;
+import pro.knoweledgecity.UserState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup time from a snapshot of {@code users} users, each logged in with a few questions served and answered,
+ * and no journal events after it: the snapshot is loaded and every user ranked, as {@link CheckpointedJournal#open}
+ * does before the server listens. The setup prints the snapshot size and how long it took to write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class SnapshotRecoveryBenchmark {
+    private static final int QUESTIONS = 5;
+
+    @Param({"1000000", "10000000"})
+    public int users;
+
+    private Path directory;
+    private Path base;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        directory = Files.createTempDirectory("quiz-snapshot");
+        base = directory.resolve("quiz.journal");
+        SessionStore store = new SessionStore(QUESTIONS);
+        for (int user = 0; user < users; user++) {
+            UserState state = store.login("user" + user + "@example.com");
+            for (int question = 0; question < user % (QUESTIONS + 1); question++) {
+                state.nextQuestion(QUESTIONS);
+                state.recordCorrect(question);
+            }
+        }
+        try (CheckpointedJournal journal = CheckpointedJournal.open(base, store, FsyncPolicy.PERIODIC, 1000, 0)) {
+            long started = System.nanoTime();
+            journal.checkpoint();
+            System.out.printf("%n%d users: %d snapshot bytes written in %d ms%n", users,
+                    Files.size(directory.resolve("quiz.journal.snapshot")), (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public SessionStore recover() {
+        SessionStore store = new SessionStore(QUESTIONS);
+        CheckpointedJournal.open(base, store, FsyncPolicy.PERIODIC, 1000, 0).close();
+        return store;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SnapshotRecoveryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}